@@ -0,0 +1,36 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the deepagents JMH benchmarks and exports the results as JSON.
+ * <p>
+ * Arguments are the (regexp) benchmarks to include, all by default. System properties:
+ * <ul>
+ *     <li>{@code jmh.result} result file (default {@code target/jmh-result.json})</li>
+ *     <li>{@code jmh.forks} number of forks (default 1)</li>
+ * </ul>
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        var options = new OptionsBuilder()
+                .forks(Integer.getInteger("jmh.forks", 1))
+                // prepended: the jvmArgsAppend of the runner options would replace the @Fork ones (e.g. -Xmx2g)
+                .jvmArgsPrepend("-Dlogback.configurationFile=logback-bench.xml")
+                .resultFormat(ResultFormatType.JSON)
+                .result(System.getProperty("jmh.result", "target/jmh-result.json"));
+
+        if (args.length == 0) {
+            options.include(BenchmarkRunner.class.getPackageName() + ".*Bench");
+        }
+        for (var include : args) {
+            options.include(include);
+        }
+
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,54 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.bsc.langgraph4j.utils.CollectionsUtils.mergeMap;
+
+/**
+ * Cost of a single {@code write_file} update of the {@code files} channel at various map sizes.
+ * See {@link FileChannelHistoryBench} for the cost and the retained heap of a whole session.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FileChannelBench {
+
+    @Param({"100", "1000", "10000"})
+    int size;
+
+    private final FileChannel fileChannel = new FileChannel();
+    private Map<String, String> files;
+    private Map<String, String> plainFiles;
+    private int counter;
+
+    @Setup
+    public void setup() {
+        final var content = "x".repeat(256);
+        final var entries = new HashMap<String, String>();
+        for (int i = 0; i < size; ++i) {
+            entries.put("file" + i + ".md", content);
+        }
+        files = PersistentMap.from(entries);
+        plainFiles = Map.copyOf(entries);
+    }
+
+    private Map<String, String> nextUpdate() {
+        return Map.of("file" + (counter++ % size) + ".md", "updated");
+    }
+
+    @Benchmark
+    public Map<String, String> update() {
+        return fileChannel.update("files", files, nextUpdate());
+    }
+
+    @Benchmark
+    public Map<String, String> updateWithMergeMap() {
+        return mergeMap(plainFiles, nextUpdate(), (v1, v2) -> v2);
+    }
+}
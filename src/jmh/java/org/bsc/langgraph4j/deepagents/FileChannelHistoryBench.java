@@ -0,0 +1,102 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.bsc.langgraph4j.utils.CollectionsUtils.mergeMap;
+
+/**
+ * Update cost and retained heap of the {@code files} channel across a session: 1k {@code write_file} steps on a
+ * 10k files map, every version kept alive as a checkpoint saver does.
+ * <p>
+ * The score is the cost of one step, the {@code retainedBytes} counter is the used heap (after GC) retained by
+ * the versions of the last run, compared with the {@code mergeMap} (copy on each update) baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class FileChannelHistoryBench {
+
+    static final int FILES = 10_000;
+    static final int STEPS = 1_000;
+
+    @Param({"PersistentMap", "mergeMap"})
+    String reducer;
+
+    /**
+     * Heap retained by the versions of a run
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Heap {
+        /**
+         * used heap after GC retained by the versions of the last run, in bytes
+         */
+        public long retainedBytes;
+    }
+
+    private final FileChannel fileChannel = new FileChannel();
+    private Map<String, String> initial;
+    private List<Map<String, String>> versions;
+    private long baseline;
+
+    private static long usedHeapAfterGc() {
+        final var memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; ++i) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        final var content = "x".repeat(256);
+        final var entries = new HashMap<String, String>();
+        for (int i = 0; i < FILES; ++i) {
+            entries.put("docs/file" + i + ".md", content);
+        }
+        initial = reducer.equals("mergeMap") ? new HashMap<>(entries) : PersistentMap.from(entries);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        versions = new ArrayList<>(STEPS + 1);
+        baseline = usedHeapAfterGc();
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation(Heap heap) {
+        heap.retainedBytes = usedHeapAfterGc() - baseline;
+        if (versions.get(STEPS).size() != FILES) {
+            throw new IllegalStateException("unexpected number of files");
+        }
+        versions = null;
+    }
+
+    private Map<String, String> update(Map<String, String> files, Map<String, String> update) {
+        return reducer.equals("mergeMap")
+                ? mergeMap(files, update, (v1, v2) -> v2)
+                : fileChannel.update("files", files, update);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STEPS)
+    public List<Map<String, String>> history(Heap heap) {
+        var files = initial;
+        versions.add(files);
+        for (int step = 0; step < STEPS; ++step) {
+            files = update(files, Map.of("docs/file" + (step * 7 % FILES) + ".md", "updated at step " + step));
+            versions.add(files);
+        }
+        return versions;
+    }
+}
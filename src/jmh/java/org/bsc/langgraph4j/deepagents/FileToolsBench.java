@@ -0,0 +1,107 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static java.lang.String.format;
+
+/**
+ * {@code read_file} (paged) and {@code edit_file} on contents from 1 KB to 50 MB.
+ * <p>
+ * The {@code editFileTool*} benchmarks call the {@code edit_file} tool, argument parsing and store included, the
+ * other {@code editFile*} ones the {@link TextEdit} engine alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class FileToolsBench {
+
+    @Param({"1024", "1048576", "10485760", "52428800"})
+    int contentSize;
+
+    private static final String EDIT_UNIQUE_ARGS =
+            "{ \"filePath\": \"data.txt\", \"oldString\": \"UNIQUE_TAIL\", \"newString\": \"TAIL\" }";
+    private static final String EDIT_REPLACE_ALL_ARGS =
+            "{ \"filePath\": \"data.txt\", \"oldString\": \"MARKER\", \"newString\": \"MARKER_2\", \"replaceAll\": true }";
+
+    private static final String LINE = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor.\n";
+
+    private String content;
+    private ToolCallback readFile;
+    private ToolCallback editFile;
+    private ToolContext toolContext;
+    private String readArgs;
+
+    @Setup
+    public void setup() {
+        final var sb = new StringBuilder(contentSize + 1024);
+        int lines = 0;
+        while (sb.length() < contentSize) {
+            sb.append(LINE);
+            if (++lines % 100 == 0) {
+                sb.append("MARKER\n");
+            }
+        }
+        sb.append("UNIQUE_TAIL\n");
+        content = sb.toString();
+
+        readFile = Tools.readFile(FileStore.inline());
+        editFile = Tools.editFile(FileStore.inline());
+        // mutable, the tool responses register their state update in the context
+        toolContext = new ToolContext(new HashMap<>(Map.of("files", Map.of("data.txt", content))));
+        // last page of the file
+        final var lineCount = LineIndex.of(content).lineCount();
+        readArgs = format("{ \"filePath\": \"data.txt\", \"offset\": %d, \"limit\": 50 }", Math.max(0, lineCount - 50));
+    }
+
+    @Benchmark
+    public String readFileLastPage() {
+        return readFile.call(readArgs, toolContext);
+    }
+
+    @Benchmark
+    public TextEdit.Result editFileUnique() {
+        return TextEdit.replace(content, "UNIQUE_TAIL", "TAIL", false);
+    }
+
+    @Benchmark
+    public TextEdit.Result editFileReplaceAll() {
+        return TextEdit.replace(content, "MARKER", "MARKER_2", true);
+    }
+
+    @Benchmark
+    public String editFileToolUnique() {
+        return editFile.call(EDIT_UNIQUE_ARGS, toolContext);
+    }
+
+    @Benchmark
+    public String editFileToolReplaceAll() {
+        return editFile.call(EDIT_REPLACE_ALL_ARGS, toolContext);
+    }
+
+    /**
+     * previous regex based implementation of {@code edit_file}, as baseline
+     */
+    @Benchmark
+    public String editFileUniqueRegex() {
+        if (!content.contains("UNIQUE_TAIL")) {
+            return null;
+        }
+        final var quoted = Pattern.quote("UNIQUE_TAIL");
+        var matcher = Pattern.compile(quoted).matcher(content);
+        int occurrences = 0;
+        while (matcher.find()) {
+            occurrences++;
+        }
+        return (occurrences == 1) ? content.replaceFirst(quoted, "TAIL") : null;
+    }
+}
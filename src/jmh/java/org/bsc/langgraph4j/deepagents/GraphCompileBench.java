@@ -0,0 +1,45 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.bsc.langgraph4j.CompiledGraph;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.chat.model.ChatModel;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full {@code DeepAgent.builder()...build().compile()} cycle. The chat model is never called.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GraphCompileBench {
+
+    private final ChatModel chatModel = prompt -> {
+        throw new UnsupportedOperationException("offline benchmark");
+    };
+
+    private final List<DeepAgent.SubAgent> subAgents = List.of(
+            DeepAgent.SubAgent.builder()
+                    .name("research-agent")
+                    .description("Used to research more in depth questions")
+                    .prompt("You are a dedicated researcher.")
+                    .build(),
+            DeepAgent.SubAgent.builder()
+                    .name("critique-agent")
+                    .description("Used to critique the final report")
+                    .prompt("You are a dedicated editor.")
+                    .build());
+
+    @Benchmark
+    public CompiledGraph<DeepAgent.State> buildAndCompile() throws Exception {
+        return DeepAgent.builder()
+                .instructions("You are an expert researcher.")
+                .subAgents(subAgents)
+                .chatModel(chatModel)
+                .build()
+                .compile();
+    }
+}
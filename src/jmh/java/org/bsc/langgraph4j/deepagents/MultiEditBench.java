@@ -0,0 +1,67 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code multi_edit} (single pass) against N sequential {@code edit_file} on contents from 1 MB to 10 MB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class MultiEditBench {
+
+    @Param({"1048576", "10485760"})
+    int contentSize;
+
+    @Param({"5", "20"})
+    int edits;
+
+    private static final String LINE = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor.\n";
+
+    private String content;
+    private List<TextEdit.Edit> editList;
+
+    @Setup
+    public void setup() {
+        final var sb = new StringBuilder(contentSize + 1024);
+        // one unique section title every contentSize / edits chars
+        final int sectionSize = contentSize / edits;
+        int section = 0;
+        while (sb.length() < contentSize) {
+            if (sb.length() >= section * sectionSize && section < edits) {
+                sb.append("## Section ").append(section++).append(" draft\n");
+            }
+            sb.append(LINE);
+        }
+        content = sb.toString();
+
+        editList = new ArrayList<>(edits);
+        for (int i = 0; i < edits; ++i) {
+            editList.add(new TextEdit.Edit("## Section " + i + " draft\n", "## Section " + i + "\n", false));
+        }
+    }
+
+    @Benchmark
+    public TextEdit.MultiResult multiEdit() {
+        return TextEdit.replace(content, editList);
+    }
+
+    /**
+     * Same edits as N {@code edit_file} calls, each one rebuilding the whole content
+     */
+    @Benchmark
+    public String sequentialEdits() {
+        var result = content;
+        for (var edit : editList) {
+            result = TextEdit.replace(result, edit.oldString(), edit.newString(), edit.replaceAll()).content();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,65 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Last 64 KB of a content from 10 MB to 100 MB: range read against full read, on the directory and mapped stores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class ReadRangeBench {
+
+    @Param({"10485760", "104857600"})
+    int contentSize;
+
+    @Param({"directory", "mapped"})
+    String storeType;
+
+    private static final String LINE = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor.\n";
+    private static final int CHUNK_LENGTH = 65_536;
+
+    private Path root;
+    private FileStore store;
+    private String ref;
+
+    @Setup
+    public void setup() throws IOException {
+        root = Files.createTempDirectory("read-range-bench");
+        store = storeType.equals("mapped") ? FileStore.mapped(root) : FileStore.directory(root);
+        ref = store.write("data.txt", LINE.repeat(contentSize / LINE.length()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (var paths = Files.walk(root)) {
+            for (var path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public FileStore.Chunk readLastChunkBytes() {
+        return store.readRange("data.txt", ref, FileStore.RangeUnit.BYTES, contentSize - CHUNK_LENGTH, CHUNK_LENGTH)
+                .orElseThrow();
+    }
+
+    /**
+     * Same chunk resolving the whole content, as the default {@link FileStore#readRange} does
+     */
+    @Benchmark
+    public FileStore.Chunk readLastChunkFullContent() {
+        final var content = store.read("data.txt", ref).orElseThrow();
+        return ContentRange.bytes(content, contentSize - CHUNK_LENGTH, CHUNK_LENGTH);
+    }
+}
@@ -0,0 +1,67 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.bsc.langgraph4j.spring.ai.serializer.jackson.SpringAIJacksonStateSerializer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SpringAIJacksonStateSerializer} round-trip of a {@link DeepAgent.State}, with files stored inline
+ * or as content-addressed references.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class StateSerializerBench {
+
+    @Param({"10", "100"})
+    int files;
+
+    @Param({"inline", "contentAddressed"})
+    String fileStore;
+
+    private final SpringAIJacksonStateSerializer<DeepAgent.State> serializer =
+            new SpringAIJacksonStateSerializer<>(DeepAgent.State::new);
+
+    private DeepAgent.State state;
+
+    @Setup
+    public void setup() {
+        final var store = "inline".equals(fileStore) ? FileStore.inline() : FileStore.contentAddressed();
+        final var content = "Lorem ipsum dolor sit amet, consectetur adipiscing elit.\n".repeat(200);
+
+        final var filesMap = new HashMap<String, String>();
+        for (int i = 0; i < files; ++i) {
+            final var path = "notes/note" + i + ".md";
+            filesMap.put(path, store.write(path, content + i));
+        }
+
+        state = new DeepAgent.State(Map.of(
+                "messages", List.of(new UserMessage("What is langgraph4j project?"),
+                        new AssistantMessage("LangGraph4j is a library for building stateful, multi-agents applications")),
+                "todos", List.of(new DeepAgent.ToDo("research", DeepAgent.ToDo.Status.IN_PROGRESS)),
+                "files", PersistentMap.from(filesMap)));
+    }
+
+    @Benchmark
+    public DeepAgent.State roundTrip() throws Exception {
+        final var bytes = new ByteArrayOutputStream();
+        try (var out = new ObjectOutputStream(bytes)) {
+            serializer.write(state, out);
+        }
+        try (var in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return serializer.read(in);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.bsc.langgraph4j.deepagents;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events emitted by the deep agent.
+ * <p>
+ * The events are disabled by default and cost almost nothing until a recording enables them, e.g.
+ * {@code jcmd <pid> JFR.start settings=profile} or {@code -XX:StartFlightRecording}. All the events are in the
+ * {@code LangGraph4j / DeepAgents} category.
+ */
+final class AgentEvents {
+
+    static final String CATEGORY = "LangGraph4j";
+    static final String SUB_CATEGORY = "DeepAgents";
+
+    private AgentEvents() {}
+
+    @Name("org.bsc.langgraph4j.deepagents.ToolInvocation")
+    @Label("Tool Invocation")
+    @Description("Call of a tool by the main agent or by a sub-agent")
+    @Category({CATEGORY, SUB_CATEGORY})
+    @StackTrace(false)
+    static class ToolInvocation extends Event {
+
+        @Label("Agent")
+        String agent;
+
+        @Label("Tool")
+        String tool;
+
+        @Label("Arguments Size")
+        @DataAmount
+        long argumentsBytes;
+
+        @Label("Result Size")
+        @DataAmount
+        long resultBytes;
+
+        @Label("Error")
+        boolean error;
+    }
+
+    @Name("org.bsc.langgraph4j.deepagents.SubAgentStart")
+    @Label("Sub-agent Start")
+    @Description("Start of a sub-agent run requested by the task tool")
+    @Category({CATEGORY, SUB_CATEGORY})
+    @StackTrace(false)
+    static class SubAgentStart extends Event {
+
+        @Label("Sub-agent")
+        String subAgent;
+
+        @Label("Task Description")
+        String description;
+    }
+
+    @Name("org.bsc.langgraph4j.deepagents.SubAgentEnd")
+    @Label("Sub-agent End")
+    @Description("End of a sub-agent run, the event duration is the run duration")
+    @Category({CATEGORY, SUB_CATEGORY})
+    @StackTrace(false)
+    static class SubAgentEnd extends Event {
+
+        @Label("Sub-agent")
+        String subAgent;
+
+        @Label("Changed Files")
+        int changedFiles;
+
+        @Label("Error")
+        boolean error;
+
+        @Label("Cached")
+        @Description("The result has been replayed from the task result cache, the sub-agent didn't run")
+        boolean cached;
+    }
+
+    @Name("org.bsc.langgraph4j.deepagents.FilesReduce")
+    @Label("Files Reduce")
+    @Description("Merge of a files update into the files channel")
+    @Category({CATEGORY, SUB_CATEGORY})
+    @StackTrace(false)
+    static class FilesReduce extends Event {
+
+        @Label("Entries")
+        @Description("Number of files after the merge")
+        int entries;
+
+        @Label("Updated Entries")
+        int updatedEntries;
+
+        @Label("Updated Values Size")
+        @Description("Size of the updated values of the channel (UTF-16): the file contents with the inline store, "
+                + "their references with the other stores")
+        @DataAmount
+        long updatedValuesBytes;
+    }
+
+    @Name("org.bsc.langgraph4j.deepagents.StateSerialization")
+    @Label("State Serialization")
+    @Description("Serialization or deserialization of the agent state")
+    @Category({CATEGORY, SUB_CATEGORY})
+    @StackTrace(false)
+    static class StateSerialization extends Event {
+
+        @Label("Operation")
+        String operation;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+    }
+}
@@ -0,0 +1,55 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.springframework.ai.chat.model.ChatResponse;
+
+/**
+ * Metrics recorded by the deep agent: tool calls, sub-agent tasks and model calls.
+ * <p>
+ * The default {@link #NOOP} implementation is disabled: tools and models are not even decorated,
+ * so it adds neither time nor allocation.
+ */
+interface AgentMetrics {
+
+    AgentMetrics NOOP = new AgentMetrics() {};
+
+    /**
+     * Agent tag value of the main agent
+     */
+    String MAIN_AGENT = "main";
+
+    default boolean enabled() {
+        return false;
+    }
+
+    /**
+     * @param agent      the agent (main or sub-agent name) that called the tool
+     * @param tool       the tool name
+     * @param nanos      the call duration
+     * @param error      true if the call failed or returned an error message
+     * @param inputSize  the size (chars) of the tool arguments
+     * @param outputSize the size (chars) of the tool result
+     */
+    default void recordToolCall(String agent, String tool, long nanos, boolean error, int inputSize, int outputSize) {}
+
+    /**
+     * @param subAgent the sub-agent name
+     * @param nanos    the sub-agent run duration
+     * @param error    true if the run failed
+     */
+    default void recordTask(String subAgent, long nanos, boolean error) {}
+
+    /**
+     * @param subAgent the sub-agent name
+     * @param nanos    the duration of the cache lookup and of the replay of the cached result
+     */
+    default void recordTaskCacheHit(String subAgent, long nanos) {}
+
+    /**
+     * @param agent    the agent (main or sub-agent name) that called the model
+     * @param nanos    the call duration
+     * @param error    true if the call failed
+     * @param response the model response, {@code null} on error
+     */
+    default void recordModelCall(String agent, long nanos, boolean error, ChatResponse response) {}
+
+}
@@ -0,0 +1,72 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.bsc.langgraph4j.CompileConfig;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.tool.ToolCallback;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * Tracing of the deep agent: graph nodes, tool calls, model calls and sub-agent runs.
+ * <p>
+ * The default {@link #NOOP} implementation is disabled: tools, models, executors and compile configs are returned
+ * as they are. Keeping the tracing API types out of this interface lets the tracing library be an optional
+ * dependency.
+ */
+interface AgentTracing {
+
+    AgentTracing NOOP = new AgentTracing() {};
+
+    default boolean enabled() {
+        return false;
+    }
+
+    /**
+     * @param tools the tools
+     * @param agent the agent (main or sub-agent name) using the tools
+     * @return the tools creating a span for each call
+     */
+    default List<ToolCallback> tools(List<ToolCallback> tools, String agent) {
+        return tools;
+    }
+
+    /**
+     * @param model the chat model
+     * @param agent the agent (main or sub-agent name) using the model
+     * @return the model creating a span for each call
+     */
+    default ChatModel chatModel(ChatModel model, String agent) {
+        return model;
+    }
+
+    /**
+     * @param executor the executor running the sub-agents
+     * @return the executor propagating the current trace context to the submitted tasks
+     */
+    default Executor executor(Executor executor) {
+        return executor;
+    }
+
+    /**
+     * @param config the sub-agent compile config, may be {@code null}
+     * @param agent  the sub-agent name
+     * @return the compile config creating a span for each graph node, may be {@code null}
+     */
+    default CompileConfig compileConfig(CompileConfig config, String agent) {
+        return config;
+    }
+
+    /**
+     * Runs a sub-agent inside its own span, child of the current one
+     *
+     * @param subAgent    the sub-agent name
+     * @param description the task description
+     * @param run         the sub-agent run
+     */
+    default <T> T subAgentRun(String subAgent, String description, Callable<T> run) throws Exception {
+        return run.call();
+    }
+
+}
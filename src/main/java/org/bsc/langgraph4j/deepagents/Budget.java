@@ -0,0 +1,210 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.springframework.ai.chat.model.ChatResponse;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Budget of a deep agent session: max tokens, max model calls and max wall-clock time.
+ * <p>
+ * A budget is attached to the graph with {@link GraphBuilder#budget(Budget)} or, one per run, with
+ * {@link GraphBuilder#budget(java.util.function.Supplier)}; the main agent and all its sub-agents draw from it.
+ * The wall-clock time is measured from the first model call.
+ * When the budget is exhausted the run is not failed: each agent still calling the model gets a forced final-answer
+ * turn (with no tools available) and, once the {@link Builder#finalAnswerTurns(int)} are used, a synthetic
+ * answer that ends its loop without calling the model at all.
+ * <p>
+ * A budget instance keeps the usage, so it is meant to be used by a single session or run.
+ */
+public final class Budget {
+
+    public static class Builder {
+        private long maxTokens = Long.MAX_VALUE;
+        private int maxModelCalls = Integer.MAX_VALUE;
+        private Duration maxDuration;
+        private int finalAnswerTurns = 2;
+
+        /**
+         * Max number of tokens (prompt and completion) used by all the model calls
+         */
+        public Builder maxTokens(long maxTokens) {
+            if (maxTokens < 0) {
+                throw new IllegalArgumentException("maxTokens cannot be negative");
+            }
+            this.maxTokens = maxTokens;
+            return this;
+        }
+
+        /**
+         * Max number of model calls, forced final-answer turns excluded
+         */
+        public Builder maxModelCalls(int maxModelCalls) {
+            if (maxModelCalls < 0) {
+                throw new IllegalArgumentException("maxModelCalls cannot be negative");
+            }
+            this.maxModelCalls = maxModelCalls;
+            return this;
+        }
+
+        /**
+         * Max wall-clock time, measured from the first model call
+         */
+        public Builder maxDuration(Duration maxDuration) {
+            this.maxDuration = requireNonNull(maxDuration, "maxDuration cannot be null");
+            return this;
+        }
+
+        /**
+         * Number of model calls allowed, after the budget is exhausted, to let the running agents give their final
+         * answer. Default is 2: one for an in-flight sub-agent and one for the main agent
+         */
+        public Builder finalAnswerTurns(int finalAnswerTurns) {
+            if (finalAnswerTurns < 0) {
+                throw new IllegalArgumentException("finalAnswerTurns cannot be negative");
+            }
+            this.finalAnswerTurns = finalAnswerTurns;
+            return this;
+        }
+
+        public Budget build() {
+            return new Budget(this);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final long maxTokens;
+    private final int maxModelCalls;
+    private final long maxNanos;
+    private final int finalAnswerTurns;
+
+    private final AtomicLong tokens = new AtomicLong();
+    private final AtomicInteger modelCalls = new AtomicInteger();
+    private final AtomicInteger usedFinalAnswerTurns = new AtomicInteger();
+    private volatile long startNanos;
+    private volatile boolean started;
+
+    private Budget(Builder builder) {
+        this.maxTokens = builder.maxTokens;
+        this.maxModelCalls = builder.maxModelCalls;
+        this.maxNanos = (builder.maxDuration != null) ? builder.maxDuration.toNanos() : Long.MAX_VALUE;
+        this.finalAnswerTurns = builder.finalAnswerTurns;
+    }
+
+    /**
+     * @return the tokens used so far
+     */
+    public long tokens() {
+        return tokens.get();
+    }
+
+    /**
+     * @return the model calls performed so far, forced final-answer turns included
+     */
+    public int modelCalls() {
+        return modelCalls.get();
+    }
+
+    /**
+     * @return the time elapsed from the first model call
+     */
+    public Duration elapsed() {
+        return started ? Duration.ofNanos(System.nanoTime() - startNanos) : Duration.ZERO;
+    }
+
+    /**
+     * @return the exhausted limit, empty if the budget is not exhausted
+     */
+    public Optional<String> exhausted() {
+        if (tokens.get() >= maxTokens) {
+            return Optional.of(format("max tokens %d", maxTokens));
+        }
+        if (modelCalls.get() - usedFinalAnswerTurns.get() >= maxModelCalls) {
+            return Optional.of(format("max model calls %d", maxModelCalls));
+        }
+        if (started && System.nanoTime() - startNanos >= maxNanos) {
+            return Optional.of(format("max duration %s", Duration.ofNanos(maxNanos)));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Starts the wall-clock, if not started yet
+     */
+    void start() {
+        if (!started) {
+            synchronized (this) {
+                if (!started) {
+                    startNanos = System.nanoTime();
+                    started = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Tries to reserve a model call, checking the budget
+     *
+     * @return true if the call is within the budget
+     */
+    boolean tryAcquireModelCall() {
+        start();
+        if (exhausted().isPresent()) {
+            return false;
+        }
+        // concurrent (parallel sub-agents) calls may pass the check together
+        if (modelCalls.incrementAndGet() - usedFinalAnswerTurns.get() > maxModelCalls) {
+            modelCalls.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Tries to reserve a forced final-answer turn
+     *
+     * @return true if a final-answer turn is available
+     */
+    boolean tryAcquireFinalAnswerTurn() {
+        while (true) {
+            final var used = usedFinalAnswerTurns.get();
+            if (used >= finalAnswerTurns) {
+                return false;
+            }
+            if (usedFinalAnswerTurns.compareAndSet(used, used + 1)) {
+                modelCalls.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Records the tokens used by a model call
+     */
+    void record(ChatResponse response) {
+        if (response == null || response.getMetadata() == null || response.getMetadata().getUsage() == null) {
+            return;
+        }
+        final var usage = response.getMetadata().getUsage();
+        final var total = usage.getTotalTokens();
+        if (total != null) {
+            tokens.addAndGet(total);
+        } else {
+            tokens.addAndGet((usage.getPromptTokens() != null ? usage.getPromptTokens() : 0) +
+                    (usage.getCompletionTokens() != null ? usage.getCompletionTokens() : 0));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return format("Budget{tokens=%d, modelCalls=%d, elapsed=%s}", tokens(), modelCalls(), elapsed());
+    }
+}
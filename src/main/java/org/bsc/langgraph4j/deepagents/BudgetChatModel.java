@@ -0,0 +1,174 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link ChatModel} decorator that enforces a {@link Budget}.
+ * <p>
+ * The budget is the one of the current run (see {@link BudgetScope}): the model of the main agent starts a new one
+ * when called with the user input, that is the first model call of a run, and releases it when it answers without
+ * tool calls or fails, that is the end of the run.
+ * <p>
+ * Within the budget the calls are delegated as they are and their usage is recorded. Once the budget is
+ * exhausted a call becomes a forced final-answer turn (the tools are removed from the prompt options and the
+ * tool calls, if any, are dropped from the response) or, when no final-answer turn is left, a synthetic answer.
+ * Either way the response has no tool calls, so the agent loop ends.
+ */
+class BudgetChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final BudgetScope scope;
+    private final boolean mainAgent;
+
+    private BudgetChatModel(ChatModel delegate, BudgetScope scope, boolean mainAgent) {
+        this.delegate = requireNonNull(delegate, "delegate cannot be null");
+        this.scope = requireNonNull(scope, "scope cannot be null");
+        this.mainAgent = mainAgent;
+    }
+
+    /**
+     * Decorates the given model, if a budget scope is given
+     *
+     * @param model     the chat model
+     * @param scope     the budget scope, may be {@code null}
+     * @param mainAgent true if the model is the one of the main agent, that starts the budget of each run
+     * @return the (decorated) model
+     */
+    static ChatModel of(ChatModel model, BudgetScope scope, boolean mainAgent) {
+        return (scope != null) ? new BudgetChatModel(model, scope, mainAgent) : model;
+    }
+
+    private Budget budget(Prompt prompt) {
+        final var messages = prompt.getInstructions();
+        if (mainAgent && !messages.isEmpty() && messages.get(messages.size() - 1) instanceof UserMessage) {
+            return scope.start();
+        }
+        return scope.current();
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        final var budget = budget(prompt);
+        if (!mainAgent) {
+            return call(prompt, budget);
+        }
+        final var unbind = scope.unbind();
+        boolean ended = true;
+        try {
+            final var response = call(prompt, budget);
+            ended = (response == null || !response.hasToolCalls());
+            return response;
+        } finally {
+            if (ended) {
+                unbind.run();
+            }
+        }
+    }
+
+    private ChatResponse call(Prompt prompt, Budget budget) {
+        if (budget.tryAcquireModelCall()) {
+            final var response = delegate.call(prompt);
+            budget.record(response);
+            return response;
+        }
+        final var reason = budget.exhausted().orElse("max model calls");
+        if (budget.tryAcquireFinalAnswerTurn()) {
+            final var response = delegate.call(finalAnswerPrompt(prompt, reason));
+            budget.record(response);
+            return withoutToolCalls(response);
+        }
+        return exhaustedResponse(reason);
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        // resolved on the calling thread, the one the run budget is bound to
+        final var budget = budget(prompt);
+        final var response = Flux.defer(() -> {
+            if (budget.tryAcquireModelCall()) {
+                return delegate.stream(prompt).doOnNext(budget::record);
+            }
+            final var reason = budget.exhausted().orElse("max model calls");
+            if (budget.tryAcquireFinalAnswerTurn()) {
+                return delegate.stream(finalAnswerPrompt(prompt, reason))
+                        .doOnNext(budget::record)
+                        .map(BudgetChatModel::withoutToolCalls);
+            }
+            return Flux.just(exhaustedResponse(reason));
+        });
+        if (!mainAgent) {
+            return response;
+        }
+        final var unbind = scope.unbind();
+        final var toolCalls = new AtomicBoolean();
+        return response
+                .doOnNext(chunk -> {
+                    if (chunk != null && chunk.hasToolCalls()) {
+                        toolCalls.set(true);
+                    }
+                })
+                .doFinally(signal -> {
+                    if (!toolCalls.get()) {
+                        unbind.run();
+                    }
+                });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+
+    /**
+     * Same prompt, without tools and with the final-answer request appended
+     */
+    static Prompt finalAnswerPrompt(Prompt prompt, String reason) {
+        final var messages = new ArrayList<Message>(prompt.getInstructions());
+        messages.add(new UserMessage(format(Prompts.BUDGET_FINAL_ANSWER_PROMPT, reason)));
+
+        var options = prompt.getOptions();
+        if (options instanceof ToolCallingChatOptions toolCallingOptions) {
+            final ToolCallingChatOptions copy = toolCallingOptions.copy();
+            copy.setToolCallbacks(List.of());
+            copy.setToolNames(Set.of());
+            options = copy;
+        }
+        return new Prompt(messages, options);
+    }
+
+    private static ChatResponse withoutToolCalls(ChatResponse response) {
+        if (response == null || !response.hasToolCalls()) {
+            return response;
+        }
+        final var generations = response.getResults().stream()
+                .map(generation -> new Generation(
+                        new AssistantMessage(generation.getOutput().getText(), Map.of(), List.of()),
+                        generation.getMetadata()))
+                .toList();
+        return new ChatResponse(generations, response.getMetadata());
+    }
+
+    private static ChatResponse exhaustedResponse(String reason) {
+        final var message = new AssistantMessage(format(Prompts.BUDGET_EXHAUSTED_ANSWER, reason), Map.of(), List.of());
+        return new ChatResponse(List.of(new Generation(message)), ChatResponseMetadata.builder().build());
+    }
+}
@@ -0,0 +1,114 @@
+package org.bsc.langgraph4j.deepagents;
+
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Scope of the {@link Budget} of a run.
+ * <p>
+ * A run of the main agent starts a new budget, taken from the supplier, on its first model call; the nodes of a run
+ * are executed on the caller thread, so the budget is bound to it and seen by the following model calls of the
+ * run, the sequential sub-agents included. The parallel sub-agents get the budget of the launching thread through
+ * {@link #executor(Executor)}. The binding is cleared when the run ends (see {@link #unbind()}).
+ * <p>
+ * The model calls don't see the thread id of the run: a run resumed from a checkpoint after its end, or on another
+ * thread, restarts with a new budget.
+ */
+final class BudgetScope {
+
+    /**
+     * Budget bound to a thread, cleared by {@link #unbind()} from any thread
+     */
+    private static final class Binding {
+        volatile Budget budget;
+
+        Binding(Budget budget) {
+            this.budget = budget;
+        }
+    }
+
+    private final Supplier<Budget> budgets;
+    private final ThreadLocal<Binding> current = new ThreadLocal<>();
+
+    BudgetScope(Supplier<Budget> budgets) {
+        this.budgets = requireNonNull(budgets, "budgets cannot be null");
+    }
+
+    /**
+     * Starts the budget of a new run on the current thread
+     *
+     * @return the budget of the run
+     */
+    Budget start() {
+        final var result = requireNonNull(budgets.get(), "budget cannot be null");
+        current.set(new Binding(result));
+        return result;
+    }
+
+    /**
+     * @return the budget of the run bound to the current thread, {@code null} if none is bound
+     */
+    private Budget bound() {
+        final var binding = current.get();
+        return (binding != null) ? binding.budget : null;
+    }
+
+    /**
+     * @return the budget of the run bound to the current thread, a new one if none is bound
+     */
+    Budget current() {
+        final var result = bound();
+        return (result != null) ? result : start();
+    }
+
+    /**
+     * Captures the binding of the current thread, to clear it when the run ends: the returned action may run on
+     * another thread (e.g. at the end of a streamed response), the budget is released anyway.
+     *
+     * @return the action clearing the budget bound to the current thread
+     */
+    Runnable unbind() {
+        final var binding = current.get();
+        return () -> {
+            if (binding == null) {
+                return;
+            }
+            binding.budget = null;
+            if (current.get() == binding) {
+                current.remove();
+            }
+        };
+    }
+
+    /**
+     * @param executor the executor running the sub-agents, may be {@code null}
+     * @return the executor propagating the budget of the launching thread to the submitted tasks
+     */
+    Executor executor(Executor executor) {
+        if (executor == null) {
+            return null;
+        }
+        return task -> {
+            final var budget = bound();
+            executor.execute(() -> {
+                final var previous = current.get();
+                if (budget != null) {
+                    current.set(new Binding(budget));
+                } else {
+                    current.remove();
+                }
+                try {
+                    task.run();
+                } finally {
+                    if (previous != null) {
+                        current.set(previous);
+                    } else {
+                        current.remove();
+                    }
+                }
+            });
+        };
+    }
+}
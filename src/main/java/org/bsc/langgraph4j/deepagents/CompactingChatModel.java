@@ -0,0 +1,266 @@
+package org.bsc.langgraph4j.deepagents;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link ChatModel} decorator that compacts the prompt, see {@link Compaction}
+ */
+class CompactingChatModel implements ChatModel {
+
+    private static final Set<String> FILE_TOOLS = Set.of("read_file", "read_files", "read_file_chunk", "write_file", "write_files", "edit_file", "multi_edit");
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final ChatModel delegate;
+    private final Compaction compaction;
+
+    private CompactingChatModel(ChatModel delegate, Compaction compaction) {
+        this.delegate = requireNonNull(delegate, "delegate cannot be null");
+        this.compaction = requireNonNull(compaction, "compaction cannot be null");
+    }
+
+    /**
+     * Decorates the given model, if a compaction is given
+     *
+     * @param model      the chat model
+     * @param compaction the compaction settings, may be {@code null}
+     * @return the (decorated) model
+     */
+    static ChatModel of(ChatModel model, Compaction compaction) {
+        return (compaction != null) ? new CompactingChatModel(model, compaction) : model;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        return delegate.call(compact(prompt));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> delegate.stream(compact(prompt)));
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+
+    private static int size(Message message) {
+        int result = (message.getText() != null) ? message.getText().length() : 0;
+        if (message instanceof AssistantMessage assistant && assistant.hasToolCalls()) {
+            for (var call : assistant.getToolCalls()) {
+                result += call.arguments().length();
+            }
+        }
+        if (message instanceof ToolResponseMessage toolResponse) {
+            for (var response : toolResponse.getResponses()) {
+                result += (response.responseData() != null) ? response.responseData().length() : 0;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the compacted prompt, the same prompt if it is under the threshold
+     */
+    Prompt compact(Prompt prompt) {
+        final var messages = prompt.getInstructions();
+
+        int chars = 0;
+        for (var message : messages) {
+            chars += size(message);
+        }
+        if (Compaction.estimateTokens(chars) <= compaction.tokenThreshold()) {
+            return prompt;
+        }
+
+        // first message of the latest turns kept as they are
+        int keepFrom = messages.size();
+        for (int turns = 0; keepFrom > 0 && turns < compaction.keepLastTurns(); ) {
+            if (messages.get(--keepFrom) instanceof AssistantMessage) {
+                ++turns;
+            }
+        }
+
+        // latest write_todos call: the current todo list
+        String todosCallId = null;
+        for (int i = messages.size() - 1; i >= 0 && todosCallId == null; --i) {
+            if (messages.get(i) instanceof AssistantMessage assistant && assistant.hasToolCalls()) {
+                for (var call : assistant.getToolCalls()) {
+                    if ("write_todos".equals(call.name())) {
+                        todosCallId = call.id();
+                    }
+                }
+            }
+        }
+
+        final var calls = new HashMap<String, AssistantMessage.ToolCall>();
+        final var result = new ArrayList<Message>(messages.size());
+        boolean compacted = false;
+        for (int i = 0; i < messages.size(); ++i) {
+            final var message = messages.get(i);
+            if (message instanceof AssistantMessage assistant && assistant.hasToolCalls()) {
+                assistant.getToolCalls().forEach(call -> calls.put(call.id(), call));
+            }
+            if (i >= keepFrom) {
+                result.add(message);
+                continue;
+            }
+            final var compactedMessage = (message instanceof AssistantMessage assistant)
+                    ? compact(assistant, todosCallId)
+                    : (message instanceof ToolResponseMessage toolResponse)
+                        ? compact(toolResponse, calls, todosCallId)
+                        : message;
+            compacted |= compactedMessage != message;
+            result.add(compactedMessage);
+        }
+
+        if (!compacted) {
+            return prompt;
+        }
+        DeepAgent.log.debug("prompt compacted: {} messages, ~{} tokens", messages.size(), Compaction.estimateTokens(chars));
+        return new Prompt(result, prompt.getOptions());
+    }
+
+    private Message compact(AssistantMessage message, String todosCallId) {
+        if (!message.hasToolCalls()) {
+            return message;
+        }
+        boolean compacted = false;
+        final var toolCalls = new ArrayList<AssistantMessage.ToolCall>(message.getToolCalls().size());
+        for (var call : message.getToolCalls()) {
+            final var arguments = call.id().equals(todosCallId) ? call.arguments() : compactArguments(call.arguments());
+            compacted |= arguments != call.arguments();
+            toolCalls.add((arguments != call.arguments())
+                    ? new AssistantMessage.ToolCall(call.id(), call.type(), call.name(), arguments)
+                    : call);
+        }
+        return compacted ? new AssistantMessage(message.getText(), message.getMetadata(), toolCalls) : message;
+    }
+
+    /**
+     * Replaces the long string fields of the json arguments, also inside nested objects and arrays
+     *
+     * @return the compacted arguments, the same instance if there is nothing to compact
+     */
+    private String compactArguments(String arguments) {
+        if (arguments.length() <= compaction.maxArgumentLength()) {
+            return arguments;
+        }
+        try {
+            final var node = mapper.readTree(arguments);
+            if (!(node instanceof ObjectNode) || !compactFields(node)) {
+                return arguments;
+            }
+            return mapper.writeValueAsString(node);
+        } catch (JsonProcessingException e) {
+            return arguments;
+        }
+    }
+
+    private boolean compactFields(JsonNode node) {
+        boolean compacted = false;
+        if (node instanceof ObjectNode object) {
+            final var longFields = new ArrayList<String>();
+            object.fieldNames().forEachRemaining(name -> {
+                final var value = object.get(name);
+                if (value.isTextual() && value.textValue().length() > compaction.maxArgumentLength()) {
+                    longFields.add(name);
+                }
+            });
+            for (var name : longFields) {
+                object.put(name, format("[compacted: %d chars]", object.get(name).textValue().length()));
+            }
+            compacted = !longFields.isEmpty();
+            for (var value : object) {
+                compacted |= value.isContainerNode() && compactFields(value);
+            }
+        } else if (node instanceof ArrayNode array) {
+            for (int i = 0; i < array.size(); ++i) {
+                final var value = array.get(i);
+                if (value.isTextual() && value.textValue().length() > compaction.maxArgumentLength()) {
+                    array.set(i, format("[compacted: %d chars]", value.textValue().length()));
+                    compacted = true;
+                } else if (value.isContainerNode()) {
+                    compacted |= compactFields(value);
+                }
+            }
+        }
+        return compacted;
+    }
+
+    private Message compact(ToolResponseMessage message, Map<String, AssistantMessage.ToolCall> calls, String todosCallId) {
+        boolean compacted = false;
+        final var responses = new ArrayList<ToolResponseMessage.ToolResponse>(message.getResponses().size());
+        for (var response : message.getResponses()) {
+            final var data = response.responseData();
+            if (data == null || response.id().equals(todosCallId) || data.length() <= compaction.maxArgumentLength()) {
+                responses.add(response);
+                continue;
+            }
+            responses.add(new ToolResponseMessage.ToolResponse(response.id(), response.name(),
+                    stub(response.name(), data.length(), filePaths(calls.get(response.id())))));
+            compacted = true;
+        }
+        return compacted ? new ToolResponseMessage(responses, message.getMetadata()) : message;
+    }
+
+    /**
+     * @return the paths of the files handled by the given file tool call, empty if it is not a file tool call
+     */
+    private static List<String> filePaths(AssistantMessage.ToolCall call) {
+        if (call == null || !FILE_TOOLS.contains(call.name())) {
+            return List.of();
+        }
+        try {
+            final var arguments = mapper.readTree(call.arguments());
+            final var result = new ArrayList<String>();
+            addTextual(result, arguments.get("filePath"));
+            arguments.path("filePaths").forEach(path -> addTextual(result, path));
+            arguments.path("files").forEach(file -> addTextual(result, file.get("filePath")));
+            return result;
+        } catch (JsonProcessingException e) {
+            return List.of();
+        }
+    }
+
+    private static void addTextual(List<String> result, JsonNode value) {
+        if (value != null && value.isTextual()) {
+            result.add(value.textValue());
+        }
+    }
+
+    static String stub(String tool, int length, List<String> filePaths) {
+        if (filePaths.isEmpty()) {
+            return format("[compacted: output of '%s' (%d chars) removed]", tool, length);
+        }
+        if (filePaths.size() == 1) {
+            return format("[compacted: output of '%s' (%d chars) removed, the content is in file '%s', use read_file to read it again]",
+                    tool, length, filePaths.get(0));
+        }
+        return format("[compacted: output of '%s' (%d chars) removed, the contents are in files %s, use read_files to read them again]",
+                tool, length, filePaths.stream().map(path -> "'" + path + "'").collect(Collectors.joining(", ")));
+    }
+}
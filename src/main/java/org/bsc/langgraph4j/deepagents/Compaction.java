@@ -0,0 +1,89 @@
+package org.bsc.langgraph4j.deepagents;
+
+/**
+ * Settings of the context-window compaction applied to each model call.
+ * <p>
+ * When the estimated size of a prompt exceeds {@link Builder#tokenThreshold(int)} the older tool outputs and the
+ * large arguments of the older tool calls are replaced by short stubs. The system messages, the user messages,
+ * the latest {@link Builder#keepLastTurns(int)} assistant turns and the latest {@code write_todos} call (the todo
+ * list) are always kept as they are. The stubs of the file tools point to the {@code files} entry, so the agent can
+ * read it again. The state is not modified: only the prompt sent to the model is compacted.
+ */
+public final class Compaction {
+
+    public static class Builder {
+        private int tokenThreshold = 32_000;
+        private int keepLastTurns = 3;
+        private int maxArgumentLength = 256;
+
+        /**
+         * Estimated prompt size (4 chars per token) over which the prompt is compacted. Default is 32000
+         */
+        public Builder tokenThreshold(int tokenThreshold) {
+            if (tokenThreshold < 0) {
+                throw new IllegalArgumentException("tokenThreshold cannot be negative");
+            }
+            this.tokenThreshold = tokenThreshold;
+            return this;
+        }
+
+        /**
+         * Number of latest assistant turns (with their tool outputs) never compacted. Default is 3
+         */
+        public Builder keepLastTurns(int keepLastTurns) {
+            if (keepLastTurns < 0) {
+                throw new IllegalArgumentException("keepLastTurns cannot be negative");
+            }
+            this.keepLastTurns = keepLastTurns;
+            return this;
+        }
+
+        /**
+         * Tool call string arguments longer than this are replaced by a stub in the compacted turns. Default is 256
+         */
+        public Builder maxArgumentLength(int maxArgumentLength) {
+            if (maxArgumentLength < 0) {
+                throw new IllegalArgumentException("maxArgumentLength cannot be negative");
+            }
+            this.maxArgumentLength = maxArgumentLength;
+            return this;
+        }
+
+        public Compaction build() {
+            return new Compaction(this);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final int tokenThreshold;
+    private final int keepLastTurns;
+    private final int maxArgumentLength;
+
+    private Compaction(Builder builder) {
+        this.tokenThreshold = builder.tokenThreshold;
+        this.keepLastTurns = builder.keepLastTurns;
+        this.maxArgumentLength = builder.maxArgumentLength;
+    }
+
+    public int tokenThreshold() {
+        return tokenThreshold;
+    }
+
+    public int keepLastTurns() {
+        return keepLastTurns;
+    }
+
+    public int maxArgumentLength() {
+        return maxArgumentLength;
+    }
+
+    /**
+     * Rough token estimation (4 chars per token)
+     */
+    static int estimateTokens(int chars) {
+        return (chars + 3) / 4;
+    }
+}
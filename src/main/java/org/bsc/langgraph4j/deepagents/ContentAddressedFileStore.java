@@ -0,0 +1,256 @@
+package org.bsc.langgraph4j.deepagents;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link FileStore} that stores each distinct content once, as a blob addressed by its SHA-256 hash.
+ * <p>
+ * References have the form {@code sha256:<hex>}: the state (and so each checkpoint) only carries the
+ * {@code path -> hash} map, unchanged files cost nothing per step and identical contents, even if written
+ * on different paths or by different sub-agents, are stored once.
+ * <p>
+ * The range reads are delegated to the blobs: the ones stored in a directory read only the requested range.
+ */
+class ContentAddressedFileStore implements FileStore {
+
+    static final String PREFIX = "sha256:";
+
+    /**
+     * Backend of the blobs
+     */
+    interface Blobs {
+
+        boolean contains(String hash);
+
+        void put(String hash, String content);
+
+        Optional<String> get(String hash);
+
+        /**
+         * Reads a range of a blob, see {@link FileStore#readRange(String, String, RangeUnit, long, int)}.
+         * The default implementation resolves the whole blob.
+         */
+        default Optional<Chunk> readRange(String hash, RangeUnit unit, long offset, int length) {
+            return get(hash).map(content -> switch (unit) {
+                case CHARS -> ContentRange.chars(content, offset, length);
+                case BYTES -> ContentRange.bytes(content, offset, length);
+            });
+        }
+
+        /**
+         * @return true if {@link #readRange(String, RangeUnit, long, int)} reads only the requested range
+         */
+        default boolean supportsRangeReads() {
+            return false;
+        }
+
+        /**
+         * Removes the blobs whose hash is not in the given set
+         *
+         * @return the number of removed blobs
+         */
+        int retain(Set<String> hashes);
+    }
+
+    private final Blobs blobs;
+
+    ContentAddressedFileStore(Blobs blobs) {
+        this.blobs = requireNonNull(blobs, "blobs cannot be null");
+    }
+
+    static String hash(String content) {
+        try {
+            final var digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String write(String path, String content) {
+        requireNonNull(content, "content cannot be null");
+
+        final var hash = hash(content);
+        if (!blobs.contains(hash)) {
+            blobs.put(hash, content);
+        }
+        return PREFIX + hash;
+    }
+
+    @Override
+    public Optional<String> read(String path, String ref) {
+        if (ref == null || !ref.startsWith(PREFIX)) {
+            return Optional.empty();
+        }
+        return blobs.get(ref.substring(PREFIX.length()));
+    }
+
+    @Override
+    public Optional<Chunk> readRange(String path, String ref, RangeUnit unit, long offset, int length) {
+        ContentRange.check(offset, length);
+        requireNonNull(unit, "unit cannot be null");
+        if (ref == null || !ref.startsWith(PREFIX)) {
+            return Optional.empty();
+        }
+        return blobs.readRange(ref.substring(PREFIX.length()), unit, offset, length);
+    }
+
+    @Override
+    public boolean supportsRangeReads() {
+        return blobs.supportsRangeReads();
+    }
+
+    @Override
+    public int retain(Collection<String> liveRefs) {
+        final var hashes = new HashSet<String>();
+        for (var ref : requireNonNull(liveRefs, "liveRefs cannot be null")) {
+            if (ref != null && ref.startsWith(PREFIX)) {
+                hashes.add(ref.substring(PREFIX.length()));
+            }
+        }
+        return blobs.retain(hashes);
+    }
+
+    /**
+     * Blobs kept in memory
+     */
+    static class InMemoryBlobs implements Blobs {
+        private final Map<String, String> blobs = new ConcurrentHashMap<>();
+
+        @Override
+        public boolean contains(String hash) {
+            return blobs.containsKey(hash);
+        }
+
+        @Override
+        public void put(String hash, String content) {
+            blobs.putIfAbsent(hash, content);
+        }
+
+        @Override
+        public Optional<String> get(String hash) {
+            return Optional.ofNullable(blobs.get(hash));
+        }
+
+        @Override
+        public int retain(Set<String> hashes) {
+            final int size = blobs.size();
+            blobs.keySet().retainAll(hashes);
+            return size - blobs.size();
+        }
+    }
+
+    /**
+     * Blobs stored in a local directory as {@code <root>/<first 2 hex digits>/<hash>}
+     */
+    static class DirectoryBlobs implements Blobs {
+        private final Path root;
+
+        DirectoryBlobs(Path root) {
+            this.root = requireNonNull(root, "root cannot be null").toAbsolutePath().normalize();
+            try {
+                Files.createDirectories(this.root);
+            } catch (IOException e) {
+                throw new UncheckedIOException(format("cannot create directory '%s'", root), e);
+            }
+        }
+
+        private Path location(String hash) {
+            if (hash.length() < 3 || !hash.chars().allMatch(c -> Character.digit(c, 16) >= 0)) {
+                throw new IllegalArgumentException(format("invalid hash '%s'", hash));
+            }
+            return root.resolve(hash.substring(0, 2)).resolve(hash);
+        }
+
+        @Override
+        public boolean contains(String hash) {
+            return Files.exists(location(hash));
+        }
+
+        @Override
+        public void put(String hash, String content) {
+            final var target = location(hash);
+            try {
+                Files.createDirectories(target.getParent());
+                final var temp = Files.createTempFile(target.getParent(), ".", ".tmp");
+                Files.writeString(temp, content, StandardCharsets.UTF_8);
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // same content written concurrently
+                    Files.deleteIfExists(temp);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(format("cannot write blob '%s'", hash), e);
+            }
+        }
+
+        @Override
+        public Optional<String> get(String hash) {
+            try {
+                return Optional.of(Files.readString(location(hash), StandardCharsets.UTF_8));
+            } catch (NoSuchFileException e) {
+                return Optional.empty();
+            } catch (IOException e) {
+                throw new UncheckedIOException(format("cannot read blob '%s'", hash), e);
+            }
+        }
+
+        @Override
+        public Optional<Chunk> readRange(String hash, RangeUnit unit, long offset, int length) {
+            final var location = location(hash);
+            try {
+                return Optional.of(switch (unit) {
+                    case BYTES -> ContentRange.bytes(location, offset, length);
+                    case CHARS -> ContentRange.chars(location, offset, length);
+                });
+            } catch (NoSuchFileException e) {
+                return Optional.empty();
+            } catch (IOException e) {
+                throw new UncheckedIOException(format("cannot read blob '%s'", hash), e);
+            }
+        }
+
+        @Override
+        public boolean supportsRangeReads() {
+            return true;
+        }
+
+        @Override
+        public int retain(Set<String> hashes) {
+            try (var locations = Files.walk(root)) {
+                int removed = 0;
+                for (var location : locations.filter(Files::isRegularFile).toList()) {
+                    final var name = location.getFileName().toString();
+                    // skip the temporary files being written
+                    if (!name.startsWith(".") && !hashes.contains(name) && Files.deleteIfExists(location)) {
+                        ++removed;
+                    }
+                }
+                return removed;
+            } catch (IOException e) {
+                throw new UncheckedIOException(format("cannot clean directory '%s'", root), e);
+            }
+        }
+    }
+}
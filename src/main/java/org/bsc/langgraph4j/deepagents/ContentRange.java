@@ -0,0 +1,213 @@
+package org.bsc.langgraph4j.deepagents;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Range reads of a content, see {@link FileStore#readRange(String, String, FileStore.RangeUnit, long, int)}.
+ * <p>
+ * Byte ranges are aligned to the UTF-8 character boundaries: a range never starts or ends in the middle of a
+ * multi-byte sequence.
+ */
+final class ContentRange {
+
+    private static final int SKIP_BUFFER_SIZE = 8192;
+
+    private ContentRange() {}
+
+    static void check(long offset, int length) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset cannot be negative");
+        }
+        if (length <= 0) {
+            throw new IllegalArgumentException("length must be positive");
+        }
+    }
+
+    /**
+     * Char range of a content already on-heap
+     */
+    static FileStore.Chunk chars(String content, long offset, int length) {
+        final int start = (int) Math.min(offset, content.length());
+        final int end = (int) Math.min((long) start + length, content.length());
+        return new FileStore.Chunk(content.substring(start, end), start, end, content.length());
+    }
+
+    /**
+     * Byte range of a content already on-heap. The byte offsets are found by walking the chars and summing their
+     * encoded length: the content is never encoded, the range is a substring.
+     */
+    static FileStore.Chunk bytes(String content, long offset, int length) {
+        final int n = content.length();
+        long position = 0;
+        int i = 0;
+        // first char starting at or after the offset
+        while (i < n && position < offset) {
+            position += utf8Length(content, i);
+            i += charCount(content, i);
+        }
+        final int from = i;
+        final long start = position;
+
+        // last char ending within the window, the offset being clamped to the content length
+        final long limit = Math.min(offset, start) + length;
+        while (i < n && position + utf8Length(content, i) <= limit) {
+            position += utf8Length(content, i);
+            i += charCount(content, i);
+        }
+        final int to = i;
+        final long end = position;
+
+        long total = position;
+        while (i < n) {
+            total += utf8Length(content, i);
+            i += charCount(content, i);
+        }
+        if (start > limit) {
+            // the window is inside a single char
+            final long clamped = Math.min(limit, total);
+            return new FileStore.Chunk("", clamped, clamped, total);
+        }
+        return new FileStore.Chunk(content.substring(from, to), start, end, total);
+    }
+
+    /**
+     * UTF-8 length of the char (or surrogate pair) at the given index, an unpaired surrogate is encoded as
+     * {@code '?'} as {@link String#getBytes} does
+     */
+    private static int utf8Length(String content, int i) {
+        final char c = content.charAt(i);
+        if (c < 0x80) {
+            return 1;
+        }
+        if (c < 0x800) {
+            return 2;
+        }
+        if (Character.isSurrogate(c)) {
+            return (charCount(content, i) == 2) ? 4 : 1;
+        }
+        return 3;
+    }
+
+    private static int charCount(String content, int i) {
+        return (Character.isHighSurrogate(content.charAt(i))
+                && i + 1 < content.length()
+                && Character.isLowSurrogate(content.charAt(i + 1))) ? 2 : 1;
+    }
+
+    /**
+     * Decodes a window of the UTF-8 content, aligned to the character boundaries
+     *
+     * @param window the window, from its position to its limit
+     * @param offset the offset of the window in the content
+     * @param total  the content length in bytes
+     */
+    static FileStore.Chunk bytes(ByteBuffer window, long offset, long total) {
+        int from = window.position();
+        int to = window.limit();
+
+        // skip the continuation bytes of a char started before the window
+        if (offset > 0) {
+            while (from < to && isContinuation(window.get(from))) {
+                ++from;
+            }
+        }
+        // leave out a char not completed in the window
+        if (offset + (to - window.position()) < total) {
+            for (int i = to - 1; i >= Math.max(from, to - 4); --i) {
+                final byte b = window.get(i);
+                if (!isContinuation(b)) {
+                    if (i + sequenceLength(b) > to) {
+                        to = i;
+                    }
+                    break;
+                }
+            }
+        }
+
+        final long start = offset + (from - window.position());
+        final long end = offset + (to - window.position());
+        final var text = StandardCharsets.UTF_8.decode(window.duplicate().limit(to).position(from)).toString();
+        return new FileStore.Chunk(text, start, end, total);
+    }
+
+    /**
+     * Byte range of a UTF-8 file, only the range is read
+     */
+    static FileStore.Chunk bytes(Path location, long offset, int length) throws IOException {
+        try (var channel = FileChannel.open(location, StandardOpenOption.READ)) {
+            final var size = channel.size();
+            final var start = Math.min(offset, size);
+            final var buffer = ByteBuffer.allocate((int) Math.min(length, size - start));
+            while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) >= 0) {
+                // read until the buffer is full
+            }
+            return bytes(buffer.flip(), start, size);
+        }
+    }
+
+    /**
+     * Char range of a UTF-8 file, decoded in a streaming fashion
+     */
+    static FileStore.Chunk chars(Path location, long offset, int length) throws IOException {
+        try (var reader = Files.newBufferedReader(location, StandardCharsets.UTF_8)) {
+            return chars(reader, offset, length);
+        }
+    }
+
+    /**
+     * Char range of a content read through the given reader, only the range is kept on-heap.
+     * The reader is consumed until the end to compute the content length.
+     */
+    static FileStore.Chunk chars(Reader reader, long offset, int length) throws IOException {
+        final var buffer = new char[SKIP_BUFFER_SIZE];
+        long position = 0;
+        while (position < offset) {
+            final int read = reader.read(buffer, 0, (int) Math.min(buffer.length, offset - position));
+            if (read < 0) {
+                return new FileStore.Chunk("", position, position, position);
+            }
+            position += read;
+        }
+
+        final var text = new StringBuilder(Math.min(length, SKIP_BUFFER_SIZE));
+        while (text.length() < length) {
+            final int read = reader.read(buffer, 0, Math.min(buffer.length, length - text.length()));
+            if (read < 0) {
+                break;
+            }
+            text.append(buffer, 0, read);
+        }
+        final long start = position;
+        final long end = start + text.length();
+
+        long total = end;
+        for (long read; (read = reader.read(buffer)) >= 0; ) {
+            total += read;
+        }
+        return new FileStore.Chunk(text.toString(), start, end, total);
+    }
+
+    private static boolean isContinuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    private static int sequenceLength(byte lead) {
+        if ((lead & 0x80) == 0) {
+            return 1;
+        }
+        if ((lead & 0xE0) == 0xC0) {
+            return 2;
+        }
+        if ((lead & 0xF0) == 0xE0) {
+            return 3;
+        }
+        return ((lead & 0xF8) == 0xF0) ? 4 : 1;
+    }
+}
@@ -2,6 +2,7 @@ package org.bsc.langgraph4j.deepagents;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import org.bsc.langgraph4j.CompileConfig;
 import org.bsc.langgraph4j.spring.ai.agentexecutor.AgentExecutor;
 import org.bsc.langgraph4j.state.Channel;
 
@@ -23,11 +24,22 @@ public interface DeepAgent {
                     .orElseGet( List::of );
         }
 
+        /**
+         * Returns the files as map of path to reference, see {@link FileStore}.
+         * Using the default {@link FileStore#inline()} the reference is the file content.
+         */
         public Map<String,String> files() {
             return this.<Map<String,String>>value( "files")
                     .orElseGet( Map::of );
         }
 
+        /**
+         * Returns the files as map of path to content, resolved through the given file store
+         */
+        public Map<String,String> files( FileStore fileStore ) {
+            return requireNonNull( fileStore, "fileStore cannot be null" ).readAll( files() );
+        }
+
         public State(Map<String, Object> initData) {
             super(initData);
         }
@@ -37,11 +49,39 @@ public interface DeepAgent {
             String name,
             String description,
             String prompt,
-            List<String> tools
+            List<String> tools,
+            CompileConfig compileConfig,
+            int maxConcurrency,
+            InputPolicy inputPolicy
     ) {
+        /**
+         * Which part of the parent state is passed to the sub-agent, together with the task description
+         */
+        public enum InputPolicy {
+            /** only the {@code files} (default) */
+            FILES,
+            /** the {@code files} and the {@code todos} */
+            FILES_AND_TODOS,
+            /** the whole parent context, including its message history */
+            FULL_CONTEXT
+        }
+
         public SubAgent {
             requireNonNull( name, "name cannot be null");
             requireNonNull( description, "description cannot be null");
+            if( inputPolicy == null ) {
+                inputPolicy = InputPolicy.FILES;
+            }
+            if( maxConcurrency < 0 ) {
+                throw new IllegalArgumentException("maxConcurrency cannot be negative");
+            }
+        }
+
+        /**
+         * Sub-agent with the default compile configuration, unbounded concurrency and {@link InputPolicy#FILES}
+         */
+        public SubAgent( String name, String description, String prompt, List<String> tools ) {
+            this( name, description, prompt, tools, null, 0, null );
         }
 
         public static Builder builder() {
@@ -54,6 +94,9 @@ public interface DeepAgent {
             private String description;
             private String prompt;
             private List<String> tools;
+            private CompileConfig compileConfig;
+            private int maxConcurrency;
+            private InputPolicy inputPolicy;
 
             public Builder name(String name) {
                 this.name = name;
@@ -75,8 +118,38 @@ public interface DeepAgent {
                 return this;
             }
 
+            /**
+             * Compile configuration used when the sub-agent graph is compiled (lazily, once) on its first use.
+             * If not set, the default {@link CompileConfig} is used.
+             * <p>
+             * Each {@code task} call runs on its own thread id, named after the sub-agent and the tool call id, so
+             * with a checkpoint saver the concurrent tasks (and sessions) never share a checkpoint thread. The thread
+             * is released in the saver when the run completes.
+             */
+            public Builder compileConfig(CompileConfig compileConfig) {
+                this.compileConfig = compileConfig;
+                return this;
+            }
+
+            /**
+             * Maximum number of instances of this sub-agent running at the same time when the
+             * {@code task} calls are executed in parallel. {@code 0} (default) means unbounded.
+             */
+            public Builder maxConcurrency(int maxConcurrency) {
+                this.maxConcurrency = maxConcurrency;
+                return this;
+            }
+
+            /**
+             * Which part of the parent state is passed to the sub-agent. Default is {@link InputPolicy#FILES}
+             */
+            public Builder inputPolicy(InputPolicy inputPolicy) {
+                this.inputPolicy = inputPolicy;
+                return this;
+            }
+
             public SubAgent build() {
-                return new SubAgent(name, description, prompt, tools);
+                return new SubAgent(name, description, prompt, tools, compileConfig, maxConcurrency, inputPolicy);
             }
 
         }
@@ -0,0 +1,177 @@
+package org.bsc.langgraph4j.deepagents;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link FileStore} that writes every version of a file in a local directory.
+ * <p>
+ * References have the form {@code path@instance.version} and are also the location of the content relative
+ * to the root directory. The instance part is random, so the stores sharing a root directory (e.g. other
+ * processes, or the same one restarted) never write the same reference; any reference is read, whatever the
+ * instance that wrote it.
+ * <p>
+ * The versions are kept on disk until released by {@link #retain(Collection)}, which only removes the versions
+ * written by this instance: the ones left by the previous instances on the same root must be removed otherwise.
+ * <p>
+ * Range reads only keep the requested range on-heap: byte ranges are read at their position, char ranges are
+ * decoded in a streaming fashion.
+ */
+class DirectoryFileStore implements FileStore {
+
+    protected final Path root;
+    // references must be unique across instances and restarts, since they may be restored by checkpoints
+    private final String instance = Long.toString(ThreadLocalRandom.current().nextLong(Long.MAX_VALUE), 36);
+    private final AtomicLong version = new AtomicLong();
+
+    DirectoryFileStore(Path root) {
+        this.root = requireNonNull(root, "root cannot be null").toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(this.root);
+        } catch (IOException e) {
+            throw new UncheckedIOException(format("cannot create directory '%s'", root), e);
+        }
+    }
+
+    /**
+     * Resolves a reference to its location, checking that it doesn't escape the root directory
+     */
+    protected Path resolve(String ref) {
+        final var relative = ref.startsWith("/") ? ref.substring(1) : ref;
+        final var result = root.resolve(relative).normalize();
+        if (!result.startsWith(root) || result.equals(root)) {
+            throw new IllegalArgumentException(format("invalid file reference '%s'", ref));
+        }
+        return result;
+    }
+
+    @Override
+    public String write(String path, String content) {
+        requireNonNull(path, "path cannot be null");
+        requireNonNull(content, "content cannot be null");
+
+        final var ref = path + '@' + instance + '.' + Long.toString(version.incrementAndGet(), 36);
+        final var target = resolve(ref);
+        try {
+            Files.createDirectories(target.getParent());
+            final var temp = Files.createTempFile(target.getParent(), ".", ".tmp");
+            Files.writeString(temp, content, StandardCharsets.UTF_8);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(format("cannot write file '%s'", path), e);
+        }
+        return ref;
+    }
+
+    @Override
+    public Optional<String> read(String path, String ref) {
+        if (ref == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(readContent(resolve(ref)));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(format("cannot read file '%s'", path), e);
+        }
+    }
+
+    @Override
+    public int retain(Collection<String> liveRefs) {
+        requireNonNull(liveRefs, "liveRefs cannot be null");
+        final long last = version.get();
+
+        final var live = new HashSet<Path>(liveRefs.size() * 2);
+        for (var ref : liveRefs) {
+            try {
+                live.add(resolve(ref));
+            } catch (IllegalArgumentException e) {
+                // not a reference of this store
+            }
+        }
+
+        try (var locations = Files.walk(root)) {
+            int removed = 0;
+            for (var location : locations.filter(Files::isRegularFile).toList()) {
+                if (!live.contains(location) && version(location) <= last && Files.deleteIfExists(location)) {
+                    ++removed;
+                }
+            }
+            return removed;
+        } catch (IOException e) {
+            throw new UncheckedIOException(format("cannot clean directory '%s'", root), e);
+        }
+    }
+
+    /**
+     * Version of the content at the given location, {@link Long#MAX_VALUE} if it is not a version written by this
+     * instance (e.g. a temporary file being written, or a version of another instance)
+     */
+    private long version(Path location) {
+        final var name = root.relativize(location).toString().replace(File.separatorChar, '/');
+        final int at = name.lastIndexOf('@');
+        if (at < 0 || name.substring(name.lastIndexOf('/') + 1).startsWith(".")) {
+            return Long.MAX_VALUE;
+        }
+        final var prefix = instance + '.';
+        if (!name.startsWith(prefix, at + 1)) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return Long.parseLong(name.substring(at + 1 + prefix.length()), 36);
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    protected String readContent(Path location) throws IOException {
+        return Files.readString(location, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Optional<Chunk> readRange(String path, String ref, RangeUnit unit, long offset, int length) {
+        ContentRange.check(offset, length);
+        requireNonNull(unit, "unit cannot be null");
+        if (ref == null) {
+            return Optional.empty();
+        }
+        final var location = resolve(ref);
+        try {
+            return Optional.of(switch (unit) {
+                case BYTES -> readBytes(location, offset, length);
+                case CHARS -> ContentRange.chars(location, offset, length);
+            });
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(format("cannot read file '%s'", path), e);
+        }
+    }
+
+    /**
+     * Reads a byte range of the given location
+     */
+    protected Chunk readBytes(Path location, long offset, int length) throws IOException {
+        return ContentRange.bytes(location, offset, length);
+    }
+
+    @Override
+    public boolean supportsRangeReads() {
+        return true;
+    }
+}
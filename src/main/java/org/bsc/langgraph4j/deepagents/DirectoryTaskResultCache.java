@@ -0,0 +1,137 @@
+package org.bsc.langgraph4j.deepagents;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link TaskResultCache} stored in a local directory: one {@code <key digest>.json} file per entry, written
+ * atomically (temp file and move).
+ */
+class DirectoryTaskResultCache implements TaskResultCache {
+
+    private static final String EXTENSION = ".json";
+
+    /**
+     * Stored entry, the key is kept to detect digest collisions
+     */
+    record Stored(String subAgent, String agentHash, String description, String inputHash, long createdAt,
+                  String text, Map<String, String> files) {}
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Path root;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LongSupplier currentMillis;
+
+    DirectoryTaskResultCache(Path root, int maxEntries, Duration ttl, LongSupplier currentMillis) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.root = requireNonNull(root, "root cannot be null").toAbsolutePath().normalize();
+        this.maxEntries = maxEntries;
+        this.ttlMillis = requireNonNull(ttl, "ttl cannot be null").toMillis();
+        this.currentMillis = requireNonNull(currentMillis, "currentMillis cannot be null");
+        try {
+            Files.createDirectories(this.root);
+        } catch (IOException e) {
+            throw new UncheckedIOException(format("cannot create directory '%s'", this.root), e);
+        }
+    }
+
+    private Path path(Key key) {
+        return root.resolve(key.digest() + EXTENSION);
+    }
+
+    @Override
+    public Optional<Entry> get(Key key) {
+        final var path = path(requireNonNull(key, "key cannot be null"));
+        final Stored stored;
+        try (var in = Files.newInputStream(path)) {
+            stored = mapper.readValue(in, Stored.class);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            DeepAgent.log.warn("cannot read cached task result '{}': {}", path, e.getMessage());
+            return Optional.empty();
+        }
+        if (stored.agentHash() == null
+                || !key.equals(new Key(stored.subAgent(), stored.agentHash(), stored.description(), stored.inputHash()))) {
+            return Optional.empty();
+        }
+        if (stored.createdAt() + ttlMillis <= currentMillis.getAsLong()) {
+            deleteQuietly(path);
+            return Optional.empty();
+        }
+        return Optional.of(new Entry(stored.text(), stored.files()));
+    }
+
+    @Override
+    public void put(Key key, Entry entry) {
+        requireNonNull(key, "key cannot be null");
+        requireNonNull(entry, "entry cannot be null");
+        final var stored = new Stored(key.subAgent(), key.agentHash(), key.description(), key.inputHash(),
+                currentMillis.getAsLong(), entry.text(), entry.files());
+        final var target = path(key);
+        try {
+            final var temp = Files.createTempFile(root, ".", ".tmp");
+            try {
+                mapper.writeValue(temp.toFile(), stored);
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                // left behind only if not moved
+                deleteQuietly(temp);
+            }
+            // the eviction order
+            Files.setLastModifiedTime(target, FileTime.fromMillis(stored.createdAt()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(format("cannot write cached task result '%s'", target), e);
+        }
+        evict();
+    }
+
+    /**
+     * Removes the oldest entries over the max size
+     */
+    private void evict() {
+        try (var files = Files.list(root)) {
+            final var entries = files
+                    .filter(path -> path.getFileName().toString().endsWith(EXTENSION))
+                    .sorted(Comparator.comparingLong(DirectoryTaskResultCache::lastModified).reversed())
+                    .toList();
+            entries.stream().skip(maxEntries).forEach(DirectoryTaskResultCache::deleteQuietly);
+        } catch (IOException e) {
+            DeepAgent.log.warn("cannot evict cached task results in '{}': {}", root, e.getMessage());
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            DeepAgent.log.warn("cannot delete cached task result '{}': {}", path, e.getMessage());
+        }
+    }
+}
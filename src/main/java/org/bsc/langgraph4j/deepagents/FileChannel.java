@@ -7,8 +7,14 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.function.Supplier;
 
-import static org.bsc.langgraph4j.utils.CollectionsUtils.mergeMap;
-
+/**
+ * Channel of the {@code files} mock filesystem.
+ * <p>
+ * The value is a {@link PersistentMap} so each update shares the unchanged entries with the previous
+ * version instead of copying the whole map.
+ * Each reduce emits an {@link AgentEvents.FilesReduce} flight recorder event, sized by the values of the channel:
+ * references rather than contents when the files are not stored inline.
+ */
 class FileChannel implements Channel<Map<String,String>>  {
 
     private final Reducer<Map<String,String>> reducer;
@@ -20,7 +26,7 @@ class FileChannel implements Channel<Map<String,String>>  {
 
     @Override
     public Optional<Supplier<Map<String, String>>> getDefault() {
-        return Optional.of(Map::of);
+        return Optional.of(PersistentMap::empty);
     }
 
     public FileChannel() {
@@ -28,6 +34,24 @@ class FileChannel implements Channel<Map<String,String>>  {
     }
 
     private Map<String,String> reduce( Map<String,String> map1, Map<String,String> map2 ) {
-        return mergeMap( map1, map2, (v1,v2) -> v2 );
+        final var event = new AgentEvents.FilesReduce();
+        event.begin();
+        final Map<String,String> result = ( map1 == null )
+                ? ( ( map2 == null ) ? PersistentMap.empty() : PersistentMap.from( map2 ) )
+                : PersistentMap.from( map1 ).plusAll( map2 );
+        event.end();
+        if( event.shouldCommit() ) {
+            event.entries = result.size();
+            if( map2 != null ) {
+                event.updatedEntries = map2.size();
+                long chars = 0;
+                for( var value : map2.values() ) {
+                    chars += ( value != null ) ? value.length() : 0;
+                }
+                event.updatedValuesBytes = 2 * chars;
+            }
+            event.commit();
+        }
+        return result;
     }
 }
@@ -0,0 +1,1029 @@
+package org.bsc.langgraph4j.deepagents;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Search index of the {@code files} mock filesystem used by the {@code ls}, {@code glob} and {@code grep} tools.
+ * <p>
+ * The index keeps a trie of the path segments, to match the glob patterns without scanning all the paths,
+ * the (case-insensitive) trigrams of each content, to select the candidate files of a search, and the size and
+ * line count of each file, used by the {@code ls} tool.
+ * <p>
+ * Each query is given the version of the files it runs on and is executed, as a whole, on a snapshot of the index
+ * it owns until the query ends. The snapshot is taken from a pool: the one already at that version or the
+ * closest one, which is updated by diffing the {@link PersistentMap} version it has seen with the given one.
+ * The concurrent sessions sharing the tools, and so the index, never see each other's files. The pool is capped
+ * by memory (an estimate), the least recently used idle snapshots are evicted first.
+ * <p>
+ * Only the trie is updated eagerly, the contents are read (through the {@link FileStore}) when a query needs them:
+ * the stats of a file on its first listing with details, the trigrams of all the files on the first search of a
+ * snapshot and then those of the added or changed files only. The stats and trigrams of a file reference are
+ * computed once and shared by all the snapshots referencing it; each snapshot only keeps its postings, arrays of
+ * file ids. The contents are scanned in chunks, read by range from the stores supporting it
+ * ({@link FileStore#supportsRangeReads()}), and the index doesn't keep them: the matching files are read again to verify a search.
+ */
+final class FileIndex {
+
+    /**
+     * Line of a file matching a search
+     *
+     * @param path the file path
+     * @param line the line number (1 based)
+     * @param text the line text
+     */
+    record Match(String path, int line, String text) {}
+
+    /**
+     * Stats of a file, computed when first needed
+     *
+     * @param path  the file path
+     * @param size  the content size in bytes (UTF-8)
+     * @param lines the number of lines
+     */
+    record FileInfo(String path, long size, int lines) {}
+
+    /**
+     * Default max memory (estimate) of the index, idle snapshots and shared contents stats and trigrams
+     */
+    static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    // memory estimates: object headers, references and hash map nodes
+    private static final long CONTENT_OVERHEAD = 96;
+    private static final long POSTINGS_OVERHEAD = 96;
+
+    private static final class TrieNode {
+        final TreeMap<String, TrieNode> children = new TreeMap<>();
+        final TreeSet<String> paths = new TreeSet<>();
+
+        boolean isEmpty() {
+            return children.isEmpty() && paths.isEmpty();
+        }
+    }
+
+    private record ContentKey(String path, String ref) {}
+
+    /**
+     * Stats and, once searched, trigrams of a file reference: scanned once and shared by the snapshots referencing it
+     */
+    private static final class Content {
+        final ContentKey key;
+        final long size;
+        final int lines;
+        // distinct (lower case) trigrams, sorted, null if only the stats have been scanned
+        final long[] trigrams;
+        // number of snapshots referencing it, guarded by the contents table
+        int users;
+
+        Content(ContentKey key, ContentScan scan) {
+            this.key = key;
+            this.size = scan.size;
+            this.lines = scan.lines();
+            this.trigrams = scan.collectTrigrams ? scan.trigrams() : null;
+        }
+
+        long bytes() {
+            return CONTENT_OVERHEAD + ((trigrams != null) ? 8L * trigrams.length : 0);
+        }
+    }
+
+    /**
+     * Ids of the files containing a trigram, in ascending order
+     */
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    /**
+     * Index of a version of the files, used by one query at a time
+     */
+    private final class Snapshot {
+        private final TrieNode root = new TrieNode();
+        // shared contents of the files listed with details or searched
+        private final HashMap<String, Content> contents = new HashMap<>();
+        // trigram index of file ids, built by the first search; the ids of the removed files are left in the
+        // postings (their path is null) until the index is rebuilt
+        private HashMap<Long, Postings> postings;
+        private final HashMap<String, Integer> ids = new HashMap<>();
+        private final ArrayList<String> idPaths = new ArrayList<>();
+        private int removedIds;
+        private long postingsBytes;
+        // files added or changed since the last search
+        private final HashSet<String> pending = new HashSet<>();
+        private PersistentMap<String, String> files = PersistentMap.empty();
+
+        /**
+         * Updates the snapshot to the given version of the files
+         */
+        void sync(PersistentMap<String, String> newVersion) {
+            if (newVersion == files) {
+                return;
+            }
+            files.diff(newVersion, (path, oldRef, newRef) -> {
+                if (oldRef != null) {
+                    remove(path);
+                }
+                if (newRef != null) {
+                    add(path);
+                }
+            });
+            files = newVersion;
+        }
+
+        private void add(String path) {
+            var node = root;
+            for (var segment : segments(path)) {
+                node = node.children.computeIfAbsent(segment, key -> new TrieNode());
+            }
+            node.paths.add(path);
+            if (postings != null) {
+                pending.add(path);
+            }
+        }
+
+        private void remove(String path) {
+            FileIndex.remove(root, segments(path), 0, path);
+            pending.remove(path);
+            final var content = contents.remove(path);
+            if (content != null) {
+                release(content);
+            }
+            final var id = ids.remove(path);
+            if (id != null) {
+                idPaths.set(id, null);
+                ++removedIds;
+            }
+        }
+
+        /**
+         * @return the stats of the given file, scanning its content if no snapshot did
+         */
+        FileInfo info(String path) {
+            var content = contents.get(path);
+            if (content == null) {
+                content = acquire(path, files.get(path), false);
+                contents.put(path, content);
+            }
+            return new FileInfo(path, content.size, content.lines);
+        }
+
+        /**
+         * @return the trigram index, brought up to date with the current version of the files
+         */
+        Map<Long, Postings> postings() {
+            if (postings == null) {
+                postings = new HashMap<>();
+                files.forEach(this::index);
+            } else {
+                for (var path : pending) {
+                    index(path, files.get(path));
+                }
+                if (removedIds > ids.size()) {
+                    rebuild();
+                }
+            }
+            pending.clear();
+            return postings;
+        }
+
+        /**
+         * @return the path of the given file id, {@code null} if the file has been removed
+         */
+        String path(int id) {
+            return idPaths.get(id);
+        }
+
+        private void index(String path, String ref) {
+            var content = contents.get(path);
+            if (content == null || content.trigrams == null) {
+                final var scanned = acquire(path, ref, true);
+                if (content != null) {
+                    release(content);
+                }
+                content = scanned;
+                contents.put(path, content);
+            }
+            add(path, content.trigrams);
+        }
+
+        private void add(String path, long[] trigrams) {
+            final int id = idPaths.size();
+            idPaths.add(path);
+            ids.put(path, id);
+            for (var trigram : trigrams) {
+                postings.computeIfAbsent(trigram, key -> {
+                    postingsBytes += POSTINGS_OVERHEAD;
+                    return new Postings();
+                }).add(id);
+            }
+            postingsBytes += 4L * trigrams.length;
+        }
+
+        /**
+         * Rebuilds the postings without the ids of the removed files, from the shared trigrams
+         */
+        private void rebuild() {
+            postings = new HashMap<>();
+            postingsBytes = 0;
+            removedIds = 0;
+            final var paths = new ArrayList<>(ids.keySet());
+            ids.clear();
+            idPaths.clear();
+            for (var path : paths) {
+                add(path, contents.get(path).trigrams);
+            }
+        }
+
+        /**
+         * @return the estimated memory of the snapshot own structures, the shared contents excluded
+         */
+        long bytes() {
+            return postingsBytes;
+        }
+
+        /**
+         * Releases the shared contents of an evicted snapshot
+         */
+        void dispose() {
+            contents.values().forEach(FileIndex.this::release);
+            contents.clear();
+            postings = null;
+        }
+    }
+
+    /**
+     * Line count and, optionally, distinct (lower case) trigrams of a content scanned in chunks
+     */
+    private static final class ContentScan {
+        private final boolean collectTrigrams;
+        private long[] trigrams;
+        private int trigramCount;
+        // the last two chars (lower case) and how many chars have been seen, up to 2
+        private char first;
+        private char second;
+        private int seen;
+        private int newlines;
+        private int trailingNewlines;
+        private boolean text;
+        long size;
+
+        ContentScan(boolean collectTrigrams) {
+            this.collectTrigrams = collectTrigrams;
+            this.trigrams = collectTrigrams ? new long[64] : null;
+        }
+
+        void accept(String chunk) {
+            for (int i = 0; i < chunk.length(); ++i) {
+                final char c = chunk.charAt(i);
+                if (c == '\n') {
+                    ++newlines;
+                    ++trailingNewlines;
+                } else {
+                    text = true;
+                    trailingNewlines = 0;
+                }
+                if (collectTrigrams) {
+                    final char lower = Character.toLowerCase(c);
+                    if (seen == 2) {
+                        add(((long) first << 32) | ((long) second << 16) | lower);
+                    } else {
+                        ++seen;
+                    }
+                    first = second;
+                    second = lower;
+                }
+            }
+        }
+
+        /**
+         * Number of lines, trailing empty lines excluded (same as {@link LineIndex#lineCount()})
+         */
+        int lines() {
+            return text ? newlines - trailingNewlines + 1 : 0;
+        }
+
+        /**
+         * @return the distinct trigrams, sorted
+         */
+        long[] trigrams() {
+            compact();
+            return Arrays.copyOf(trigrams, trigramCount);
+        }
+
+        private void add(long trigram) {
+            if (trigramCount == trigrams.length) {
+                compact();
+                if (trigramCount > trigrams.length / 2) {
+                    trigrams = Arrays.copyOf(trigrams, trigrams.length * 2);
+                }
+            }
+            trigrams[trigramCount++] = trigram;
+        }
+
+        private void compact() {
+            Arrays.sort(trigrams, 0, trigramCount);
+            int count = 0;
+            for (int i = 0; i < trigramCount; ++i) {
+                if (count == 0 || trigrams[i] != trigrams[count - 1]) {
+                    trigrams[count++] = trigrams[i];
+                }
+            }
+            trigramCount = count;
+        }
+    }
+
+    /**
+     * Size of the chunks read by range to scan a content
+     */
+    private static final int SCAN_CHUNK_SIZE = 64 * 1024;
+
+    private final FileStore fileStore;
+    private final long maxBytes;
+    // idle snapshots, the most recently used first
+    private final ArrayDeque<Snapshot> snapshots = new ArrayDeque<>();
+    // contents referenced by the snapshots, idle or not
+    private final HashMap<ContentKey, Content> contents = new HashMap<>();
+    private long contentsBytes;
+
+    FileIndex(FileStore fileStore) {
+        this(fileStore, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param fileStore the store of the file contents
+     * @param maxBytes  max memory (estimate) of the idle snapshots and of the contents stats and trigrams; the
+     *                  least recently used snapshots over it are evicted, the most recent one is always kept
+     */
+    FileIndex(FileStore fileStore, long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        this.fileStore = requireNonNull(fileStore, "fileStore cannot be null");
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Takes the idle snapshot closest to the given version, a new one if an empty snapshot is as close
+     */
+    private synchronized Snapshot acquire(PersistentMap<String, String> version) {
+        Snapshot result = null;
+        int best = version.size();
+        for (var snapshot : snapshots) {
+            if (snapshot.files == version) {
+                result = snapshot;
+                break;
+            }
+            final int distance = snapshot.files.diffCount(version, best);
+            if (distance < best) {
+                best = distance;
+                result = snapshot;
+            }
+        }
+        if (result == null) {
+            return new Snapshot();
+        }
+        snapshots.remove(result);
+        return result;
+    }
+
+    private synchronized void release(Snapshot snapshot) {
+        snapshots.addFirst(snapshot);
+        while (snapshots.size() > 1 && bytes() > maxBytes) {
+            snapshots.removeLast().dispose();
+        }
+    }
+
+    /**
+     * @return the shared content of the given file reference, scanned if no snapshot references it
+     */
+    private Content acquire(String path, String ref, boolean withTrigrams) {
+        final var key = new ContentKey(path, ref);
+        synchronized (contents) {
+            final var content = contents.get(key);
+            if (content != null && (!withTrigrams || content.trigrams != null)) {
+                ++content.users;
+                return content;
+            }
+        }
+        // scanned out of the lock, a concurrent scan of the same reference may win
+        final var scanned = new Content(key, scan(path, ref, withTrigrams));
+        synchronized (contents) {
+            final var content = contents.get(key);
+            if (content != null && (!withTrigrams || content.trigrams != null)) {
+                ++content.users;
+                return content;
+            }
+            // replaces the stats only content, if any: its users keep it until they release it
+            contents.put(key, scanned);
+            contentsBytes += scanned.bytes();
+            scanned.users = 1;
+            return scanned;
+        }
+    }
+
+    private void release(Content content) {
+        synchronized (contents) {
+            if (--content.users == 0) {
+                contents.remove(content.key, content);
+                contentsBytes -= content.bytes();
+            }
+        }
+    }
+
+    /**
+     * Runs a query on a snapshot of the given version of the files
+     */
+    private <T> T query(Map<String, String> files, Function<Snapshot, T> query) {
+        final var version = PersistentMap.from(requireNonNull(files, "files cannot be null"));
+        final var snapshot = acquire(version);
+        try {
+            snapshot.sync(version);
+            return query.apply(snapshot);
+        } finally {
+            release(snapshot);
+        }
+    }
+
+    /**
+     * Scans the content of a file, an unresolved reference is scanned as an empty content
+     */
+    private ContentScan scan(String path, String ref, boolean collectTrigrams) {
+        final var result = new ContentScan(collectTrigrams);
+        if (fileStore.supportsRangeReads()) {
+            // read by range, the whole content is never on-heap
+            long offset = 0;
+            while (true) {
+                final var chunk = fileStore.readRange(path, ref, FileStore.RangeUnit.BYTES, offset, SCAN_CHUNK_SIZE)
+                        .orElse(null);
+                if (chunk == null) {
+                    break;
+                }
+                result.accept(chunk.text());
+                result.size = chunk.total();
+                if (!chunk.hasMore() || chunk.end() <= offset) {
+                    break;
+                }
+                offset = chunk.end();
+            }
+            return result;
+        }
+        // the other stores keep the contents on-heap (the inline store in the reference itself)
+        final var content = fileStore.read(path, ref).orElse("");
+        result.accept(content);
+        result.size = utf8Length(content);
+        return result;
+    }
+
+    /**
+     * @return the number of idle snapshots
+     */
+    synchronized int idleSnapshots() {
+        return snapshots.size();
+    }
+
+    /**
+     * @return the estimated memory of the idle snapshots and of the shared contents
+     */
+    synchronized long bytes() {
+        long result;
+        synchronized (contents) {
+            result = contentsBytes;
+        }
+        for (var snapshot : snapshots) {
+            result += snapshot.bytes();
+        }
+        return result;
+    }
+
+    private static void remove(TrieNode node, List<String> segments, int depth, String path) {
+        if (depth == segments.size()) {
+            node.paths.remove(path);
+            return;
+        }
+        final var child = node.children.get(segments.get(depth));
+        if (child != null) {
+            remove(child, segments, depth + 1, path);
+            if (child.isEmpty()) {
+                node.children.remove(segments.get(depth));
+            }
+        }
+    }
+
+    private static List<String> segments(String path) {
+        final var result = new ArrayList<String>();
+        for (var segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                result.add(segment);
+            }
+        }
+        return result;
+    }
+
+    private static long utf8Length(String content) {
+        long result = 0;
+        for (int i = 0; i < content.length(); ++i) {
+            final char c = content.charAt(i);
+            if (c < 0x80) {
+                result += 1;
+            } else if (c < 0x800) {
+                result += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < content.length() && Character.isLowSurrogate(content.charAt(i + 1))) {
+                result += 4;
+                ++i;
+            } else {
+                result += 3;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Lists the paths of the files under the given directory, without reading their contents
+     *
+     * @param files     map of path to reference (i.e. the {@code files} state value)
+     * @param directory the directory, {@code null} or empty for all the files
+     * @param glob      glob pattern of the files to list, may be {@code null}
+     * @return the paths, sorted
+     * @throws IllegalArgumentException if the glob pattern is invalid
+     */
+    List<String> paths(Map<String, String> files, String directory, String glob) {
+        return query(files, snapshot -> List.copyOf(paths(snapshot, directory, glob)));
+    }
+
+    /**
+     * Lists the files under the given directory, with their stats
+     *
+     * @param files     map of path to reference (i.e. the {@code files} state value)
+     * @param directory the directory, {@code null} or empty for all the files
+     * @param glob      glob pattern of the files to list, may be {@code null}
+     * @return the files, sorted by path
+     * @throws IllegalArgumentException if the glob pattern is invalid
+     */
+    List<FileInfo> list(Map<String, String> files, String directory, String glob) {
+        return query(files, snapshot -> paths(snapshot, directory, glob).stream().map(snapshot::info).toList());
+    }
+
+    /**
+     * Stats of the given files
+     *
+     * @param files map of path to reference (i.e. the {@code files} state value)
+     * @param paths the paths of the files, the missing ones are skipped
+     * @return the stats, in the order of the paths
+     */
+    List<FileInfo> stats(Map<String, String> files, List<String> paths) {
+        requireNonNull(paths, "paths cannot be null");
+        return query(files, snapshot -> paths.stream()
+                .filter(snapshot.files::containsKey)
+                .map(snapshot::info)
+                .toList());
+    }
+
+    private static Set<String> paths(Snapshot snapshot, String directory, String glob) {
+        var node = snapshot.root;
+        for (var segment : segments((directory != null) ? directory : "")) {
+            node = node.children.get(segment);
+            if (node == null) {
+                return Set.of();
+            }
+        }
+        final var result = new TreeSet<String>();
+        collect(node, result);
+        if (glob != null) {
+            result.retainAll(new HashSet<>(glob(snapshot.root, glob)));
+        }
+        return result;
+    }
+
+    private static void collect(TrieNode node, Set<String> result) {
+        result.addAll(node.paths);
+        for (var child : node.children.values()) {
+            collect(child, result);
+        }
+    }
+
+    /**
+     * @return the distinct trigrams of the given text, sorted
+     */
+    private static long[] trigrams(String text) {
+        if (text.length() < 3) {
+            return new long[0];
+        }
+        final var result = new long[text.length() - 2];
+        for (int i = 0; i < result.length; ++i) {
+            result[i] = trigram(text, i);
+        }
+        Arrays.sort(result);
+        int count = 0;
+        for (int i = 0; i < result.length; ++i) {
+            if (count == 0 || result[i] != result[count - 1]) {
+                result[count++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static long trigram(String text, int i) {
+        return ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+    }
+
+    /**
+     * Finds the paths matching the given glob pattern.
+     * <p>
+     * Supported syntax: {@code *} (any chars but {@code /}), {@code ?} (a char but {@code /}), {@code **} (any
+     * number of directories), {@code [abc]} (character class) and {@code {a,b}} (alternatives).
+     * A pattern without {@code /} matches the file names in any directory (e.g. {@code *.md}).
+     *
+     * @param files map of path to reference (i.e. the {@code files} state value)
+     * @param glob  the glob pattern
+     * @return the matching paths, sorted
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    List<String> glob(Map<String, String> files, String glob) {
+        requireNonNull(glob, "glob cannot be null");
+        return query(files, snapshot -> glob(snapshot.root, glob));
+    }
+
+    private static List<String> glob(TrieNode root, String glob) {
+        final var result = new TreeSet<String>();
+        for (var pattern : expandBraces(glob)) {
+            var segments = segments(pattern);
+            if (!pattern.contains("/")) {
+                final var withAnyDirectory = new ArrayList<String>(segments.size() + 1);
+                withAnyDirectory.add("**");
+                withAnyDirectory.addAll(segments);
+                segments = withAnyDirectory;
+            }
+            final var matchers = segments.stream()
+                    .map(segment -> segment.equals("**") ? null : segmentMatcher(segment))
+                    .toList();
+            glob(root, matchers, 0, result);
+        }
+        return List.copyOf(result);
+    }
+
+    private static void glob(TrieNode node, List<Predicate<String>> matchers, int depth, Set<String> result) {
+        if (depth == matchers.size()) {
+            result.addAll(node.paths);
+            return;
+        }
+        final var matcher = matchers.get(depth);
+        if (matcher == null) { // '**'
+            glob(node, matchers, depth + 1, result);
+            for (var child : node.children.values()) {
+                glob(child, matchers, depth, result);
+            }
+            return;
+        }
+        if (matcher instanceof LiteralSegment literal) {
+            final var child = node.children.get(literal.segment());
+            if (child != null) {
+                glob(child, matchers, depth + 1, result);
+            }
+            return;
+        }
+        for (var child : node.children.entrySet()) {
+            if (matcher.test(child.getKey())) {
+                glob(child.getValue(), matchers, depth + 1, result);
+            }
+        }
+    }
+
+    private record LiteralSegment(String segment) implements Predicate<String> {
+        @Override
+        public boolean test(String value) {
+            return segment.equals(value);
+        }
+    }
+
+    private static Predicate<String> segmentMatcher(String segment) {
+        if (segment.chars().noneMatch(c -> c == '*' || c == '?' || c == '[')) {
+            return new LiteralSegment(segment);
+        }
+        final var regex = new StringBuilder();
+        for (int i = 0; i < segment.length(); ++i) {
+            final char c = segment.charAt(i);
+            switch (c) {
+                case '*' -> regex.append(".*");
+                case '?' -> regex.append('.');
+                case '[' -> {
+                    final int end = segment.indexOf(']', i + 1);
+                    if (end < 0) {
+                        throw new IllegalArgumentException("unclosed '[' in glob segment '" + segment + "'");
+                    }
+                    var set = segment.substring(i + 1, end);
+                    if (set.startsWith("!")) {
+                        set = "^" + set.substring(1);
+                    }
+                    regex.append('[').append(set.replace("\\", "\\\\")).append(']');
+                    i = end;
+                }
+                default -> regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        try {
+            return Pattern.compile(regex.toString()).asMatchPredicate();
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("invalid glob segment '" + segment + "'", e);
+        }
+    }
+
+    /**
+     * Expands the {@code {a,b}} alternatives of a glob pattern (not nested)
+     */
+    private static List<String> expandBraces(String glob) {
+        final int open = glob.indexOf('{');
+        if (open < 0) {
+            return List.of(glob);
+        }
+        final int close = glob.indexOf('}', open);
+        if (close < 0) {
+            throw new IllegalArgumentException("unclosed '{' in glob '" + glob + "'");
+        }
+        final var result = new ArrayList<String>();
+        for (var alternative : glob.substring(open + 1, close).split(",", -1)) {
+            result.addAll(expandBraces(glob.substring(0, open) + alternative + glob.substring(close + 1)));
+        }
+        return result;
+    }
+
+    /**
+     * Searches the lines matching the given regular expression.
+     * <p>
+     * Only the files containing all the trigrams of the literal parts of the expression are read.
+     *
+     * @param files             map of path to reference (i.e. the {@code files} state value)
+     * @param regex             the regular expression
+     * @param ignoreCase        case-insensitive search
+     * @param glob              glob pattern of the files to search, may be {@code null}
+     * @param maxMatchesPerFile max number of matches to return for each file
+     * @param maxMatches        max number of matches to return
+     * @return the matches, sorted by path and line
+     * @throws PatternSyntaxException if the expression is invalid
+     */
+    List<Match> grep(Map<String, String> files, String regex, boolean ignoreCase, String glob,
+                     int maxMatchesPerFile, int maxMatches) {
+        final var pattern = Pattern.compile(requireNonNull(regex, "regex cannot be null"),
+                ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+
+        // the references are immutable: the candidates are verified once the snapshot is released
+        final Map<String, String> candidates = query(files, snapshot -> {
+            final var result = new TreeMap<String, String>();
+            final var selected = candidates(snapshot, regex);
+            final Set<String> globbed = (glob != null) ? new HashSet<>(glob(snapshot.root, glob)) : null;
+            for (var path : (selected != null) ? selected : snapshot.files.keySet()) {
+                if (globbed == null || globbed.contains(path)) {
+                    result.put(path, snapshot.files.get(path));
+                }
+            }
+            return result;
+        });
+
+        final var result = new ArrayList<Match>();
+        for (var candidate : candidates.entrySet()) {
+            final var content = fileStore.read(candidate.getKey(), candidate.getValue()).orElse(null);
+            if (content == null) {
+                continue;
+            }
+            final var matcher = pattern.matcher("");
+            int line = 0;
+            int start = 0;
+            int fileMatches = 0;
+            while (start <= content.length() && fileMatches < maxMatchesPerFile) {
+                int end = content.indexOf('\n', start);
+                if (end < 0) {
+                    end = content.length();
+                }
+                ++line;
+                final var text = content.substring(start, end);
+                if (matcher.reset(text).find()) {
+                    ++fileMatches;
+                    result.add(new Match(candidate.getKey(), line, text));
+                    if (result.size() >= maxMatches) {
+                        return result;
+                    }
+                }
+                start = end + 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the files containing all the trigrams required by the expression, {@code null} if no trigram is required
+     */
+    private static Set<String> candidates(Snapshot snapshot, String regex) {
+        BitSet result = null;
+        Map<Long, Postings> postings = null;
+        for (var literal : requiredLiterals(regex)) {
+            if (!literal.chars().allMatch(c -> c < 128)) {
+                // the case folding of the search may differ from the lower case of the index
+                continue;
+            }
+            for (var trigram : trigrams(literal.toLowerCase(Locale.ROOT))) {
+                if (postings == null) {
+                    postings = snapshot.postings();
+                }
+                final var ids = new BitSet();
+                final var trigramPostings = postings.get(trigram);
+                if (trigramPostings != null) {
+                    for (int i = 0; i < trigramPostings.size; ++i) {
+                        ids.set(trigramPostings.ids[i]);
+                    }
+                }
+                if (result == null) {
+                    result = ids;
+                } else {
+                    result.and(ids);
+                }
+                if (result.isEmpty()) {
+                    return Set.of();
+                }
+            }
+        }
+        if (result == null) {
+            return null;
+        }
+        final var paths = new HashSet<String>();
+        for (int id = result.nextSetBit(0); id >= 0; id = result.nextSetBit(id + 1)) {
+            final var path = snapshot.path(id);
+            if (path != null) {
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Literal runs that every match of the expression must contain. The extraction is conservative: the chars
+     * that are optional, inside a group or not plain literals (classes, quantifiers, escapes and their arguments)
+     * end a run, and an expression with alternatives, inline flags, quotes or an escape not understood gives no
+     * literals.
+     */
+    static List<String> requiredLiterals(String regex) {
+        if (regex.contains("|") || regex.contains("(?") || regex.contains("\\Q")) {
+            return List.of();
+        }
+        final var result = new ArrayList<String>();
+        final var run = new StringBuilder();
+        int depth = 0;
+        int i = 0;
+        while (i < regex.length()) {
+            final char c = regex.charAt(i);
+            final int next; // end of the atom
+            int literal = -1; // char of a literal atom
+            if (c == '\\') {
+                next = escapeEnd(regex, i);
+                if (next < 0) {
+                    return List.of();
+                }
+                if (!Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    literal = regex.charAt(i + 1);
+                }
+            } else if (c == '[') {
+                next = classEnd(regex, i);
+                if (next < 0) {
+                    return List.of();
+                }
+            } else if (c == '{') {
+                // quantifier arguments
+                next = closingEnd(regex, i, '}');
+                if (next < 0) {
+                    return List.of();
+                }
+            } else {
+                if (c == '(') {
+                    ++depth;
+                } else if (c == ')') {
+                    --depth;
+                }
+                if (".^$()*+?{}".indexOf(c) < 0) {
+                    literal = c;
+                }
+                next = i + 1;
+            }
+            final char quantifier = (next < regex.length()) ? regex.charAt(next) : 0;
+            if (literal >= 0 && depth == 0 && quantifier != '?' && quantifier != '*' && quantifier != '{') {
+                run.append((char) literal);
+                if (quantifier == '+') {
+                    // the repetitions come between this char and the next one
+                    flush(run, result);
+                }
+            } else {
+                flush(run, result);
+            }
+            i = next;
+        }
+        flush(run, result);
+        return result;
+    }
+
+    private static void flush(StringBuilder run, List<String> result) {
+        if (run.length() >= 3) {
+            result.add(run.toString());
+        }
+        run.setLength(0);
+    }
+
+    /**
+     * @return the end of the escape starting at the given index, -1 if it is not understood
+     */
+    private static int escapeEnd(String regex, int start) {
+        if (start + 1 >= regex.length()) {
+            return -1;
+        }
+        final char c = regex.charAt(start + 1);
+        final boolean braces = start + 2 < regex.length() && regex.charAt(start + 2) == '{';
+        final int end = switch (c) {
+            // predefined classes, boundaries and control chars
+            case 'd', 'D', 's', 'S', 'w', 'W', 'h', 'H', 'v', 'V', 'R', 'X', 'N',
+                 'b', 'B', 'A', 'G', 'Z', 'z',
+                 't', 'n', 'r', 'f', 'a', 'e' -> start + 2;
+            // \p{Name} or \pL
+            case 'p', 'P' -> braces ? closingEnd(regex, start + 2, '}') : start + 3;
+            // \x{h...h} or \xhh
+            case 'x' -> braces ? closingEnd(regex, start + 2, '}') : start + 4;
+            case 'u' -> start + 6;
+            case 'c' -> start + 3;
+            // \k<name>
+            case 'k' -> (start + 2 < regex.length() && regex.charAt(start + 2) == '<')
+                    ? closingEnd(regex, start + 2, '>')
+                    : -1;
+            // octal value, \0 followed by 1 to 3 digits
+            case '0' -> {
+                int result = start + 2;
+                while (result < regex.length() && result < start + 5 && regex.charAt(result) >= '0' && regex.charAt(result) <= '7') {
+                    ++result;
+                }
+                yield (result == start + 2) ? -1 : result;
+            }
+            // back reference
+            case '1', '2', '3', '4', '5', '6', '7', '8', '9' -> {
+                int result = start + 2;
+                while (result < regex.length() && Character.isDigit(regex.charAt(result))) {
+                    ++result;
+                }
+                yield result;
+            }
+            default -> Character.isLetterOrDigit(c) ? -1 : start + 2;
+        };
+        return (end > regex.length()) ? -1 : end;
+    }
+
+    private static int closingEnd(String regex, int start, char closing) {
+        final int close = regex.indexOf(closing, start);
+        return (close < 0) ? -1 : close + 1;
+    }
+
+    /**
+     * @return the end of the character class starting at the given index, -1 if it is not closed
+     */
+    private static int classEnd(String regex, int start) {
+        int i = start + 1;
+        if (i < regex.length() && regex.charAt(i) == '^') {
+            ++i;
+        }
+        if (i < regex.length() && regex.charAt(i) == ']') {
+            // a leading ']' is a literal
+            ++i;
+        }
+        int depth = 1;
+        while (i < regex.length()) {
+            final char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                ++depth;
+            } else if (c == ']' && --depth == 0) {
+                return i + 1;
+            }
+            ++i;
+        }
+        return -1;
+    }
+}
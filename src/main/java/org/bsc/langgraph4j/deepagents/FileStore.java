@@ -0,0 +1,201 @@
+package org.bsc.langgraph4j.deepagents;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Storage backend of the mock filesystem used by the built-in file tools ({@code ls}, {@code read_file},
+ * {@code write_file}, {@code edit_file}).
+ * <p>
+ * The {@code files} channel of {@link DeepAgent.State} maps each path to the <em>reference</em> returned by
+ * {@link #write(String, String)}; the content is resolved through {@link #read(String, String)}.
+ * References are immutable: a new write returns a new reference, so the states kept by the checkpoints keep
+ * pointing to the content they have seen.
+ * <p>
+ * The default store ({@link #inline()}) uses the content itself as reference, that is the content is carried
+ * (and serialized) inside the state.
+ * <p>
+ * The other stores keep every written version, in memory or on disk, so their size grows with each write
+ * (e.g. each {@code edit_file}) for the whole lifetime of the store. The versions no longer referenced by any
+ * state to keep (sessions, checkpoints) are released through {@link #retain(Collection)}: the agent never calls
+ * it, the application owning the sessions and the checkpoint saver must call it periodically.
+ * <p>
+ * A range of a content can be read through {@link #readRange(String, String, RangeUnit, long, int)}: the stores
+ * backed by a directory read only the requested range instead of the whole content, see
+ * {@link #supportsRangeReads()}.
+ */
+public interface FileStore {
+
+    /**
+     * Unit of the offsets of a range read
+     */
+    enum RangeUnit {
+        /**
+         * UTF-16 chars, the unit of the Java strings
+         */
+        CHARS,
+        /**
+         * bytes of the UTF-8 encoded content
+         */
+        BYTES
+    }
+
+    /**
+     * Range of a content
+     *
+     * @param text   the text of the range
+     * @param offset the start of the range (inclusive)
+     * @param end    the end of the range (exclusive)
+     * @param total  the content length
+     */
+    record Chunk(String text, long offset, long end, long total) {
+
+        /**
+         * @return true if there is content after this range
+         */
+        public boolean hasMore() {
+            return end < total;
+        }
+    }
+
+    /**
+     * Stores the content of the given path
+     *
+     * @param path    the file path
+     * @param content the file content
+     * @return the reference to put in the state
+     */
+    String write(String path, String content);
+
+    /**
+     * Resolves a reference previously returned by {@link #write(String, String)}
+     *
+     * @param path the file path
+     * @param ref  the file reference
+     * @return the file content, empty if the reference cannot be resolved
+     */
+    Optional<String> read(String path, String ref);
+
+    /**
+     * Reads a range of the content of a reference previously returned by {@link #write(String, String)}.
+     * <p>
+     * The range is clamped to the content length. In {@link RangeUnit#BYTES} the range is aligned to the UTF-8
+     * character boundaries, so the actual offsets of the returned chunk may differ (by up to 3 bytes) from the
+     * requested ones.
+     * The default implementation resolves the whole content through {@link #read(String, String)}.
+     *
+     * @param path   the file path
+     * @param ref    the file reference
+     * @param unit   the unit of offset and length
+     * @param offset the start of the range
+     * @param length the max length of the range
+     * @return the chunk, empty if the reference cannot be resolved
+     * @throws IllegalArgumentException if offset is negative or length is not positive
+     */
+    default Optional<Chunk> readRange(String path, String ref, RangeUnit unit, long offset, int length) {
+        ContentRange.check(offset, length);
+        return read(path, ref).map(content -> switch (requireNonNull(unit, "unit cannot be null")) {
+            case CHARS -> ContentRange.chars(content, offset, length);
+            case BYTES -> ContentRange.bytes(content, offset, length);
+        });
+    }
+
+    /**
+     * Tells whether {@link #readRange(String, String, RangeUnit, long, int)} reads only the requested range.
+     * The callers scanning a content in chunks (e.g. the search index) read it by range only if so, otherwise they
+     * resolve it as a whole. The default implementation, which resolves the whole content, returns {@code false}.
+     *
+     * @return true if a range read costs the range, not the whole content
+     */
+    default boolean supportsRangeReads() {
+        return false;
+    }
+
+    /**
+     * Removes the stored contents not referenced by any of the given references.
+     * <p>
+     * No content is ever removed otherwise. It should be called when no write is in progress: the versioned
+     * stores never remove a version written after the call started, the content-addressed ones cannot tell.
+     * The default implementation, for the stores that don't keep any content, does nothing.
+     *
+     * @param liveRefs the references still in use, e.g. the {@code files} values of all the states to keep
+     * @return the number of removed contents
+     */
+    default int retain(Collection<String> liveRefs) {
+        requireNonNull(liveRefs, "liveRefs cannot be null");
+        return 0;
+    }
+
+    /**
+     * Resolves all the given references
+     *
+     * @param files map of path to reference (i.e. the {@code files} state value)
+     * @return map of path to content
+     */
+    default Map<String, String> readAll(Map<String, String> files) {
+        final var result = new LinkedHashMap<String, String>(files.size() * 2);
+        files.forEach((path, ref) -> read(path, ref).ifPresent(content -> result.put(path, content)));
+        return result;
+    }
+
+    /**
+     * Store that keeps the content inside the state (the reference is the content itself)
+     */
+    static FileStore inline() {
+        return InlineFileStore.INSTANCE;
+    }
+
+    /**
+     * Store that keeps the contents in memory, the state only carries {@code path@version} references.
+     * <p>
+     * Every written version stays in memory until released by {@link #retain(Collection)}, which the agent never
+     * calls: an application using this store must call it with the references of the states it keeps.
+     */
+    static FileStore inMemory() {
+        return new InMemoryFileStore();
+    }
+
+    /**
+     * Store that writes each version of a file in the given local directory, the state only carries
+     * {@code path@instance.version} references. {@link #retain(Collection)} only removes the versions written
+     * by this store instance.
+     *
+     * @param root the root directory, created if it doesn't exist
+     */
+    static FileStore directory(Path root) {
+        return new DirectoryFileStore(root);
+    }
+
+    /**
+     * Same as {@link #directory(Path)} but contents are read through memory-mapped buffers
+     *
+     * @param root the root directory, created if it doesn't exist
+     */
+    static FileStore mapped(Path root) {
+        return new MappedFileStore(root);
+    }
+
+    /**
+     * Content-addressed store keeping the blobs in memory: each distinct content is stored once and the state
+     * only carries {@code sha256:<hash>} references
+     */
+    static FileStore contentAddressed() {
+        return new ContentAddressedFileStore(new ContentAddressedFileStore.InMemoryBlobs());
+    }
+
+    /**
+     * Content-addressed store keeping the blobs in the given local directory: each distinct content is stored
+     * once and the state only carries {@code sha256:<hash>} references
+     *
+     * @param root the root directory, created if it doesn't exist
+     */
+    static FileStore contentAddressed(Path root) {
+        return new ContentAddressedFileStore(new ContentAddressedFileStore.DirectoryBlobs(root));
+    }
+
+}
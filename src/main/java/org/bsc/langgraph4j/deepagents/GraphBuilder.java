@@ -1,5 +1,7 @@
 package org.bsc.langgraph4j.deepagents;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
 import org.bsc.langgraph4j.GraphStateException;
 import org.bsc.langgraph4j.StateGraph;
 import org.bsc.langgraph4j.spring.ai.agent.ReactAgent;
@@ -8,10 +10,15 @@ import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.tool.ToolCallback;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 
 public class GraphBuilder {
@@ -21,6 +28,14 @@ public class GraphBuilder {
     private ChatModel chatModel;
     private List<DeepAgent.SubAgent> subAgents;
     private List<String> builtinTools;
+    private Executor taskExecutor;
+    private FileStore fileStore;
+    private AgentMetrics metrics = AgentMetrics.NOOP;
+    private AgentTracing tracing = AgentTracing.NOOP;
+    private boolean flightRecorderEvents;
+    private Supplier<Budget> budgets;
+    private Compaction compaction;
+    private TaskResultCache taskResultCache;
 
     public GraphBuilder subAgents(List<DeepAgent.SubAgent> subAgents ) {
         this.subAgents = List.copyOf( requireNonNull(subAgents,"subAgents cannot be null") );
@@ -43,23 +58,150 @@ public class GraphBuilder {
         return this;
 
     }
+    /**
+     * Names of the built-in tools to enable. Default is {@code ls}, {@code read_file}, {@code write_file},
+     * {@code edit_file} and {@code write_todos}; the others ({@code read_files}, {@code read_file_chunk},
+     * {@code write_files}, {@code multi_edit}, {@code glob}, {@code grep}) must be listed explicitly: each enabled
+     * tool adds its definition to the prompt of every model call.
+     *
+     * @param builtinTools the names of the built-in tools
+     */
     public GraphBuilder builtinTools( List<String> builtinTools ) {
         this.builtinTools = builtinTools;
         return this;
     }
 
+    /**
+     * Runs concurrently the {@code task} calls emitted by the same assistant message using the default executor
+     * (virtual threads when available).
+     *
+     * @param parallelTasks true to enable the parallel execution of sub-agents
+     */
+    public GraphBuilder parallelTasks( boolean parallelTasks ) {
+        this.taskExecutor = parallelTasks ? TaskDispatcher.defaultExecutor() : null;
+        return this;
+    }
+
+    /**
+     * Runs concurrently the {@code task} calls emitted by the same assistant message using the given executor.
+     *
+     * @param taskExecutor executor used to run the sub-agents
+     */
+    public GraphBuilder taskExecutor( Executor taskExecutor ) {
+        this.taskExecutor = requireNonNull( taskExecutor, "taskExecutor cannot be null" );
+        return this;
+    }
+
+    /**
+     * Storage backend of the files managed by the built-in file tools.
+     * Default is {@link FileStore#inline()}: the file contents are kept inside the state.
+     *
+     * @param fileStore the file store
+     */
+    public GraphBuilder fileStore( FileStore fileStore ) {
+        this.fileStore = requireNonNull( fileStore, "fileStore cannot be null" );
+        return this;
+    }
+
+    /**
+     * Publishes the agent metrics (tool calls, sub-agent tasks, model calls and token usage) to the given
+     * Micrometer registry. Without a registry the tools and the model are not instrumented at all.
+     *
+     * @param registry the meter registry
+     */
+    public GraphBuilder meterRegistry( MeterRegistry registry ) {
+        this.metrics = new MicrometerAgentMetrics( requireNonNull( registry, "registry cannot be null" ) );
+        return this;
+    }
+
+    /**
+     * Traces the tool calls, the model calls and the sub-agent runs (including their graph nodes) with the given
+     * OpenTelemetry instance. The trace context of the caller is propagated to the sub-agents, also when they run
+     * in parallel. To trace the nodes of the main agent see {@link TracingLifecycleListener}.
+     *
+     * @param openTelemetry the OpenTelemetry instance
+     */
+    public GraphBuilder openTelemetry( OpenTelemetry openTelemetry ) {
+        this.tracing = new OpenTelemetryAgentTracing( requireNonNull( openTelemetry, "openTelemetry cannot be null" ) );
+        return this;
+    }
+
+    /**
+     * Emits Java Flight Recorder events for the tool calls and the state serializations: the tools are decorated
+     * and the stock state serializer is replaced by a recording one. Default is false.
+     * The events of the sub-agent runs and of the {@code files} updates are always emitted, they cost almost nothing
+     * while no recording enables them.
+     *
+     * @param flightRecorderEvents true to add the event emission to the tools and the state serializer
+     */
+    public GraphBuilder flightRecorderEvents( boolean flightRecorderEvents ) {
+        this.flightRecorderEvents = flightRecorderEvents;
+        return this;
+    }
+
+    /**
+     * Budget (tokens, model calls, wall-clock time) shared by the main agent and its sub-agents.
+     * When it is exhausted the agents are asked for a final answer instead of failing the run.
+     * <p>
+     * The given instance keeps the usage of all the runs of the built graph; to have a budget per run
+     * see {@link #budget(Supplier)}.
+     *
+     * @param budget the session budget
+     */
+    public GraphBuilder budget( Budget budget ) {
+        requireNonNull( budget, "budget cannot be null" );
+        return budget( () -> budget );
+    }
+
+    /**
+     * Budget per run: each run of the main agent (i.e. each invocation with a new user input, whatever its thread id)
+     * takes a new budget from the given supplier, shared by the main agent and the sub-agents of that run.
+     * A run resumed from a checkpoint after its end, or on another thread, restarts with a new budget.
+     *
+     * @param budgets the supplier of the run budgets
+     */
+    public GraphBuilder budget( Supplier<Budget> budgets ) {
+        this.budgets = requireNonNull( budgets, "budgets cannot be null" );
+        return this;
+    }
+
+    /**
+     * Compacts the prompt of each model call (main agent and sub-agents) once it exceeds the compaction threshold:
+     * older tool outputs are replaced by stubs, the system prompt, the latest turns and the todo list are kept.
+     *
+     * @param compaction the compaction settings
+     */
+    public GraphBuilder compaction( Compaction compaction ) {
+        this.compaction = requireNonNull( compaction, "compaction cannot be null" );
+        return this;
+    }
+
+    /**
+     * Memoizes the sub-agent task results: a task already run by the same sub-agent, with the same description and
+     * the same input files, is not run again and its recorded files update is applied.
+     *
+     * @param taskResultCache the result cache, see {@link TaskResultCache#inMemory} and {@link TaskResultCache#directory}
+     */
+    public GraphBuilder taskResultCache( TaskResultCache taskResultCache ) {
+        this.taskResultCache = requireNonNull( taskResultCache, "taskResultCache cannot be null" );
+        return this;
+    }
+
     public StateGraph<DeepAgent.State> build() throws GraphStateException {
         if( tools == null ) {
             tools = List.of();
         }
 
-        // Filter built-in tools if builtinTools parameter is provided
-        var  selectedBuiltinTools = (builtinTools!=null)
-                ? Tools.BUILTIN.stream().filter(tool ->
-                        builtinTools.stream()
+        final var budgetScope = ( budgets != null ) ? new BudgetScope( budgets ) : null;
+
+        final var builtin = Tools.builtin( ( fileStore != null ) ? fileStore : FileStore.inline() );
+
+        // Filter built-in tools, the default ones if builtinTools parameter is not provided
+        final var enabledBuiltinTools = (builtinTools!=null) ? builtinTools : Tools.DEFAULT_BUILTIN_TOOLS;
+        var  selectedBuiltinTools = builtin.stream().filter(tool ->
+                        enabledBuiltinTools.stream()
                                 .anyMatch(bt ->  bt.equals( tool.getToolDefinition().name() )))
-                        .toList()
-                : Tools.BUILTIN;
+                        .toList();
 
         // Combine built-in tools with provided tools
         final var allTools = new ArrayList<>( selectedBuiltinTools );
@@ -68,20 +210,36 @@ public class GraphBuilder {
         // Create task tool using createTaskTool() if subagents are provided
         if ( subAgents!= null && !subAgents.isEmpty()) {
             // Create tools map for task tool creation
+            // sorted by name: the sub-agents tools (and so their prompt prefix) don't depend on the declaration order
             var toolsMap = Stream.concat(selectedBuiltinTools.stream(), tools.stream() )
-                                .collect( Collectors.toUnmodifiableMap(
+                                .collect( Collectors.toMap(
                                         tool -> tool.getToolDefinition().name(),
-                                        tool -> tool));
+                                        tool -> tool,
+                                        ( t1, t2 ) -> {
+                                            throw new IllegalStateException( format( "Duplicate tool '%s'", t1.getToolDefinition().name() ) );
+                                        },
+                                        TreeMap::new ));
 
             var taskTool = new TaskToolBuilder()
                         .model(chatModel)
                         .subAgents( subAgents )
                         .tools( toolsMap )
+                        .executor( taskExecutor )
+                        .metrics( metrics )
+                        .tracing( tracing )
+                        .flightRecorderEvents( flightRecorderEvents )
+                        .budgetScope( budgetScope )
+                        .compaction( compaction )
+                        .resultCache( taskResultCache )
+                        .fileStore( fileStore != null ? fileStore : FileStore.inline() )
                         .build();
 
             allTools.add(taskTool);
         }
 
+        // canonical ordering of the main agent tools
+        allTools.sort( Comparator.comparing( tool -> tool.getToolDefinition().name() ) );
+
         // Combine instructions with base prompt like Python implementation
         var finalInstructions = instructions!=null
                 ? instructions.concat( Prompts.BASE_PROMPT )
@@ -89,9 +247,16 @@ public class GraphBuilder {
 
 
         return ReactAgent.<DeepAgent.State>builder()
-                .stateSerializer( new SpringAIJacksonStateSerializer<>( DeepAgent.State::new ))
-                .chatModel(chatModel)
-                .tools( allTools )
+                .stateSerializer( flightRecorderEvents
+                        ? new RecordedStateSerializer()
+                        : new SpringAIJacksonStateSerializer<>( DeepAgent.State::new ))
+                .chatModel( BudgetChatModel.of( CompactingChatModel.of(
+                        tracing.chatModel( InstrumentedChatModel.of( chatModel, metrics, AgentMetrics.MAIN_AGENT ), AgentMetrics.MAIN_AGENT ),
+                        compaction ), budgetScope, true ) )
+                .tools( tracing.tools( InstrumentedToolCallback.of(
+                                RecordedToolCallback.of( allTools, flightRecorderEvents, AgentMetrics.MAIN_AGENT ),
+                                metrics, AgentMetrics.MAIN_AGENT ),
+                        AgentMetrics.MAIN_AGENT ) )
                 .schema( DeepAgent.State.SCHEMA )
                 .defaultSystem( finalInstructions )
                 .build();
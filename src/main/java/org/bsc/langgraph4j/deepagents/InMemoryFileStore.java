@@ -0,0 +1,56 @@
+package org.bsc.langgraph4j.deepagents;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link FileStore} that keeps every written version in memory, until released by {@link #retain(Collection)}.
+ * References have the form {@code path@version}.
+ * <p>
+ * The agent never calls {@link #retain(Collection)}: without it the store grows with every write for its whole
+ * lifetime.
+ */
+class InMemoryFileStore implements FileStore {
+
+    private final Map<String, String> contents = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    @Override
+    public String write(String path, String content) {
+        requireNonNull(path, "path cannot be null");
+        requireNonNull(content, "content cannot be null");
+
+        final var ref = path + '@' + version.incrementAndGet();
+        contents.put(ref, content);
+        return ref;
+    }
+
+    @Override
+    public Optional<String> read(String path, String ref) {
+        return Optional.ofNullable(ref).map(contents::get);
+    }
+
+    @Override
+    public int retain(Collection<String> liveRefs) {
+        final var live = new HashSet<>(requireNonNull(liveRefs, "liveRefs cannot be null"));
+        final long last = version.get();
+
+        int removed = 0;
+        for (var ref : contents.keySet()) {
+            if (!live.contains(ref) && version(ref) <= last && contents.remove(ref) != null) {
+                ++removed;
+            }
+        }
+        return removed;
+    }
+
+    private static long version(String ref) {
+        return Long.parseLong(ref.substring(ref.lastIndexOf('@') + 1));
+    }
+}
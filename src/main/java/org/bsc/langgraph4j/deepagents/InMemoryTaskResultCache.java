@@ -0,0 +1,56 @@
+package org.bsc.langgraph4j.deepagents;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link TaskResultCache} kept in memory, with LRU and TTL eviction
+ */
+class InMemoryTaskResultCache implements TaskResultCache {
+
+    private record Timed(Entry entry, long expiresAt) {}
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LongSupplier currentMillis;
+    private final LinkedHashMap<Key, Timed> entries;
+
+    InMemoryTaskResultCache(int maxEntries, Duration ttl, LongSupplier currentMillis) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = requireNonNull(ttl, "ttl cannot be null").toMillis();
+        this.currentMillis = requireNonNull(currentMillis, "currentMillis cannot be null");
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    @Override
+    public synchronized Optional<Entry> get(Key key) {
+        final var timed = entries.get(requireNonNull(key, "key cannot be null"));
+        if (timed == null) {
+            return Optional.empty();
+        }
+        if (timed.expiresAt() <= currentMillis.getAsLong()) {
+            entries.remove(key);
+            return Optional.empty();
+        }
+        return Optional.of(timed.entry());
+    }
+
+    @Override
+    public synchronized void put(Key key, Entry entry) {
+        requireNonNull(key, "key cannot be null");
+        requireNonNull(entry, "entry cannot be null");
+        entries.put(key, new Timed(entry, currentMillis.getAsLong() + ttlMillis));
+        final var eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+}
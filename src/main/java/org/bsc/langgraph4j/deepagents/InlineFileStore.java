@@ -0,0 +1,28 @@
+package org.bsc.langgraph4j.deepagents;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link FileStore} that keeps the content inside the state: the reference is the content itself.
+ */
+final class InlineFileStore implements FileStore {
+    static final InlineFileStore INSTANCE = new InlineFileStore();
+
+    private InlineFileStore() {}
+
+    @Override
+    public String write(String path, String content) {
+        return content;
+    }
+
+    @Override
+    public Optional<String> read(String path, String ref) {
+        return Optional.ofNullable(ref);
+    }
+
+    @Override
+    public Map<String, String> readAll(Map<String, String> files) {
+        return files;
+    }
+}
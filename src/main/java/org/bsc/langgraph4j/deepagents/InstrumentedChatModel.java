@@ -0,0 +1,68 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link ChatModel} decorator that records the model calls through the {@link AgentMetrics}
+ */
+class InstrumentedChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final AgentMetrics metrics;
+    private final String agent;
+
+    private InstrumentedChatModel(ChatModel delegate, AgentMetrics metrics, String agent) {
+        this.delegate = requireNonNull(delegate, "delegate cannot be null");
+        this.metrics = requireNonNull(metrics, "metrics cannot be null");
+        this.agent = requireNonNull(agent, "agent cannot be null");
+    }
+
+    /**
+     * Decorates the given model, if metrics are enabled
+     *
+     * @param model   the chat model
+     * @param metrics the metrics
+     * @param agent   the name of the agent using the model
+     * @return the (decorated) model
+     */
+    static ChatModel of(ChatModel model, AgentMetrics metrics, String agent) {
+        return metrics.enabled() ? new InstrumentedChatModel(model, metrics, agent) : model;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        final var start = System.nanoTime();
+        ChatResponse response = null;
+        try {
+            response = delegate.call(prompt);
+            return response;
+        } finally {
+            metrics.recordModelCall(agent, System.nanoTime() - start, response == null, response);
+        }
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            final var start = System.nanoTime();
+            final var last = new AtomicReference<ChatResponse>();
+            return delegate.stream(prompt)
+                    .doOnNext(last::set)
+                    .doOnError(ex -> metrics.recordModelCall(agent, System.nanoTime() - start, true, null))
+                    .doOnComplete(() -> metrics.recordModelCall(agent, System.nanoTime() - start, false, last.get()));
+        });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+}
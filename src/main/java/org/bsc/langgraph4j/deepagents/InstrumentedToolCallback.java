@@ -0,0 +1,77 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link ToolCallback} decorator that records the tool calls through the {@link AgentMetrics}
+ */
+class InstrumentedToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+    private final AgentMetrics metrics;
+    private final String agent;
+
+    private InstrumentedToolCallback(ToolCallback delegate, AgentMetrics metrics, String agent) {
+        this.delegate = requireNonNull(delegate, "delegate cannot be null");
+        this.metrics = requireNonNull(metrics, "metrics cannot be null");
+        this.agent = requireNonNull(agent, "agent cannot be null");
+    }
+
+    /**
+     * Decorates the given tools, if metrics are enabled
+     *
+     * @param tools   the tools
+     * @param metrics the metrics
+     * @param agent   the name of the agent using the tools
+     * @return the (decorated) tools
+     */
+    static List<ToolCallback> of(List<ToolCallback> tools, AgentMetrics metrics, String agent) {
+        if (!metrics.enabled()) {
+            return tools;
+        }
+        return tools.stream()
+                .map(tool -> (ToolCallback) new InstrumentedToolCallback(tool, metrics, agent))
+                .toList();
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        final var start = System.nanoTime();
+        final var status = ToolCallStatus.enter(this, delegate);
+        String result = null;
+        try {
+            result = (toolContext != null) ? delegate.call(toolInput, toolContext) : delegate.call(toolInput);
+            return result;
+        } finally {
+            final var error = status.exit() || result == null;
+            metrics.recordToolCall(agent,
+                    delegate.getToolDefinition().name(),
+                    System.nanoTime() - start,
+                    error,
+                    toolInput != null ? toolInput.length() : 0,
+                    result != null ? result.length() : 0);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.bsc.langgraph4j.deepagents;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Index of the line offsets of a file content.
+ * <p>
+ * Lines follow the {@code content.split("\n")} semantic (trailing empty lines are dropped) but the content is
+ * never copied: a paged read only touches the requested lines.
+ * Indexes are computed once and kept in a bounded LRU cache keyed by content.
+ */
+final class LineIndex {
+
+    private static final int CACHE_MAX_ENTRIES = 64;
+    private static final long CACHE_MAX_CHARS = 64L * 1024 * 1024;
+
+    private static final LinkedHashMap<String, LineIndex> cache = new LinkedHashMap<>(CACHE_MAX_ENTRIES, 0.75f, true);
+    private static long cachedChars;
+
+    private final String content;
+    private final int[] starts;
+    private final int segments;
+    private final int lineCount;
+
+    private LineIndex(String content) {
+        this.content = content;
+
+        var offsets = new int[Math.max(16, content.length() / 64)];
+        int count = 0;
+        int start = 0;
+        while (true) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = start;
+            final int newline = content.indexOf('\n', start);
+            if (newline < 0) {
+                break;
+            }
+            start = newline + 1;
+        }
+        this.starts = offsets;
+        this.segments = count;
+
+        // drop trailing empty lines
+        while (count > 0 && lineStart(count - 1) == lineEnd(count - 1)) {
+            --count;
+        }
+        this.lineCount = count;
+    }
+
+    /**
+     * Returns the (cached) line index of the given content
+     */
+    static LineIndex of(String content) {
+        requireNonNull(content, "content cannot be null");
+        synchronized (cache) {
+            final var result = cache.get(content);
+            if (result != null) {
+                return result;
+            }
+        }
+        final var result = new LineIndex(content);
+        synchronized (cache) {
+            if (cache.putIfAbsent(content, result) == null) {
+                cachedChars += content.length();
+                final var eldest = cache.entrySet().iterator();
+                while (cache.size() > 1 && (cache.size() > CACHE_MAX_ENTRIES || cachedChars > CACHE_MAX_CHARS)) {
+                    cachedChars -= eldest.next().getKey().length();
+                    eldest.remove();
+                }
+            }
+        }
+        return result;
+    }
+
+    int lineCount() {
+        return lineCount;
+    }
+
+    private int lineStart(int line) {
+        return starts[line];
+    }
+
+    private int lineEnd(int line) {
+        return (line + 1 < segments) ? starts[line + 1] - 1 : content.length();
+    }
+
+    /**
+     * Formats the lines in range [from,to) in {@code cat -n} format, line numbers start at 1.
+     *
+     * @param from          first line (0 based, inclusive)
+     * @param to            last line (0 based, exclusive)
+     * @param maxLineLength lines longer than this are truncated
+     */
+    String format(int from, int to, int maxLineLength) {
+        if (from < 0 || to > lineCount || from > to) {
+            throw new IndexOutOfBoundsException(String.format("range [%d,%d) out of [0,%d)", from, to, lineCount));
+        }
+        final var result = new StringBuilder((to - from) * 80);
+        for (int i = from; i < to; ++i) {
+            if (i > from) {
+                result.append('\n');
+            }
+            appendLineNumber(result, i + 1);
+            result.append('\t');
+            final int start = lineStart(i);
+            final int end = lineEnd(i);
+            result.append(content, start, Math.min(end, start + maxLineLength));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Same as {@code String.format("%6d", number)}
+     */
+    private static void appendLineNumber(StringBuilder sb, int number) {
+        int digits = 1;
+        for (int n = number; n >= 10; n /= 10) {
+            ++digits;
+        }
+        for (int pad = 6 - digits; pad > 0; --pad) {
+            sb.append(' ');
+        }
+        sb.append(number);
+    }
+}
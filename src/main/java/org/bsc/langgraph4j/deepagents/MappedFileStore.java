@@ -0,0 +1,40 @@
+package org.bsc.langgraph4j.deepagents;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link DirectoryFileStore} that reads the contents through memory-mapped buffers, so the file bytes are never
+ * copied on-heap before being decoded. A byte range read maps only the requested range.
+ */
+class MappedFileStore extends DirectoryFileStore {
+
+    MappedFileStore(Path root) {
+        super(root);
+    }
+
+    @Override
+    protected String readContent(Path location) throws IOException {
+        try (var channel = FileChannel.open(location, StandardOpenOption.READ)) {
+            final var size = channel.size();
+            if (size == 0) {
+                return "";
+            }
+            final var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return StandardCharsets.UTF_8.decode(buffer).toString();
+        }
+    }
+
+    @Override
+    protected Chunk readBytes(Path location, long offset, int length) throws IOException {
+        try (var channel = FileChannel.open(location, StandardOpenOption.READ)) {
+            final var size = channel.size();
+            final var start = Math.min(offset, size);
+            final var buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(length, size - start));
+            return ContentRange.bytes(buffer, start, size);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.bsc.langgraph4j.deepagents;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.model.ChatResponse;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link AgentMetrics} backed by a Micrometer {@link MeterRegistry}.
+ * <ul>
+ *     <li>{@code deepagents.tool.calls} timer, tags: {@code agent}, {@code tool}, {@code outcome}</li>
+ *     <li>{@code deepagents.tool.errors} counter, tags: {@code agent}, {@code tool}</li>
+ *     <li>{@code deepagents.tool.payload} summary (chars), tags: {@code agent}, {@code tool}, {@code direction}</li>
+ *     <li>{@code deepagents.task} timer, tags: {@code subagent}, {@code outcome} (success, error, cached)</li>
+ *     <li>{@code deepagents.task.errors} counter, tags: {@code subagent}</li>
+ *     <li>{@code deepagents.model.calls} timer, tags: {@code agent}, {@code outcome}</li>
+ *     <li>{@code deepagents.model.errors} counter, tags: {@code agent}</li>
+ *     <li>{@code deepagents.model.tokens} summary, tags: {@code agent}, {@code type} (prompt, completion, cached)</li>
+ *     <li>{@code deepagents.model.cache.hit.ratio} summary of the prompt tokens ratio served by the provider cache,
+ *     tags: {@code agent}. Recorded only when the provider reports the cached tokens</li>
+ * </ul>
+ */
+class MicrometerAgentMetrics implements AgentMetrics {
+
+    /**
+     * Meters of the calls of a tool by an agent
+     */
+    private record ToolMeters(Timer success, Timer failure, Counter errors,
+                              DistributionSummary input, DistributionSummary output) {}
+
+    /**
+     * Meters of the runs of a sub-agent
+     */
+    private record TaskMeters(Timer success, Timer failure, Timer cached, Counter errors) {}
+
+    /**
+     * Meters of the model calls of an agent
+     */
+    private record ModelMeters(Timer success, Timer failure, Counter errors,
+                               DistributionSummary promptTokens, DistributionSummary completionTokens,
+                               DistributionSummary cachedTokens, DistributionSummary cacheHitRatio) {}
+
+    private final MeterRegistry registry;
+    // the meters are registered once, the hot path is a lookup in these maps
+    private final Map<String, Map<String, ToolMeters>> toolMeters = new ConcurrentHashMap<>();
+    private final Map<String, TaskMeters> taskMeters = new ConcurrentHashMap<>();
+    private final Map<String, ModelMeters> modelMeters = new ConcurrentHashMap<>();
+
+    MicrometerAgentMetrics(MeterRegistry registry) {
+        this.registry = requireNonNull(registry, "registry cannot be null");
+    }
+
+    private static String outcome(boolean error) {
+        return error ? "error" : "success";
+    }
+
+    private ToolMeters toolMeters(String agent, String tool) {
+        final var byTool = toolMeters.computeIfAbsent(agent, key -> new ConcurrentHashMap<>());
+        final var result = byTool.get(tool);
+        if (result != null) {
+            return result;
+        }
+        return byTool.computeIfAbsent(tool, key -> new ToolMeters(
+                toolTimer(agent, tool, false),
+                toolTimer(agent, tool, true),
+                Counter.builder("deepagents.tool.errors")
+                        .tags("agent", agent, "tool", tool)
+                        .register(registry),
+                toolPayload(agent, tool, "in"),
+                toolPayload(agent, tool, "out")));
+    }
+
+    private Timer toolTimer(String agent, String tool, boolean error) {
+        return Timer.builder("deepagents.tool.calls")
+                .tags("agent", agent, "tool", tool, "outcome", outcome(error))
+                .register(registry);
+    }
+
+    private DistributionSummary toolPayload(String agent, String tool, String direction) {
+        return DistributionSummary.builder("deepagents.tool.payload")
+                .baseUnit("chars")
+                .tags("agent", agent, "tool", tool, "direction", direction)
+                .register(registry);
+    }
+
+    private TaskMeters taskMeters(String subAgent) {
+        final var result = taskMeters.get(subAgent);
+        if (result != null) {
+            return result;
+        }
+        return taskMeters.computeIfAbsent(subAgent, key -> new TaskMeters(
+                taskTimer(subAgent, outcome(false)),
+                taskTimer(subAgent, outcome(true)),
+                taskTimer(subAgent, "cached"),
+                Counter.builder("deepagents.task.errors")
+                        .tags("subagent", subAgent)
+                        .register(registry)));
+    }
+
+    private Timer taskTimer(String subAgent, String outcome) {
+        return Timer.builder("deepagents.task")
+                .tags("subagent", subAgent, "outcome", outcome)
+                .register(registry);
+    }
+
+    private ModelMeters modelMeters(String agent) {
+        final var result = modelMeters.get(agent);
+        if (result != null) {
+            return result;
+        }
+        return modelMeters.computeIfAbsent(agent, key -> new ModelMeters(
+                modelTimer(agent, false),
+                modelTimer(agent, true),
+                Counter.builder("deepagents.model.errors")
+                        .tags("agent", agent)
+                        .register(registry),
+                modelTokens(agent, "prompt"),
+                modelTokens(agent, "completion"),
+                modelTokens(agent, "cached"),
+                DistributionSummary.builder("deepagents.model.cache.hit.ratio")
+                        .tags("agent", agent)
+                        .register(registry)));
+    }
+
+    private Timer modelTimer(String agent, boolean error) {
+        return Timer.builder("deepagents.model.calls")
+                .tags("agent", agent, "outcome", outcome(error))
+                .register(registry);
+    }
+
+    private DistributionSummary modelTokens(String agent, String type) {
+        return DistributionSummary.builder("deepagents.model.tokens")
+                .baseUnit("tokens")
+                .tags("agent", agent, "type", type)
+                .register(registry);
+    }
+
+    @Override
+    public boolean enabled() {
+        return true;
+    }
+
+    @Override
+    public void recordToolCall(String agent, String tool, long nanos, boolean error, int inputSize, int outputSize) {
+        final var meters = toolMeters(agent, tool);
+        if (error) {
+            meters.failure().record(nanos, TimeUnit.NANOSECONDS);
+            meters.errors().increment();
+        } else {
+            meters.success().record(nanos, TimeUnit.NANOSECONDS);
+        }
+        meters.input().record(inputSize);
+        meters.output().record(outputSize);
+    }
+
+    @Override
+    public void recordTask(String subAgent, long nanos, boolean error) {
+        final var meters = taskMeters(subAgent);
+        if (error) {
+            meters.failure().record(nanos, TimeUnit.NANOSECONDS);
+            meters.errors().increment();
+        } else {
+            meters.success().record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void recordTaskCacheHit(String subAgent, long nanos) {
+        taskMeters(subAgent).cached().record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordModelCall(String agent, long nanos, boolean error, ChatResponse response) {
+        final var meters = modelMeters(agent);
+        if (error) {
+            meters.failure().record(nanos, TimeUnit.NANOSECONDS);
+            meters.errors().increment();
+        } else {
+            meters.success().record(nanos, TimeUnit.NANOSECONDS);
+        }
+        if (response != null && response.getMetadata() != null && response.getMetadata().getUsage() != null) {
+            final var usage = response.getMetadata().getUsage();
+            if (usage.getPromptTokens() != null) {
+                meters.promptTokens().record(usage.getPromptTokens());
+            }
+            if (usage.getCompletionTokens() != null) {
+                meters.completionTokens().record(usage.getCompletionTokens());
+            }
+            final var cachedTokens = PromptCacheUsage.cachedTokens(usage);
+            if (cachedTokens.isPresent()) {
+                meters.cachedTokens().record(cachedTokens.getAsLong());
+                if (usage.getPromptTokens() != null && usage.getPromptTokens() > 0) {
+                    meters.cacheHitRatio().record((double) cachedTokens.getAsLong() / usage.getPromptTokens());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.bsc.langgraph4j.deepagents;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import org.bsc.langgraph4j.CompileConfig;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.tool.ToolCallback;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link AgentTracing} backed by OpenTelemetry.
+ * <p>
+ * Span names follow the OpenTelemetry GenAI conventions:
+ * <ul>
+ *     <li>{@code invoke_agent <sub-agent>} for each {@code task} run</li>
+ *     <li>{@code node <node id>} for each graph node, see {@link TracingLifecycleListener}</li>
+ *     <li>{@code execute_tool <tool>} for each tool call</li>
+ *     <li>{@code chat <agent>} for each model call</li>
+ * </ul>
+ * The trace context is propagated through the thread (sequential sub-agents) and through the task executor
+ * (parallel sub-agents), so a whole run, sub-agents included, is a single trace.
+ * <p>
+ * The parallel sub-agents of an assistant message are all launched by its first {@code task} call, so their
+ * {@code invoke_agent} spans are children of the node span running the tools, rather than of the
+ * {@code execute_tool task} span of the first call, which may end before them.
+ */
+class OpenTelemetryAgentTracing implements AgentTracing {
+
+    static final String INSTRUMENTATION_SCOPE = "org.bsc.langgraph4j.deepagents";
+
+    private final OpenTelemetry openTelemetry;
+    private final Tracer tracer;
+
+    OpenTelemetryAgentTracing(OpenTelemetry openTelemetry) {
+        this.openTelemetry = requireNonNull(openTelemetry, "openTelemetry cannot be null");
+        this.tracer = openTelemetry.getTracer(INSTRUMENTATION_SCOPE);
+    }
+
+    @Override
+    public boolean enabled() {
+        return true;
+    }
+
+    @Override
+    public List<ToolCallback> tools(List<ToolCallback> tools, String agent) {
+        return tools.stream()
+                .map(tool -> (ToolCallback) new TracedToolCallback(tool, tracer, agent))
+                .toList();
+    }
+
+    @Override
+    public ChatModel chatModel(ChatModel model, String agent) {
+        return new TracedChatModel(model, tracer, agent);
+    }
+
+    @Override
+    public Executor executor(Executor executor) {
+        if (executor == null) {
+            return null;
+        }
+        return task -> executor.execute(launchContext().wrap(task));
+    }
+
+    /**
+     * Context the parallel sub-agents run in: the parent of the current {@code execute_tool} span, if any
+     */
+    private static Context launchContext() {
+        final var current = Context.current();
+        final var parent = current.get(TracedToolCallback.PARENT_CONTEXT);
+        return (parent != null) ? parent : current;
+    }
+
+    @Override
+    public CompileConfig compileConfig(CompileConfig config, String agent) {
+        final var builder = (config != null) ? CompileConfig.builder(config) : CompileConfig.builder();
+        return builder.withLifecycleListener(new TracingLifecycleListener(openTelemetry, agent)).build();
+    }
+
+    @Override
+    public <T> T subAgentRun(String subAgent, String description, Callable<T> run) throws Exception {
+        final var span = tracer.spanBuilder("invoke_agent " + subAgent)
+                .setSpanKind(SpanKind.INTERNAL)
+                .setAttribute("gen_ai.operation.name", "invoke_agent")
+                .setAttribute("gen_ai.agent.name", subAgent)
+                .setAttribute("deepagents.task.description", description)
+                .startSpan();
+        try (var ignored = span.makeCurrent()) {
+            return run.call();
+        } catch (Exception ex) {
+            span.recordException(ex);
+            span.setStatus(StatusCode.ERROR);
+            throw ex;
+        } finally {
+            span.end();
+        }
+    }
+}
@@ -0,0 +1,507 @@
+package org.bsc.langgraph4j.deepagents;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Immutable map implemented as a persistent Hash Array Mapped Trie (HAMT).
+ * <p>
+ * Updates ({@link #plus(Object, Object)}, {@link #plusAll(Map)}) return a new map that shares with the original
+ * all the trie nodes not touched by the update, so an update costs O(log32 N) instead of a full copy and
+ * the different versions of the map (e.g. kept by checkpoints) share most of their memory.
+ * <p>
+ * Keys cannot be {@code null}. Mutating methods of {@link Map} throw {@link UnsupportedOperationException}.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+final class PersistentMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(BitmapNode.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Returns a persistent map with the same entries of the given one.
+     * If the given map is already a {@code PersistentMap} it is returned as is.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> from(Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentMap<?, ?> persistentMap) {
+            return (PersistentMap<K, V>) persistentMap;
+        }
+        return PersistentMap.<K, V>empty().plusAll(map);
+    }
+
+    /**
+     * Returns a new map with the given entry added (or replaced).
+     */
+    public PersistentMap<K, V> plus(K key, V value) {
+        requireNonNull(key, "key cannot be null");
+        final var added = new boolean[1];
+        final var newRoot = root.put(0, key.hashCode(), key, value, added);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Returns a new map with all the entries of the given map added (or replaced).
+     */
+    public PersistentMap<K, V> plusAll(Map<? extends K, ? extends V> map) {
+        if (map == null || map.isEmpty()) {
+            return this;
+        }
+        var newRoot = root;
+        var newSize = size;
+        final var added = new boolean[1];
+        for (var entry : map.entrySet()) {
+            final var key = requireNonNull(entry.getKey(), "key cannot be null");
+            added[0] = false;
+            newRoot = newRoot.put(0, key.hashCode(), key, entry.getValue(), added);
+            if (added[0]) {
+                ++newSize;
+            }
+        }
+        return (newRoot == root) ? this : new PersistentMap<>(newRoot, newSize);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        final var result = root.find(0, key.hashCode(), key, NOT_FOUND);
+        return (result == NOT_FOUND) ? null : (V) result;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && root.find(0, key.hashCode(), key, NOT_FOUND) != NOT_FOUND;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        requireNonNull(action, "action cannot be null");
+        root.forEach((BiConsumer<Object, Object>) action);
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new EntryIterator<>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Receives the differences between two versions of a map, see {@link #diff(PersistentMap, DiffConsumer)}
+     */
+    @FunctionalInterface
+    interface DiffConsumer<K, V> {
+
+        /**
+         * @param key      the key
+         * @param oldValue the value in the old version, {@code null} if the key has been added
+         * @param newValue the value in the new version, {@code null} if the key has been removed
+         */
+        void accept(K key, V oldValue, V newValue);
+    }
+
+    /**
+     * Visits the entries added, removed or changed from this (old) version to the given (new) one.
+     * <p>
+     * The two tries are walked in parallel and the sub-tries shared by the two versions are skipped, so the
+     * cost is proportional to the updates made between the versions, not to the size of the map.
+     *
+     * @param newVersion the new version of the map
+     * @param consumer   the receiver of the differences
+     */
+    @SuppressWarnings("unchecked")
+    public void diff(PersistentMap<K, V> newVersion, DiffConsumer<? super K, ? super V> consumer) {
+        requireNonNull(newVersion, "newVersion cannot be null");
+        requireNonNull(consumer, "consumer cannot be null");
+        final var visitor = (DiffConsumer<Object, Object>) consumer;
+        diff(root, newVersion.root, (key, oldValue, newValue) -> {
+            visitor.accept(key, oldValue, newValue);
+            return true;
+        });
+    }
+
+    /**
+     * Counts the entries added, removed or changed from this (old) version to the given (new) one, walking the
+     * tries as {@link #diff(PersistentMap, DiffConsumer)} does.
+     *
+     * @param newVersion the new version of the map
+     * @param limit      the count at which the walk stops
+     * @return the number of differences, at most {@code limit}
+     */
+    int diffCount(PersistentMap<K, V> newVersion, int limit) {
+        requireNonNull(newVersion, "newVersion cannot be null");
+        final int[] count = {0};
+        if (limit > 0) {
+            diff(root, newVersion.root, (key, oldValue, newValue) -> ++count[0] < limit);
+        }
+        return count[0];
+    }
+
+    /**
+     * Receiver of the differences of the internal walk
+     */
+    @FunctionalInterface
+    private interface DiffVisitor {
+
+        /**
+         * @return false to stop the walk
+         */
+        boolean visit(Object key, Object oldValue, Object newValue);
+    }
+
+    private static boolean diff(Node oldNode, Node newNode, DiffVisitor visitor) {
+        if (oldNode == newNode) {
+            return true;
+        }
+        if (!(oldNode instanceof BitmapNode oldBitmap) || !(newNode instanceof BitmapNode newBitmap)) {
+            return diff(entries(oldNode), entries(newNode), visitor);
+        }
+        int bits = oldBitmap.bitmap | newBitmap.bitmap;
+        while (bits != 0) {
+            final int bit = Integer.lowestOneBit(bits);
+            bits &= ~bit;
+            final Object oldKey, oldValue, newKey, newValue;
+            if ((oldBitmap.bitmap & bit) != 0) {
+                final int idx = oldBitmap.index(bit);
+                oldKey = oldBitmap.array[2 * idx];
+                oldValue = oldBitmap.array[2 * idx + 1];
+            } else {
+                oldKey = oldValue = NOT_FOUND;
+            }
+            if ((newBitmap.bitmap & bit) != 0) {
+                final int idx = newBitmap.index(bit);
+                newKey = newBitmap.array[2 * idx];
+                newValue = newBitmap.array[2 * idx + 1];
+            } else {
+                newKey = newValue = NOT_FOUND;
+            }
+            final boolean proceed;
+            if (oldKey == null && newKey == null) {
+                proceed = diff((Node) oldValue, (Node) newValue, visitor);
+            } else if (oldKey != NOT_FOUND && oldKey != null && oldKey.equals(newKey)) {
+                proceed = Objects.equals(oldValue, newValue) || visitor.visit(oldKey, oldValue, newValue);
+            } else {
+                proceed = diff(entries(oldKey, oldValue), entries(newKey, newValue), visitor);
+            }
+            if (!proceed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean diff(Map<Object, Object> oldEntries, Map<Object, Object> newEntries, DiffVisitor visitor) {
+        for (var entry : oldEntries.entrySet()) {
+            final var key = entry.getKey();
+            final boolean proceed;
+            if (!newEntries.containsKey(key)) {
+                proceed = visitor.visit(key, entry.getValue(), null);
+            } else {
+                final var newValue = newEntries.get(key);
+                proceed = Objects.equals(entry.getValue(), newValue) || visitor.visit(key, entry.getValue(), newValue);
+            }
+            if (!proceed) {
+                return false;
+            }
+        }
+        for (var entry : newEntries.entrySet()) {
+            if (!oldEntries.containsKey(entry.getKey()) && !visitor.visit(entry.getKey(), null, entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the entries of a node slot: none, a single entry or the entries of a sub node
+     */
+    private static Map<Object, Object> entries(Object key, Object value) {
+        if (key == NOT_FOUND) {
+            return Map.of();
+        }
+        if (key == null) {
+            return entries((Node) value);
+        }
+        final var result = new HashMap<Object, Object>(2);
+        result.put(key, value);
+        return result;
+    }
+
+    private static Map<Object, Object> entries(Node node) {
+        final var result = new HashMap<Object, Object>();
+        node.forEach(result::put);
+        return result;
+    }
+
+    private static final Object NOT_FOUND = new Object();
+
+    private static int bitpos(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static Object[] cloneAndSet(Object[] array, int i, Object a) {
+        final var clone = array.clone();
+        clone[i] = a;
+        return clone;
+    }
+
+    private static Object[] cloneAndSet(Object[] array, int i, Object a, int j, Object b) {
+        final var clone = array.clone();
+        clone[i] = a;
+        clone[j] = b;
+        return clone;
+    }
+
+    private static abstract class Node {
+
+        abstract Object find(int shift, int hash, Object key, Object notFound);
+
+        abstract Node put(int shift, int hash, Object key, Object value, boolean[] added);
+
+        abstract void forEach(BiConsumer<Object, Object> action);
+
+        /**
+         * Returns the node array: key/value pairs, where a {@code null} key means that the value is a sub node
+         */
+        abstract Object[] array();
+    }
+
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        final int bitmap;
+        final Object[] array;
+
+        BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key, Object notFound) {
+            final int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return notFound;
+            }
+            final int idx = index(bit);
+            final var k = array[2 * idx];
+            final var v = array[2 * idx + 1];
+            if (k == null) {
+                return ((Node) v).find(shift + BITS, hash, key, notFound);
+            }
+            return key.equals(k) ? v : notFound;
+        }
+
+        @Override
+        Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            final int bit = bitpos(hash, shift);
+            final int idx = index(bit);
+
+            if ((bitmap & bit) != 0) {
+                final var k = array[2 * idx];
+                final var v = array[2 * idx + 1];
+                if (k == null) {
+                    final var node = ((Node) v).put(shift + BITS, hash, key, value, added);
+                    return (node == v) ? this : new BitmapNode(bitmap, cloneAndSet(array, 2 * idx + 1, node));
+                }
+                if (key.equals(k)) {
+                    return (v == value) ? this : new BitmapNode(bitmap, cloneAndSet(array, 2 * idx + 1, value));
+                }
+                added[0] = true;
+                return new BitmapNode(bitmap,
+                        cloneAndSet(array, 2 * idx, null, 2 * idx + 1, createNode(shift + BITS, k, v, hash, key, value)));
+            }
+
+            final int n = Integer.bitCount(bitmap);
+            final var newArray = new Object[2 * (n + 1)];
+            System.arraycopy(array, 0, newArray, 0, 2 * idx);
+            newArray[2 * idx] = key;
+            newArray[2 * idx + 1] = value;
+            System.arraycopy(array, 2 * idx, newArray, 2 * (idx + 1), 2 * (n - idx));
+            added[0] = true;
+            return new BitmapNode(bitmap | bit, newArray);
+        }
+
+        private static Node createNode(int shift, Object key1, Object value1, int key2hash, Object key2, Object value2) {
+            final int key1hash = key1.hashCode();
+            if (key1hash == key2hash) {
+                return new CollisionNode(key1hash, new Object[]{key1, value1, key2, value2});
+            }
+            final var added = new boolean[1];
+            return EMPTY
+                    .put(shift, key1hash, key1, value1, added)
+                    .put(shift, key2hash, key2, value2, added);
+        }
+
+        @Override
+        void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] == null) {
+                    ((Node) array[i + 1]).forEach(action);
+                } else {
+                    action.accept(array[i], array[i + 1]);
+                }
+            }
+        }
+
+        @Override
+        Object[] array() {
+            return array;
+        }
+    }
+
+    private static final class CollisionNode extends Node {
+        final int hash;
+        final Object[] array;
+
+        CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key, Object notFound) {
+            final int idx = indexOf(key);
+            return (idx < 0) ? notFound : array[idx + 1];
+        }
+
+        @Override
+        Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash == this.hash) {
+                final int idx = indexOf(key);
+                if (idx >= 0) {
+                    return (array[idx + 1] == value) ? this : new CollisionNode(hash, cloneAndSet(array, idx + 1, value));
+                }
+                final var newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, array.length);
+                newArray[array.length] = key;
+                newArray[array.length + 1] = value;
+                added[0] = true;
+                return new CollisionNode(hash, newArray);
+            }
+            // nest this node in a bitmap node and retry
+            return new BitmapNode(bitpos(this.hash, shift), new Object[]{null, this})
+                    .put(shift, hash, key, value, added);
+        }
+
+        @Override
+        void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                action.accept(array[i], array[i + 1]);
+            }
+        }
+
+        @Override
+        Object[] array() {
+            return array;
+        }
+    }
+
+    private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+        private final ArrayDeque<Object[]> arrays = new ArrayDeque<>();
+        private final ArrayDeque<Integer> positions = new ArrayDeque<>();
+        private Entry<K, V> next;
+
+        EntryIterator(Node root) {
+            arrays.push(root.array());
+            positions.push(0);
+            advance();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while (!arrays.isEmpty()) {
+                final var array = arrays.peek();
+                final int pos = positions.pop();
+                if (pos >= array.length) {
+                    arrays.pop();
+                    continue;
+                }
+                positions.push(pos + 2);
+                if (array[pos] == null) {
+                    arrays.push(((Node) array[pos + 1]).array());
+                    positions.push(0);
+                } else {
+                    next = new SimpleImmutableEntry<>((K) array[pos], (V) array[pos + 1]);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            final var result = next;
+            advance();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.springframework.ai.chat.metadata.Usage;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Extracts the prompt tokens served by the provider-side prompt cache from the native usage of a model response.
+ * <p>
+ * Spring AI doesn't expose the cached tokens in {@link Usage}, so the native usage is inspected looking for the
+ * field names used by the supported providers:
+ * <ul>
+ *     <li>OpenAI / Azure OpenAI: {@code prompt_tokens_details.cached_tokens}</li>
+ *     <li>Gemini: {@code cachedContentTokenCount}</li>
+ *     <li>Anthropic: {@code cache_read_input_tokens}</li>
+ * </ul>
+ * A native usage given as a map is looked up by key, any other object through its accessors; the accessors are
+ * resolved once per class, so a model call only pays for the accessor invocations.
+ */
+final class PromptCacheUsage {
+
+    private static final List<String> CACHED_TOKENS_FIELDS = List.of(
+            "cached_tokens", "cachedTokens",
+            "cached_content_token_count", "cachedContentTokenCount",
+            "cache_read_input_tokens", "cacheReadInputTokens");
+
+    private static final List<String> CACHED_TOKENS_ACCESSORS = List.of(
+            "cachedTokens", "getCachedTokens",
+            "cachedContentTokenCount", "getCachedContentTokenCount",
+            "cacheReadInputTokens", "getCacheReadInputTokens");
+
+    private static final List<String> DETAILS_ACCESSORS = List.of(
+            "promptTokensDetails", "getPromptTokensDetails");
+
+    /**
+     * Accessors of a native usage class: the cached tokens one or, if missing, the one of the prompt token details
+     */
+    private record Accessors(Method cachedTokens, Method details) {}
+
+    private static final ClassValue<Accessors> ACCESSORS = new ClassValue<>() {
+        @Override
+        protected Accessors computeValue(Class<?> type) {
+            final var cachedTokens = accessor(type, CACHED_TOKENS_ACCESSORS);
+            return new Accessors(cachedTokens, (cachedTokens == null) ? accessor(type, DETAILS_ACCESSORS) : null);
+        }
+    };
+
+    private PromptCacheUsage() {}
+
+    /**
+     * @param usage the response usage, may be {@code null}
+     * @return the cached prompt tokens, empty if the provider doesn't report them
+     */
+    static OptionalLong cachedTokens(Usage usage) {
+        if (usage == null || usage.getNativeUsage() == null) {
+            return OptionalLong.empty();
+        }
+        return cachedTokens(usage.getNativeUsage(), 0);
+    }
+
+    private static OptionalLong cachedTokens(Object nativeUsage, int depth) {
+        if (nativeUsage == null || depth > 2) {
+            return OptionalLong.empty();
+        }
+        if (nativeUsage instanceof Map<?, ?> map) {
+            for (var field : CACHED_TOKENS_FIELDS) {
+                if (map.get(field) instanceof Number value) {
+                    return OptionalLong.of(value.longValue());
+                }
+            }
+            for (var value : map.values()) {
+                if (value instanceof Map<?, ?>) {
+                    final var result = cachedTokens(value, depth + 1);
+                    if (result.isPresent()) {
+                        return result;
+                    }
+                }
+            }
+            return OptionalLong.empty();
+        }
+        final var accessors = ACCESSORS.get(nativeUsage.getClass());
+        if (accessors.cachedTokens() != null) {
+            return (invoke(accessors.cachedTokens(), nativeUsage) instanceof Number value)
+                    ? OptionalLong.of(value.longValue())
+                    : OptionalLong.empty();
+        }
+        if (accessors.details() != null) {
+            return cachedTokens(invoke(accessors.details(), nativeUsage), depth + 1);
+        }
+        return OptionalLong.empty();
+    }
+
+    private static Method accessor(Class<?> type, List<String> names) {
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return null;
+        }
+        for (var name : names) {
+            try {
+                return type.getMethod(name);
+            } catch (NoSuchMethodException e) {
+                // try the next name
+            }
+        }
+        return null;
+    }
+
+    private static Object invoke(Method accessor, Object target) {
+        try {
+            return accessor.invoke(target);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
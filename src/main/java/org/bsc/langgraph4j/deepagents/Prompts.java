@@ -215,7 +215,7 @@ interface Prompts {
 
     /**
      * Suffix for task tool description
-     * Ported exactly from Python TASK_DESCRIPTION_SUFFIX
+     * Ported from Python TASK_DESCRIPTION_SUFFIX, referring to the (opt-in) glob and grep tools of this library
      */
 
     String TASK_DESCRIPTION_SUFFIX = """
@@ -226,8 +226,8 @@ interface Prompts {
                 When you are instructed to execute custom slash commands. Use the Agent tool with the slash command invocation as the entire prompt. The slash command can take arguments. For example: Task(description="Check the file", prompt="/check-file path/to/file.py")
                 When NOT to use the Agent tool:
             
-                If you want to read a specific file path, use the Read or Glob tool instead of the Agent tool, to find the match more quickly
-                If you are searching for a specific term or definition within a known location, use the Glob tool instead, to find the match more quickly
+                If you want to read a specific file path, use the read_file tool (or the glob tool, when available) instead of the Agent tool, to find the match more quickly
+                If you are searching for a specific term or definition within a known location, use the grep tool, when available, instead, to find the match more quickly
                 If you are searching for content within a specific file or set of 2-3 files, use the Read tool instead of the Agent tool, to find the match more quickly
                 Other tasks that are not related to the agent descriptions above
                 Usage notes:
@@ -298,6 +298,44 @@ interface Prompts {
                 The edit will FAIL if old_string is not unique in the file. Either provide a larger string with more surrounding context to make it unique or use replace_all to change every instance of old_string.
                 Use replace_all for replacing and renaming strings across the file. This parameter is useful if you want to rename a variable for instance.""";
 
+    /**
+     * Description for the multi_edit tool
+     */
+
+    String MULTI_EDIT_DESCRIPTION = """
+            Performs many exact string replacements in a single file at once, prefer it to many edit_file calls on the same file.
+                Usage:
+            
+                Same rules of the edit_file tool apply to each edit (old_string, new_string, replace_all).
+                The edits are atomic: either all of them are applied or none of them is.
+                Every edit is matched against the current file content, not against the result of the previous edits, so an edit cannot match the text inserted by another one.
+                The tool will FAIL if an old_string is not found, if it is not unique and replace_all is not set, or if two edits touch the same text.""";
+
+    /**
+     * Description for the glob tool
+     */
+
+    String GLOB_DESCRIPTION = """
+            Finds the files of the mock filesystem whose path matches a glob pattern, the paths are returned sorted.
+                Usage:
+            
+                Supported patterns: '*' (any characters but '/'), '?' (a character but '/'), '**' (any number of directories), '[abc]' (one of the characters) and '{md,txt}' (alternatives)
+                A pattern without '/' matches the file names in any directory, e.g. '*.md'
+                Use it to find files by name instead of listing all the files.""";
+
+    /**
+     * Description for the grep tool
+     */
+
+    String GREP_DESCRIPTION = """
+            Searches a regular expression in the contents of the files of the mock filesystem.
+                Usage:
+            
+                The pattern is a Java regular expression matched against each line, e.g. 'log.*Error' or 'function\\s+\\w+'
+                Filter the files to search with the glob parameter, e.g. '**/*.md'
+                outputMode 'files_with_matches' (default) returns the matching file paths, 'content' returns the matching lines as 'path:line:text'
+                Use it to find which files contain something instead of reading every file.""";
+
     /**
      * Description for the read_file tool
      * Ported exactly from Python TOOL_DESCRIPTION
@@ -314,4 +352,18 @@ interface Prompts {
                 Results are returned using cat -n format, with line numbers starting at 1
                 You have the capability to call multiple tools in a single response. It is always better to speculatively read multiple files as a batch that are potentially useful.
                 If you read a file that exists but has empty contents you will receive a system reminder warning in place of file contents.""";
-}
\ No newline at end of file
+
+    /**
+     * Message appended to the prompt of the forced final-answer turn, when the session budget is exhausted.
+     * The argument is the exhausted limit.
+     */
+    String BUDGET_FINAL_ANSWER_PROMPT = """
+            The budget of this session is exhausted (%s). You cannot call any tool anymore.
+            Reply now with your final answer, based only on the work done so far. Mention what remains incomplete.""";
+
+    /**
+     * Answer returned, in place of a model call, when the session budget is exhausted and no final-answer turn is left.
+     * The argument is the exhausted limit.
+     */
+    String BUDGET_EXHAUSTED_ANSWER = "The budget of this session is exhausted (%s): the task has been stopped before completion.";
+}
@@ -0,0 +1,54 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.bsc.langgraph4j.spring.ai.serializer.jackson.SpringAIJacksonStateSerializer;
+
+import java.io.IOException;
+
+/**
+ * State serializer that emits an {@link AgentEvents.StateSerialization} flight recorder event for each
+ * serialization and deserialization of the {@link DeepAgent.State} to and from bytes.
+ * <p>
+ * The events are emitted at the byte array boundary ({@code objectToBytes}/{@code bytesToObject}, used to clone
+ * the state of the checkpoints), where the size is the length of the array: the state is not serialized again to
+ * measure it. The reads and writes on streams owned by the caller are not recorded.
+ */
+class RecordedStateSerializer extends SpringAIJacksonStateSerializer<DeepAgent.State> {
+
+    RecordedStateSerializer() {
+        super(DeepAgent.State::new);
+    }
+
+    @Override
+    public byte[] objectToBytes(DeepAgent.State object) throws IOException {
+        final var event = new AgentEvents.StateSerialization();
+        if (!event.isEnabled()) {
+            return super.objectToBytes(object);
+        }
+        event.begin();
+        final var result = super.objectToBytes(object);
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = "write";
+            event.bytes = result.length;
+            event.commit();
+        }
+        return result;
+    }
+
+    @Override
+    public DeepAgent.State bytesToObject(byte[] bytes) throws IOException, ClassNotFoundException {
+        final var event = new AgentEvents.StateSerialization();
+        if (!event.isEnabled()) {
+            return super.bytesToObject(bytes);
+        }
+        event.begin();
+        final var result = super.bytesToObject(bytes);
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = "read";
+            event.bytes = bytes.length;
+            event.commit();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,80 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link ToolCallback} decorator that emits an {@link AgentEvents.ToolInvocation} flight recorder event for each call
+ */
+class RecordedToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+    private final String agent;
+
+    private RecordedToolCallback(ToolCallback delegate, String agent) {
+        this.delegate = requireNonNull(delegate, "delegate cannot be null");
+        this.agent = requireNonNull(agent, "agent cannot be null");
+    }
+
+    /**
+     * Decorates the given tools, if flight recorder events are enabled
+     *
+     * @param tools   the tools
+     * @param enabled true if the flight recorder events are enabled
+     * @param agent   the name of the agent using the tools
+     * @return the (decorated) tools
+     */
+    static List<ToolCallback> of(List<ToolCallback> tools, boolean enabled, String agent) {
+        if (!enabled) {
+            return tools;
+        }
+        return tools.stream()
+                .map(tool -> (ToolCallback) new RecordedToolCallback(tool, agent))
+                .toList();
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        final var event = new AgentEvents.ToolInvocation();
+        event.begin();
+        final var status = ToolCallStatus.enter(this, delegate);
+        String result = null;
+        try {
+            result = (toolContext != null) ? delegate.call(toolInput, toolContext) : delegate.call(toolInput);
+            return result;
+        } finally {
+            final var error = status.exit() || result == null;
+            event.end();
+            if (event.shouldCommit()) {
+                event.agent = agent;
+                event.tool = delegate.getToolDefinition().name();
+                // UTF-16 size, the exact encoded size is not worth an extra pass on huge files
+                event.argumentsBytes = (toolInput != null) ? 2L * toolInput.length() : 0L;
+                event.resultBytes = (result != null) ? 2L * result.length() : 0L;
+                event.error = error;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Deterministic, offline {@link ChatModel} that replays scripted turns (text and/or tool calls).
+ * <p>
+ * A script is selected by a predicate on the prompt (e.g. on the system prompt, to distinguish the main agent
+ * from the sub-agents) and the turn to replay is the number of assistant messages already in the prompt,
+ * so the same model instance can serve many concurrent sessions.
+ * A configurable latency distribution simulates the provider response time.
+ */
+public class ScriptedChatModel implements ChatModel {
+
+    /**
+     * A scripted assistant turn
+     */
+    public record Turn( String text, List<AssistantMessage.ToolCall> toolCalls ) {
+
+        public static Turn text( String text ) {
+            return new Turn( text, List.of() );
+        }
+
+        /**
+         * Turn that calls the given tools, the tool call ids are generated on each replay
+         *
+         * @param nameAndArguments pairs of tool name and json arguments
+         */
+        public static Turn toolCalls( String... nameAndArguments ) {
+            if( nameAndArguments.length % 2 != 0 ) {
+                throw new IllegalArgumentException("expected pairs of tool name and arguments");
+            }
+            final var calls = new ArrayList<AssistantMessage.ToolCall>();
+            for( int i = 0 ; i < nameAndArguments.length ; i += 2 ) {
+                calls.add( new AssistantMessage.ToolCall( "", "function", nameAndArguments[i], nameAndArguments[i+1] ) );
+            }
+            return new Turn( "", List.copyOf(calls) );
+        }
+    }
+
+    /**
+     * Simulated provider latency
+     */
+    @FunctionalInterface
+    public interface Latency {
+
+        long nextMillis();
+
+        static Latency none() {
+            return () -> 0L;
+        }
+
+        static Latency fixed( long millis ) {
+            return () -> millis;
+        }
+
+        static Latency uniform( long minMillis, long maxMillis ) {
+            return () -> ThreadLocalRandom.current().nextLong( minMillis, maxMillis + 1 );
+        }
+
+        /**
+         * Log-normal latency, typical of the LLM providers (long right tail)
+         *
+         * @param medianMillis the median latency
+         * @param sigma        the standard deviation of the underlying normal distribution (e.g. 0.5)
+         */
+        static Latency logNormal( long medianMillis, double sigma ) {
+            final var mu = Math.log( medianMillis );
+            return () -> Math.round( Math.exp( mu + sigma * ThreadLocalRandom.current().nextGaussian() ) );
+        }
+    }
+
+    private record Script( Predicate<Prompt> when, List<Turn> turns ) {}
+
+    public static class Builder {
+        private final List<Script> scripts = new ArrayList<>();
+        private Latency latency = Latency.none();
+        private Turn fallback = Turn.text("Done");
+        private int recordPrompts;
+
+        /**
+         * Adds a script replayed when the prompt matches the given predicate
+         */
+        public Builder script( Predicate<Prompt> when, Turn... turns ) {
+            scripts.add( new Script( requireNonNull(when, "when cannot be null"), List.of(turns) ) );
+            return this;
+        }
+
+        /**
+         * Adds a script replayed when the system prompt contains the given text
+         */
+        public Builder scriptForSystem( String systemPromptContains, Turn... turns ) {
+            requireNonNull(systemPromptContains, "systemPromptContains cannot be null");
+            return script( prompt -> systemText(prompt).contains(systemPromptContains), turns );
+        }
+
+        /**
+         * Turn replayed when no script matches or a script is over. Default is the text {@code Done}
+         */
+        public Builder fallback( Turn fallback ) {
+            this.fallback = requireNonNull(fallback, "fallback cannot be null");
+            return this;
+        }
+
+        public Builder latency( Latency latency ) {
+            this.latency = requireNonNull(latency, "latency cannot be null");
+            return this;
+        }
+
+        /**
+         * Keeps the last {@code maxPrompts} received prompts, see {@link #prompts()}
+         */
+        public Builder recordPrompts( int maxPrompts ) {
+            this.recordPrompts = maxPrompts;
+            return this;
+        }
+
+        public ScriptedChatModel build() {
+            return new ScriptedChatModel( this );
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final List<Script> scripts;
+    private final Latency latency;
+    private final Turn fallback;
+    private final int recordPrompts;
+    private final List<Prompt> prompts = Collections.synchronizedList( new ArrayList<>() );
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong toolCallIds = new AtomicLong();
+
+    private ScriptedChatModel( Builder builder ) {
+        this.scripts = List.copyOf( builder.scripts );
+        this.latency = builder.latency;
+        this.fallback = builder.fallback;
+        this.recordPrompts = builder.recordPrompts;
+    }
+
+    private static String systemText( Prompt prompt ) {
+        return prompt.getInstructions().stream()
+                .filter( SystemMessage.class::isInstance )
+                .map( Message::getText )
+                .findFirst()
+                .orElse("");
+    }
+
+    /**
+     * Rough token estimation (4 chars per token) used to fill the usage metadata
+     */
+    static int estimateTokens( String text ) {
+        return ( text == null ) ? 0 : ( text.length() + 3 ) / 4;
+    }
+
+    /**
+     * @return the number of calls received
+     */
+    public long calls() {
+        return calls.get();
+    }
+
+    /**
+     * @return the recorded prompts, see {@link Builder#recordPrompts(int)}
+     */
+    public List<Prompt> prompts() {
+        synchronized ( prompts ) {
+            return List.copyOf( prompts );
+        }
+    }
+
+    @Override
+    public ChatResponse call( Prompt prompt ) {
+        calls.incrementAndGet();
+
+        if( recordPrompts > 0 ) {
+            synchronized ( prompts ) {
+                prompts.add( prompt );
+                if( prompts.size() > recordPrompts ) {
+                    prompts.remove(0);
+                }
+            }
+        }
+
+        final var turnIndex = (int)prompt.getInstructions().stream()
+                .filter( AssistantMessage.class::isInstance )
+                .count();
+
+        final var turn = scripts.stream()
+                .filter( script -> script.when().test( prompt ) )
+                .findFirst()
+                .filter( script -> turnIndex < script.turns().size() )
+                .map( script -> script.turns().get( turnIndex ) )
+                .orElse( fallback );
+
+        final var delay = latency.nextMillis();
+        if( delay > 0 ) {
+            try {
+                Thread.sleep( delay );
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException( "interrupted", e );
+            }
+        }
+
+        final var toolCalls = turn.toolCalls().stream()
+                .map( call -> new AssistantMessage.ToolCall( "call_" + toolCallIds.incrementAndGet(),
+                        call.type(), call.name(), call.arguments() ) )
+                .toList();
+
+        final var promptTokens = prompt.getInstructions().stream()
+                .mapToInt( message -> estimateTokens( message.getText() ) )
+                .sum();
+        final var completionTokens = estimateTokens( turn.text() ) +
+                toolCalls.stream().mapToInt( call -> estimateTokens( call.arguments() ) ).sum();
+
+        final var metadata = ChatResponseMetadata.builder()
+                .model("scripted")
+                .usage( new DefaultUsage( promptTokens, completionTokens ) )
+                .build();
+
+        return new ChatResponse( List.of( new Generation( new AssistantMessage( turn.text(), Map.of(), toolCalls ) ) ), metadata );
+    }
+
+}
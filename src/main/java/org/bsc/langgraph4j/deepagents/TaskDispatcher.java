@@ -0,0 +1,301 @@
+package org.bsc.langgraph4j.deepagents;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.chat.messages.AssistantMessage;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Runs the {@code task} calls emitted by the same assistant message concurrently.
+ * <p>
+ * The ReAct action node executes the tool calls one after another. When the first {@code task} call of a message
+ * is executed, all the {@code task} calls of that message are launched on the executor; each following (sequential)
+ * {@code task} call just joins its own, already running, execution.
+ * The results are therefore returned, and their {@code files} updates merged through the {@link FileChannel},
+ * in the same order of the tool calls.
+ * <p>
+ * A launched batch is kept until all its calls have been claimed: evicting it earlier would launch the whole batch
+ * again on the next sibling call. A batch whose calls are never all claimed (e.g. the node has been interrupted)
+ * is evicted once all its executions have completed and the retention time has elapsed; when a call already
+ * claimed is dispatched again (e.g. the node is retried) the batch is stale and it is launched again.
+ */
+class TaskDispatcher {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(TaskDispatcher.class);
+
+    @FunctionalInterface
+    interface TaskRunner {
+        /**
+         * @param args       the task arguments
+         * @param toolCallId the id of the {@code task} call, {@code null} if unknown
+         * @param context    the tool context (i.e. the parent state)
+         */
+        TaskToolBuilder.TaskResult run(TaskToolBuilder.TaskToolArgs args, String toolCallId, Map<String, Object> context) throws Exception;
+    }
+
+    private final Executor executor;
+    private final TaskRunner runner;
+    private final Map<String, Semaphore> permits;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+    private final long retentionNanos;
+
+    /**
+     * Default time a completed batch is kept waiting for its unclaimed calls
+     */
+    static final Duration DEFAULT_RETENTION = Duration.ofMinutes(1);
+
+    TaskDispatcher(Executor executor, List<DeepAgent.SubAgent> subAgents, TaskRunner runner) {
+        this(executor, subAgents, runner, DEFAULT_RETENTION);
+    }
+
+    TaskDispatcher(Executor executor, List<DeepAgent.SubAgent> subAgents, TaskRunner runner, Duration retention) {
+        this.retentionNanos = requireNonNull(retention, "retention cannot be null").toNanos();
+        this.executor = requireNonNull(executor, "executor cannot be null");
+        this.runner = requireNonNull(runner, "runner cannot be null");
+        this.permits = requireNonNull(subAgents, "subAgents cannot be null").stream()
+                .filter(subAgent -> subAgent.maxConcurrency() > 0)
+                .collect(Collectors.toUnmodifiableMap(
+                        DeepAgent.SubAgent::name,
+                        subAgent -> new Semaphore(subAgent.maxConcurrency(), true)));
+    }
+
+    /**
+     * Executes the given task, launching together with it all the sibling {@code task} calls of the current assistant message.
+     *
+     * @param args    the task arguments
+     * @param context the tool context (i.e. the parent state)
+     * @return the task result
+     */
+    TaskToolBuilder.TaskResult dispatch(TaskToolBuilder.TaskToolArgs args, Map<String, Object> context) throws Exception {
+
+        final var calls = taskCalls(context);
+
+        evictExpired();
+
+        if (calls.size() < 2) {
+            return runGuarded(args, toolCallId(calls, args, mapper), context);
+        }
+
+        final var batchKey = calls.stream()
+                .map(call -> call.id() + ':' + call.arguments())
+                .collect(Collectors.joining("|"));
+
+        var batch = batches.computeIfAbsent(batchKey, key -> launch(calls, context));
+
+        var future = batch.claim(args);
+
+        if (future == null && batch.isClaimed(args)) {
+            // the call has already been executed (e.g. the node is retried): the batch is stale, launch it again
+            final var stale = batch;
+            batch = batches.compute(batchKey, (key, current) -> current == null || current == stale
+                    ? launch(calls, context)
+                    : current);
+            future = batch.claim(args);
+        }
+
+        // the batch is removed only when its last call is claimed
+        if (batch.isFullyClaimed()) {
+            batches.remove(batchKey, batch);
+        }
+
+        if (future == null) {
+            // not part of the batch (e.g. unparsable arguments) run it in place
+            return runGuarded(args, toolCallId(calls, args, mapper), context);
+        }
+
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private Batch launch(List<AssistantMessage.ToolCall> calls, Map<String, Object> context) {
+        final var entries = new ArrayList<Batch.Entry>(calls.size());
+
+        for (var call : calls) {
+            final TaskToolBuilder.TaskToolArgs callArgs;
+            try {
+                callArgs = mapper.readValue(call.arguments(), TaskToolBuilder.TaskToolArgs.class);
+            } catch (Exception ex) {
+                log.warn("cannot parse arguments of task call '{}'. It will be executed sequentially", call.id(), ex);
+                continue;
+            }
+
+            final var future = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return runGuarded(callArgs, call.id(), context);
+                } catch (RuntimeException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    throw new CompletionException(ex);
+                }
+            }, executor);
+
+            entries.add(new Batch.Entry(callArgs, future));
+        }
+
+        log.debug("launched {} parallel task(s)", entries.size());
+
+        return new Batch(entries);
+    }
+
+    /**
+     * Number of launched batches with calls not claimed yet
+     */
+    int pendingBatches() {
+        evictExpired();
+        return batches.size();
+    }
+
+    /**
+     * Evicts the batches completed since more than the retention time, whose remaining calls will never be claimed
+     */
+    private void evictExpired() {
+        if (batches.isEmpty()) {
+            return;
+        }
+        final var now = System.nanoTime();
+        batches.values().removeIf(batch -> batch.isExpired(now, retentionNanos));
+    }
+
+    /**
+     * @param context the tool context (i.e. the parent state)
+     * @return the {@code task} calls of the last assistant message
+     */
+    static List<AssistantMessage.ToolCall> taskCalls(Map<String, Object> context) {
+        return new DeepAgent.State(context).lastMessage()
+                .filter(AssistantMessage.class::isInstance)
+                .map(AssistantMessage.class::cast)
+                .map(AssistantMessage::getToolCalls)
+                .orElseGet(List::of)
+                .stream()
+                .filter(call -> "task".equals(call.name()))
+                .toList();
+    }
+
+    /**
+     * @return the id of the first of the given {@code task} calls having the given arguments, {@code null} if none
+     */
+    static String toolCallId(List<AssistantMessage.ToolCall> calls, TaskToolBuilder.TaskToolArgs args, ObjectMapper mapper) {
+        for (var call : calls) {
+            try {
+                if (args.equals(mapper.readValue(call.arguments(), TaskToolBuilder.TaskToolArgs.class))) {
+                    return call.id();
+                }
+            } catch (Exception ex) {
+                // unparsable arguments, not the call
+            }
+        }
+        return null;
+    }
+
+    private TaskToolBuilder.TaskResult runGuarded(TaskToolBuilder.TaskToolArgs args, String toolCallId, Map<String, Object> context) throws Exception {
+        final var semaphore = permits.get(args.subAgentType());
+        if (semaphore == null) {
+            return runner.run(args, toolCallId, context);
+        }
+        semaphore.acquire();
+        try {
+            return runner.run(args, toolCallId, context);
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    private static class Batch {
+        record Entry(TaskToolBuilder.TaskToolArgs args, CompletableFuture<TaskToolBuilder.TaskResult> future) {}
+
+        private final List<Entry> entries;
+        private final boolean[] claimed;
+        private int unclaimed;
+        private volatile long completedAt;
+        private volatile boolean completed;
+
+        Batch(List<Entry> entries) {
+            this.entries = entries;
+            this.claimed = new boolean[entries.size()];
+            this.unclaimed = entries.size();
+            CompletableFuture.allOf(entries.stream().map(Entry::future).toArray(CompletableFuture[]::new))
+                    .whenComplete((result, ex) -> {
+                        completedAt = System.nanoTime();
+                        completed = true;
+                    });
+        }
+
+        synchronized CompletableFuture<TaskToolBuilder.TaskResult> claim(TaskToolBuilder.TaskToolArgs args) {
+            for (int i = 0; i < entries.size(); ++i) {
+                if (!claimed[i] && entries.get(i).args().equals(args)) {
+                    claimed[i] = true;
+                    --unclaimed;
+                    return entries.get(i).future();
+                }
+            }
+            return null;
+        }
+
+        synchronized boolean isClaimed(TaskToolBuilder.TaskToolArgs args) {
+            for (int i = 0; i < entries.size(); ++i) {
+                if (claimed[i] && entries.get(i).args().equals(args)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized boolean isFullyClaimed() {
+            return unclaimed == 0;
+        }
+
+        boolean isExpired(long now, long retentionNanos) {
+            return completed && now - completedAt >= retentionNanos;
+        }
+    }
+
+    private static class DefaultExecutorHolder {
+        static final ExecutorService INSTANCE = newDefaultExecutor();
+    }
+
+    /**
+     * Default (shared) executor: virtual threads when running on Java 21+, otherwise a cached pool of daemon threads.
+     */
+    static Executor defaultExecutor() {
+        return DefaultExecutorHolder.INSTANCE;
+    }
+
+    private static ExecutorService newDefaultExecutor() {
+        try {
+            var factory = MethodHandles.publicLookup().findStatic(Executors.class,
+                    "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+            return (ExecutorService) factory.invoke();
+        } catch (Throwable ex) {
+            log.debug("virtual threads not available, fallback to cached thread pool");
+        }
+        final var counter = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            var thread = new Thread(runnable, "deepagents-task-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,166 @@
+package org.bsc.langgraph4j.deepagents;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Cache of the sub-agent task results.
+ * <p>
+ * A {@code task} call whose key (sub-agent name and definition, normalized description and hash of the input
+ * {@code files}) is cached skips the sub-agent run: the recorded answer is returned and the recorded {@code files} update is applied.
+ * Tasks of sub-agents receiving the full context ({@link DeepAgent.SubAgent.InputPolicy#FULL_CONTEXT}) are never
+ * cached, since their result depends on the whole conversation, as well as the runs cut short by an exhausted
+ * {@link Budget}.
+ * <p>
+ * Keys and entries hold the file contents, not the {@link FileStore} references: they are meaningful to any store
+ * and to any process, so a persistent cache never replays references of a store that no longer exists.
+ */
+public interface TaskResultCache {
+
+    /**
+     * Cache key
+     *
+     * @param subAgent    the sub-agent name
+     * @param agentHash   the hash of the sub-agent definition, see {@link #agentHash(String, Collection, String)}
+     * @param description the normalized task description
+     * @param inputHash   the hash of the sub-agent input (files and, if passed, todos)
+     */
+    record Key(String subAgent, String agentHash, String description, String inputHash) {
+
+        public Key {
+            requireNonNull(subAgent, "subAgent cannot be null");
+            requireNonNull(agentHash, "agentHash cannot be null");
+            requireNonNull(description, "description cannot be null");
+            requireNonNull(inputHash, "inputHash cannot be null");
+        }
+
+        /**
+         * Hash of a sub-agent definition: a change of its prompt, tools or model invalidates its cached results
+         *
+         * @param prompt    the sub-agent system prompt, may be {@code null}
+         * @param toolNames the names of the sub-agent tools, in any order
+         * @param model     the description of the model and of its options
+         */
+        static String agentHash(String prompt, Collection<String> toolNames, String model) {
+            final var digest = sha256();
+            digest.update(String.valueOf(prompt).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            toolNames.stream().sorted().forEach(name -> {
+                digest.update(name.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            });
+            digest.update(String.valueOf(model).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        }
+
+        /**
+         * Creates the key of a task
+         *
+         * @param subAgent    the sub-agent name
+         * @param agentHash   the hash of the sub-agent definition
+         * @param description the task description, whitespaces are normalized
+         * @param files       the files passed to the sub-agent (path to content)
+         * @param todos       the todos passed to the sub-agent, may be {@code null}
+         */
+        static Key of(String subAgent, String agentHash, String description, Map<String, String> files, Object todos) {
+            final var digest = sha256();
+            new TreeMap<>(files).forEach((path, content) -> {
+                digest.update(path.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(String.valueOf(content).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            });
+            if (todos != null) {
+                digest.update(String.valueOf(todos).getBytes(StandardCharsets.UTF_8));
+            }
+            return new Key(subAgent,
+                    agentHash,
+                    description.strip().replaceAll("\\s+", " "),
+                    HexFormat.of().formatHex(digest.digest()));
+        }
+
+        /**
+         * @return the SHA-256 digest of the whole key and of the cache format
+         */
+        public String digest() {
+            final var digest = sha256();
+            // format 3: sub-agent definition hashed (format 2 didn't), files hashed and cached by content
+            // (format 1 used the store references)
+            digest.update((byte) 3);
+            digest.update(subAgent.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(agentHash.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(description.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(inputHash.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        }
+
+        private static MessageDigest sha256() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Cached result
+     *
+     * @param text  the sub-agent final answer
+     * @param files the files created or modified by the sub-agent run (path to content)
+     */
+    record Entry(String text, Map<String, String> files) {
+
+        public Entry {
+            requireNonNull(text, "text cannot be null");
+            files = Map.copyOf(requireNonNull(files, "files cannot be null"));
+        }
+    }
+
+    Optional<Entry> get(Key key);
+
+    /**
+     * Stores an entry. The writes are best-effort: a failure is logged by the caller and the task result is
+     * returned anyway.
+     *
+     * @throws RuntimeException if the entry cannot be stored (e.g. {@link java.io.UncheckedIOException})
+     */
+    void put(Key key, Entry entry);
+
+    /**
+     * In-memory cache with LRU eviction
+     *
+     * @param maxEntries max number of entries
+     * @param ttl        time to live of an entry
+     */
+    static TaskResultCache inMemory(int maxEntries, Duration ttl) {
+        return new InMemoryTaskResultCache(maxEntries, ttl, System::currentTimeMillis);
+    }
+
+    /**
+     * Cache stored in a local directory (one json file per entry), shared across sessions and restarts.
+     * The oldest entries are evicted first.
+     * <p>
+     * The cached files are contents, so the cache can be used with any {@link FileStore}.
+     *
+     * @param root       the root directory, created if it doesn't exist
+     * @param maxEntries max number of entries
+     * @param ttl        time to live of an entry
+     */
+    static TaskResultCache directory(Path root, int maxEntries, Duration ttl) {
+        return new DirectoryTaskResultCache(root, maxEntries, ttl, System::currentTimeMillis);
+    }
+}
@@ -2,6 +2,9 @@ package org.bsc.langgraph4j.deepagents;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bsc.langgraph4j.CompileConfig;
+import org.bsc.langgraph4j.CompiledGraph;
 import org.bsc.langgraph4j.GraphInput;
 import org.bsc.langgraph4j.GraphStateException;
 import org.bsc.langgraph4j.RunnableConfig;
@@ -17,6 +20,7 @@ import org.springframework.ai.tool.ToolCallback;
 import org.springframework.ai.tool.function.FunctionToolCallback;
 
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -28,16 +32,27 @@ class TaskToolBuilder {
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(TaskToolBuilder.class);
 
     private List<DeepAgent.SubAgent> subAgents;
-    private Map<String, ToolCallback> tools;
+    private SortedMap<String, ToolCallback> tools;
     private ChatModel model;
+    private Executor executor;
+    private AgentMetrics metrics = AgentMetrics.NOOP;
+    private AgentTracing tracing = AgentTracing.NOOP;
+    private boolean flightRecorderEvents;
+    private BudgetScope budgetScope;
+    private Compaction compaction;
+    private TaskResultCache resultCache;
+    private FileStore fileStore = FileStore.inline();
 
     public TaskToolBuilder subAgents(List<DeepAgent.SubAgent> subAgents ) {
         this.subAgents = List.copyOf( requireNonNull(subAgents,"subAgents cannot be null") );
         return this;
     }
 
+    /**
+     * Tools available to the sub-agents, kept sorted by name: the sub-agents tools are in canonical order
+     */
     public TaskToolBuilder tools( Map<String, ToolCallback> tools  ) {
-        this.tools = Map.copyOf( requireNonNull(tools, "tools cannot be null") );
+        this.tools = Collections.unmodifiableSortedMap( new TreeMap<>( requireNonNull(tools, "tools cannot be null") ) );
         return this;
     }
 
@@ -46,6 +61,143 @@ class TaskToolBuilder {
         return this;
     }
 
+    /**
+     * Enables the parallel execution of the {@code task} calls emitted by the same assistant message
+     *
+     * @param executor executor used to run the sub-agents. If {@code null} the tasks are executed sequentially
+     */
+    public TaskToolBuilder executor( Executor executor ) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Holds the sub-agent graph and compiles it lazily, only once, on its first use.
+     * The resulting {@link CompiledGraph} is shared across all the {@code task} calls (and sessions).
+     */
+    static class SubAgentGraph {
+        private final DeepAgent.SubAgent subAgent;
+        private final StateGraph<DeepAgent.State> graph;
+        private final CompileConfig compileConfig;
+        private final String agentHash;
+        private volatile CompiledGraph<DeepAgent.State> compiledGraph;
+
+        SubAgentGraph(DeepAgent.SubAgent subAgent, StateGraph<DeepAgent.State> graph, CompileConfig compileConfig, String agentHash) {
+            this.subAgent = requireNonNull(subAgent, "subAgent cannot be null");
+            this.graph = requireNonNull(graph, "graph cannot be null");
+            this.compileConfig = compileConfig;
+            this.agentHash = requireNonNull(agentHash, "agentHash cannot be null");
+        }
+
+        DeepAgent.SubAgent subAgent() {
+            return subAgent;
+        }
+
+        /**
+         * @return the hash of the sub-agent definition (prompt, tools and model), part of the result cache key
+         */
+        String agentHash() {
+            return agentHash;
+        }
+
+        /**
+         * Releases the thread of a completed run in the checkpoint saver, if any
+         */
+        void release(RunnableConfig config) {
+            if (compileConfig == null) {
+                return;
+            }
+            compileConfig.checkpointSaver().ifPresent(saver -> {
+                try {
+                    saver.release(config);
+                } catch (Exception ex) {
+                    log.warn("cannot release the thread '{}' of agent '{}'",
+                            config.threadId().orElse(null), subAgent.name(), ex);
+                }
+            });
+        }
+
+        CompiledGraph<DeepAgent.State> compiled() throws GraphStateException {
+            var result = compiledGraph;
+            if (result == null) {
+                synchronized (this) {
+                    result = compiledGraph;
+                    if (result == null) {
+                        result = (compileConfig != null) ? graph.compile(compileConfig) : graph.compile();
+                        compiledGraph = result;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Metrics recorder for the sub-agents (tasks, tool and model calls). Default is {@link AgentMetrics#NOOP}
+     */
+    public TaskToolBuilder metrics( AgentMetrics metrics ) {
+        this.metrics = requireNonNull( metrics, "metrics cannot be null" );
+        return this;
+    }
+
+    /**
+     * Tracing of the sub-agents (runs, nodes, tool and model calls). Default is {@link AgentTracing#NOOP}
+     */
+    TaskToolBuilder tracing( AgentTracing tracing ) {
+        this.tracing = requireNonNull( tracing, "tracing cannot be null" );
+        return this;
+    }
+
+    /**
+     * Emits the flight recorder events (see {@link AgentEvents}) of the sub-agents. Default is false
+     */
+    TaskToolBuilder flightRecorderEvents( boolean flightRecorderEvents ) {
+        this.flightRecorderEvents = flightRecorderEvents;
+        return this;
+    }
+
+    /**
+     * Budget scope of the parent agent, the sub-agents draw from the budget of its current run.
+     * {@code null} means no budget
+     */
+    TaskToolBuilder budgetScope( BudgetScope budgetScope ) {
+        this.budgetScope = budgetScope;
+        return this;
+    }
+
+    /**
+     * Compaction of the sub-agents prompts, {@code null} means no compaction
+     */
+    public TaskToolBuilder compaction( Compaction compaction ) {
+        this.compaction = compaction;
+        return this;
+    }
+
+    /**
+     * Store of the files the sub-agents work on, used to resolve the cached task inputs and results.
+     * Default is {@link FileStore#inline()}
+     */
+    TaskToolBuilder fileStore( FileStore fileStore ) {
+        this.fileStore = requireNonNull( fileStore, "fileStore cannot be null" );
+        return this;
+    }
+
+    /**
+     * Cache of the task results, {@code null} means no cache
+     */
+    public TaskToolBuilder resultCache( TaskResultCache resultCache ) {
+        this.resultCache = resultCache;
+        return this;
+    }
+
+    /**
+     * Result of a sub-agent run
+     *
+     * @param text  the sub-agent final answer
+     * @param files the files created or modified by the sub-agent
+     */
+    record TaskResult( String text, Map<String,String> files ) {}
+
     record TaskToolArgs(
             String description,
             String subAgentType
@@ -66,23 +218,29 @@ class TaskToolBuilder {
                         Tools.editFile(),
                         Tools.writeTodos()));
         */
-        var agentsMap = new HashMap<String, StateGraph<DeepAgent.State>>();
+        // canonical ordering: the task tool definition (part of the prompt prefix) doesn't depend on the declaration order
+        final var sortedSubAgents = subAgents.stream()
+                .sorted( Comparator.comparing( DeepAgent.SubAgent::name ) )
+                .toList();
 
-        for( var subAgent : subAgents ) {
+        var agentsMap = new HashMap<String, SubAgentGraph>();
 
+        for( var subAgent : sortedSubAgents ) {
+
+            // the tools map is sorted by name: the sub-agent tools are in canonical order
             var subAgentTools = new ArrayList<ToolCallback>();
 
             if( subAgent.tools() != null ) {
                 for (var toolName : subAgent.tools()) {
-
-                    var resolvedTool = tools.get(toolName);
-
-                    if (resolvedTool != null) {
-                        subAgentTools.add(resolvedTool);
-                    } else {
+                    if (!tools.containsKey(toolName)) {
                         log.warn("Warning: Tool '{}' not found for agent '{}'", toolName, subAgent.name());
                     }
                 }
+                tools.forEach( (toolName, tool) -> {
+                    if (subAgent.tools().contains(toolName)) {
+                        subAgentTools.add(tool);
+                    }
+                });
             }
             else {
                 subAgentTools.addAll( tools.values() );
@@ -90,53 +248,172 @@ class TaskToolBuilder {
 
             var reactAgent = ReactAgent.<DeepAgent.State>builder()
                     //.stateSerializer( new SpringAIStateSerializer<>( DeepAgent.State::new ) )
-                    .stateSerializer( new SpringAIJacksonStateSerializer<>( DeepAgent.State::new ))
-                    .chatModel( model )
-                    .tools( subAgentTools )
+                    .stateSerializer( flightRecorderEvents
+                            ? new RecordedStateSerializer()
+                            : new SpringAIJacksonStateSerializer<>( DeepAgent.State::new ))
+                    .chatModel( BudgetChatModel.of( CompactingChatModel.of(
+                            tracing.chatModel( InstrumentedChatModel.of( model, metrics, subAgent.name() ), subAgent.name() ),
+                            compaction ), budgetScope, false ) )
+                    .tools( tracing.tools( InstrumentedToolCallback.of(
+                                    RecordedToolCallback.of( subAgentTools, flightRecorderEvents, subAgent.name() ),
+                                    metrics, subAgent.name() ),
+                            subAgent.name() ) )
                     .schema( DeepAgent.State.SCHEMA )
                     .defaultSystem( subAgent.prompt() )
                     .build();
 
-            agentsMap.put( subAgent.name(), reactAgent );
+            final var agentHash = TaskResultCache.Key.agentHash( subAgent.prompt(),
+                    subAgentTools.stream().map( tool -> tool.getToolDefinition().name() ).toList(),
+                    modelDescription( model ) );
+
+            agentsMap.put( subAgent.name(), new SubAgentGraph( subAgent,
+                                                reactAgent,
+                                                tracing.compileConfig( subAgent.compileConfig(), subAgent.name() ),
+                                                agentHash ) );
 
         }
 
-        return  FunctionToolCallback.<TaskToolArgs, String>builder( "task", (input, context ) -> {
+        final TaskDispatcher.TaskRunner runner = ( input, toolCallId, context ) -> {
 
-            var reactAgent = agentsMap.get(input.subAgentType());
-            if (reactAgent == null ) {
-                return format("Error: Agent '%s' not found. Available agents: %s",
-                        input.subAgentType(),
-                        agentsMap.keySet().stream().collect(Collectors.joining(", ")));
+            var subAgentGraph = agentsMap.get(input.subAgentType());
+            if (subAgentGraph == null ) {
+                throw new IllegalArgumentException( format("Agent '%s' not found", input.subAgentType()));
             }
 
-            // final var state = new DeepAgent.State(context.getContext());
-
-            var inputState = mergeMap( context.getContext(),
-                    Map.of("messages", (Object)UserMessage.builder().text(input.description()).build()),
-                    (v1, v2) -> v2);
+            var inputState = inputState( subAgentGraph.subAgent().inputPolicy(),
+                                        context,
+                                        UserMessage.builder().text(input.description()).build() );
 
             DeepAgent.log.debug( "tool: 'task' call: {}\n{}", input, inputState);
 
+            final var cacheKey = cacheKey( subAgentGraph, input.description(), inputState );
+
+            final var startEvent = new AgentEvents.SubAgentStart();
+            if( startEvent.shouldCommit() ) {
+                startEvent.subAgent = input.subAgentType();
+                startEvent.description = input.description();
+                startEvent.commit();
+            }
+            final var endEvent = new AgentEvents.SubAgentEnd();
+            endEvent.begin();
+
+            final var start = System.nanoTime();
+
+            if( cacheKey != null ) {
+                var cached = resultCache.get( cacheKey );
+                if( cached.isPresent() ) {
+                    DeepAgent.log.debug( "tool: 'task' result cache hit: {}", cacheKey );
+                    // the cached files are contents: they are written again, the references are the ones of this store
+                    final var files = new HashMap<String,String>();
+                    cached.get().files().forEach( (path, content) -> files.put( path, fileStore.write( path, content ) ) );
+
+                    metrics.recordTaskCacheHit( input.subAgentType(), System.nanoTime() - start );
+                    endEvent.end();
+                    if( endEvent.shouldCommit() ) {
+                        endEvent.subAgent = input.subAgentType();
+                        endEvent.changedFiles = files.size();
+                        endEvent.cached = true;
+                        endEvent.commit();
+                    }
+                    return new TaskResult( cached.get().text(), Map.copyOf( files ) );
+                }
+            }
+
             final var inputArgs = GraphInput.args( inputState );
 
-            final var config = RunnableConfig.builder().build();
+            // a thread per task call, named after the call: the compiled graph (and its checkpoint saver, if any) is
+            // shared. The tools don't see the config of the parent run, the call id (unique per model response)
+            // identifies the task; the thread is released when the run completes
+            final var config = RunnableConfig.builder()
+                    .threadId( format( "%s-%s", input.subAgentType(),
+                            ( toolCallId != null && !toolCallId.isBlank() ) ? toolCallId : UUID.randomUUID() ) )
+                    .build();
+
+            final DeepAgent.State outputState;
             try {
+                outputState = tracing.subAgentRun( input.subAgentType(), input.description(), () -> {
+                    try {
+                        return subAgentGraph.compiled().invokeFinal( inputArgs, config )
+                                .map( o -> o.state() )
+                                .orElseThrow();
+                    }
+                    finally {
+                        subAgentGraph.release( config );
+                    }
+                });
+            }
+            catch( Exception ex ) {
+                metrics.recordTask( input.subAgentType(), System.nanoTime() - start, true );
+                endEvent.end();
+                if( endEvent.shouldCommit() ) {
+                    endEvent.subAgent = input.subAgentType();
+                    endEvent.error = true;
+                    endEvent.commit();
+                }
+                throw ex;
+            }
+            metrics.recordTask( input.subAgentType(), System.nanoTime() - start, false );
 
-                var output = reactAgent.compile().invokeFinal( inputArgs, config );
+            final var files = changedFiles( new DeepAgent.State(context).files(), outputState.files() );
 
-                var outputState = output.map( o -> o.state() ).orElseThrow();
+            endEvent.end();
+            if( endEvent.shouldCommit() ) {
+                endEvent.subAgent = input.subAgentType();
+                endEvent.changedFiles = files.size();
+                endEvent.commit();
+            }
+
+            final var result = new TaskResult( outputState.lastMessage()
+                                        .map( msg -> msg.getText() )
+                                        .orElse( "Task completed"),
+                                    files );
+            // a run cut short by the budget (forced or synthetic final answer) is not a result to replay
+            if( cacheKey != null && !budgetExhausted() ) {
+                final var contents = fileStore.readAll( files );
+                if( contents.size() == files.size() ) {
+                    // best-effort: a cache failure doesn't turn the result into an error
+                    try {
+                        resultCache.put( cacheKey, new TaskResultCache.Entry( result.text(), contents ) );
+                    }
+                    catch( RuntimeException ex ) {
+                        log.warn( "cannot cache the result of task '{}' of agent '{}'",
+                                input.description(), input.subAgentType(), ex );
+                    }
+                }
+            }
+            return result;
+        };
+
+        final var launcher = ( budgetScope != null ) ? budgetScope.executor( executor ) : executor;
+        final var dispatcher = ( executor != null )
+                ? new TaskDispatcher( tracing.executor( launcher ), subAgents, runner )
+                : null;
+        final var mapper = new ObjectMapper();
+
+        return  FunctionToolCallback.<TaskToolArgs, String>builder( "task", (input, context ) -> {
+
+            if (!agentsMap.containsKey(input.subAgentType()) ) {
+                return ToolCallStatus.error( format("Error: Agent '%s' not found. Available agents: %s",
+                        input.subAgentType(),
+                        agentsMap.keySet().stream().sorted().collect(Collectors.joining(", "))) );
+            }
+
+            try {
+
+                var result = ( dispatcher != null )
+                        ? dispatcher.dispatch( input, context.getContext() )
+                        : runner.run( input,
+                                TaskDispatcher.toolCallId( TaskDispatcher.taskCalls( context.getContext() ), input, mapper ),
+                                context.getContext() );
 
                 return SpringAIToolResponseBuilder.of(context)
-                        .update(Map.of("files", outputState.value("files").orElse(Map.of())))
-                        .buildAndReturn( outputState.lastMessage()
-                                    .map( msg -> msg.getText() )
-                                    .orElse( "Task completed"));
+                        .update(Map.of("files", result.files()))
+                        .buildAndReturn( result.text() );
             }
             catch( Throwable ex ) {
 
-                return format("Error executing task '%s' with agent '%s': %s",
-                        input.description(), input.subAgentType(), ex.getMessage());
+                return ToolCallStatus.error( format("Error executing task '%s' with agent '%s': %s",
+                        input.description(), input.subAgentType(), ex.getMessage()) );
             }
         })
         .inputSchema(format("""
@@ -156,15 +433,88 @@ class TaskToolBuilder {
                           "required" : [ "description", "subAgentType" ],
                           "additionalProperties" : false
                         }        
-                        """, subAgents.stream().map(DeepAgent.SubAgent::name).collect(Collectors.joining(", "))))
+                        """, sortedSubAgents.stream().map(DeepAgent.SubAgent::name).collect(Collectors.joining(", "))))
         .inputType( TaskToolArgs.class )
         .description(Prompts.TASK_DESCRIPTION_PREFIX.replace(
                 "{other_agents}",
-                subAgents.stream()
+                sortedSubAgents.stream()
                         .map( a -> format("- %s: %s", a.name(), a.description()))
                         .collect(Collectors.joining("\n"))) +
                 Prompts.TASK_DESCRIPTION_SUFFIX)
         .build();
 
     }
+
+    /**
+     * Key of the task in the result cache, {@code null} if the task cannot be cached
+     */
+    private TaskResultCache.Key cacheKey( SubAgentGraph subAgentGraph, String description, Map<String,Object> inputState ) {
+        final var subAgent = subAgentGraph.subAgent();
+        if( resultCache == null || subAgent.inputPolicy() == DeepAgent.SubAgent.InputPolicy.FULL_CONTEXT ) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        final var files = (Map<String,String>)inputState.getOrDefault( "files", Map.of() );
+        // the key hashes the contents: the references of a store are not meaningful to another process
+        final var contents = fileStore.readAll( files );
+        if( contents.size() != files.size() ) {
+            return null;
+        }
+        return TaskResultCache.Key.of( subAgent.name(), subAgentGraph.agentHash(), description, contents, inputState.get("todos") );
+    }
+
+    /**
+     * @return the model class and its default options, part of the sub-agent definition hash
+     */
+    private static String modelDescription( ChatModel model ) {
+        final var options = model.getDefaultOptions();
+        if( options == null ) {
+            return model.getClass().getName();
+        }
+        return String.join( "|",
+                model.getClass().getName(),
+                String.valueOf( options.getModel() ),
+                String.valueOf( options.getTemperature() ),
+                String.valueOf( options.getTopP() ),
+                String.valueOf( options.getTopK() ),
+                String.valueOf( options.getMaxTokens() ),
+                String.valueOf( options.getFrequencyPenalty() ),
+                String.valueOf( options.getPresencePenalty() ),
+                String.valueOf( options.getStopSequences() ) );
+    }
+
+    /**
+     * @return true if the budget of the current run is exhausted
+     */
+    private boolean budgetExhausted() {
+        return budgetScope != null && budgetScope.current().exhausted().isPresent();
+    }
+
+    /**
+     * Only the files changed by the sub-agent are returned, so the updates of sub-agents running
+     * side by side don't overwrite each other with a stale copy of the parent files.
+     */
+    private static Map<String,String> changedFiles( Map<String,String> inputFiles, Map<String,String> outputFiles ) {
+        return outputFiles.entrySet().stream()
+                .filter( e -> !Objects.equals( inputFiles.get(e.getKey()), e.getValue() ) )
+                .collect( Collectors.toUnmodifiableMap( Map.Entry::getKey, Map.Entry::getValue ) );
+    }
+
+    /**
+     * Builds the sub-agent input state according to its {@link DeepAgent.SubAgent.InputPolicy}.
+     * With the minimal policies the sub-agent prompt size doesn't depend on the parent conversation length.
+     */
+    static Map<String,Object> inputState( DeepAgent.SubAgent.InputPolicy policy, Map<String,Object> context, Message message ) {
+        return switch( policy ) {
+            case FULL_CONTEXT -> mergeMap( context, Map.of("messages", (Object)message), (v1, v2) -> v2);
+            case FILES_AND_TODOS -> {
+                final var state = new DeepAgent.State(context);
+                yield Map.of( "messages", message,
+                        "files", state.files(),
+                        "todos", state.todos() );
+            }
+            case FILES -> Map.of( "messages", message,
+                        "files", new DeepAgent.State(context).files() );
+        };
+    }
 }
@@ -0,0 +1,218 @@
+package org.bsc.langgraph4j.deepagents;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Literal (no regex) string replacement engine used by the {@code edit_file} and {@code multi_edit} tools.
+ * <p>
+ * Occurrences are counted and the new content is built in a single traversal of the content.
+ */
+final class TextEdit {
+
+    /**
+     * Result of an edit
+     *
+     * @param content     the new content, {@code null} if the edit has not been applied
+     * @param occurrences number of occurrences of the string to replace found in the content
+     * @param firstLine   first changed line in the new content (1 based)
+     * @param lastLine    last changed line in the new content (1 based)
+     */
+    record Result(String content, int occurrences, int firstLine, int lastLine) {
+
+        boolean applied() {
+            return content != null;
+        }
+    }
+
+    /**
+     * An edit of a {@link #replace(String, List)}
+     *
+     * @param oldString  the string to replace (literal)
+     * @param newString  the replacement (literal)
+     * @param replaceAll replace all the occurrences, otherwise {@code oldString} must be unique
+     */
+    record Edit(String oldString, String newString, boolean replaceAll) {
+
+        Edit {
+            requireNonNull(oldString, "oldString cannot be null");
+            requireNonNull(newString, "newString cannot be null");
+        }
+    }
+
+    /**
+     * Result of a {@link #replace(String, List)}
+     *
+     * @param content     the new content, {@code null} if the edits have not been applied
+     * @param occurrences total number of replaced occurrences
+     * @param firstLine   first changed line in the new content (1 based)
+     * @param lastLine    last changed line in the new content (1 based)
+     * @param error       the reason why the edits have not been applied
+     */
+    record MultiResult(String content, int occurrences, int firstLine, int lastLine, String error) {
+
+        boolean applied() {
+            return content != null;
+        }
+
+        static MultiResult failed(String error) {
+            return new MultiResult(null, 0, 0, 0, error);
+        }
+    }
+
+    private TextEdit() {}
+
+    /**
+     * Replaces the occurrences of {@code oldString} with {@code newString}.
+     * <p>
+     * If {@code replaceAll} is false the edit is applied only when there is exactly one occurrence.
+     *
+     * @param content    the content to edit
+     * @param oldString  the string to replace (literal)
+     * @param newString  the replacement (literal)
+     * @param replaceAll replace all the occurrences
+     * @return the edit result
+     */
+    static Result replace(String content, String oldString, String newString, boolean replaceAll) {
+        requireNonNull(content, "content cannot be null");
+        requireNonNull(newString, "newString cannot be null");
+        if (requireNonNull(oldString, "oldString cannot be null").isEmpty()) {
+            throw new IllegalArgumentException("oldString cannot be empty");
+        }
+
+        final int oldLength = oldString.length();
+
+        int idx = content.indexOf(oldString);
+        if (idx < 0) {
+            return new Result(null, 0, 0, 0);
+        }
+
+        final int newStringLines = countNewlines(newString, 0, newString.length());
+
+        if (!replaceAll) {
+            final int firstIdx = idx;
+            int occurrences = 1;
+            while ((idx = content.indexOf(oldString, idx + oldLength)) >= 0) {
+                ++occurrences;
+            }
+            if (occurrences > 1) {
+                return new Result(null, occurrences, 0, 0);
+            }
+            final int line = 1 + countNewlines(content, 0, firstIdx);
+            final var result = new StringBuilder(content.length() - oldLength + newString.length())
+                    .append(content, 0, firstIdx)
+                    .append(newString)
+                    .append(content, firstIdx + oldLength, content.length());
+            return new Result(result.toString(), 1, line, line + newStringLines);
+        }
+
+        final var result = new StringBuilder(Math.max(16, content.length() + Math.max(0, newString.length() - oldLength) * 16));
+        int occurrences = 0;
+        int from = 0;
+        int line = 1;
+        int firstLine = 0;
+        do {
+            ++occurrences;
+            line += countNewlines(content, from, idx);
+            result.append(content, from, idx).append(newString);
+            if (firstLine == 0) {
+                firstLine = line;
+            }
+            line += newStringLines;
+            from = idx + oldLength;
+        }
+        while ((idx = content.indexOf(oldString, from)) >= 0);
+
+        result.append(content, from, content.length());
+
+        return new Result(result.toString(), occurrences, firstLine, line);
+    }
+
+    /**
+     * Applies all the given edits, or none of them.
+     * <p>
+     * Every edit is matched against the original content (an edit cannot match the text inserted by another one),
+     * the edits fail if a string is not found, if a string is not unique and {@code replaceAll} is false or if two
+     * edits touch the same text. The new content is built in a single traversal of the content.
+     *
+     * @param content the content to edit
+     * @param edits   the edits
+     * @return the result
+     */
+    static MultiResult replace(String content, List<Edit> edits) {
+        requireNonNull(content, "content cannot be null");
+        if (requireNonNull(edits, "edits cannot be null").isEmpty()) {
+            return MultiResult.failed("edits cannot be empty");
+        }
+
+        // matches as { start, end, edit index }
+        final var matches = new ArrayList<int[]>();
+        for (int e = 0; e < edits.size(); ++e) {
+            final var edit = edits.get(e);
+            if (edit.oldString().isEmpty()) {
+                return MultiResult.failed(format("edit %d: oldString cannot be empty", e + 1));
+            }
+            final int oldLength = edit.oldString().length();
+            final int first = matches.size();
+            for (int idx = content.indexOf(edit.oldString()); idx >= 0; idx = content.indexOf(edit.oldString(), idx + oldLength)) {
+                matches.add(new int[]{idx, idx + oldLength, e});
+            }
+            final int occurrences = matches.size() - first;
+            if (occurrences == 0) {
+                return MultiResult.failed(format("edit %d: String not found in file: '%s'", e + 1, edit.oldString()));
+            }
+            if (occurrences > 1 && !edit.replaceAll()) {
+                return MultiResult.failed(format(
+                        "edit %d: String '%s' appears %d times in file. Use replace_all=True to replace all instances, or provide a more specific string with surrounding context.",
+                        e + 1, edit.oldString(), occurrences));
+            }
+        }
+
+        matches.sort(Comparator.comparingInt(match -> match[0]));
+        for (int i = 1; i < matches.size(); ++i) {
+            final var previous = matches.get(i - 1);
+            final var current = matches.get(i);
+            if (current[0] < previous[1]) {
+                return MultiResult.failed(format("edits %d and %d overlap at line %d",
+                        Math.min(previous[2], current[2]) + 1, Math.max(previous[2], current[2]) + 1,
+                        1 + countNewlines(content, 0, current[0])));
+            }
+        }
+
+        int capacity = content.length();
+        for (var match : matches) {
+            capacity += edits.get(match[2]).newString().length() - (match[1] - match[0]);
+        }
+        final var result = new StringBuilder(capacity);
+        int from = 0;
+        int line = 1;
+        int firstLine = 0;
+        for (var match : matches) {
+            final var newString = edits.get(match[2]).newString();
+            line += countNewlines(content, from, match[0]);
+            result.append(content, from, match[0]).append(newString);
+            if (firstLine == 0) {
+                firstLine = line;
+            }
+            line += countNewlines(newString, 0, newString.length());
+            from = match[1];
+        }
+        result.append(content, from, content.length());
+
+        return new MultiResult(result.toString(), matches.size(), firstLine, line, null);
+    }
+
+    private static int countNewlines(String s, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; ++i) {
+            if (s.charAt(i) == '\n') {
+                ++count;
+            }
+        }
+        return count;
+    }
+}
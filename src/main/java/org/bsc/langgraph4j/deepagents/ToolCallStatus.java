@@ -0,0 +1,77 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.springframework.ai.tool.ToolCallback;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Explicit error status of the tool calls.
+ * <p>
+ * The tools report their errors to the model as result message: {@link #error(String)} also marks the tool call
+ * running on the current thread as failed. The decorators (metrics, tracing, flight recorder) open a frame around
+ * the call of their delegate through {@link #enter(ToolCallback, ToolCallback)} and read the status on
+ * {@link #exit()}. The status of a call is propagated to the frames of the decorators of the same call, but not to
+ * the frame of an enclosing call (e.g. the tools called by a sub-agent running inside a {@code task} call).
+ */
+final class ToolCallStatus {
+
+    private static final ThreadLocal<ToolCallStatus> CURRENT = new ThreadLocal<>();
+
+    private final ToolCallStatus parent;
+    private final ToolCallback caller;
+    private final ToolCallback delegate;
+    private boolean error;
+
+    private ToolCallStatus(ToolCallStatus parent, ToolCallback caller, ToolCallback delegate) {
+        this.parent = parent;
+        this.caller = caller;
+        this.delegate = delegate;
+    }
+
+    /**
+     * Marks the tool call running on the current thread as failed
+     *
+     * @param message the error message returned to the model
+     * @return the given message
+     */
+    static String error(String message) {
+        final var current = CURRENT.get();
+        if (current != null) {
+            current.error = true;
+        }
+        return message;
+    }
+
+    /**
+     * Opens the frame of a decorated call
+     *
+     * @param caller   the decorator
+     * @param delegate the decorated tool, about to be called
+     * @return the frame, to be closed by {@link #exit()}
+     */
+    static ToolCallStatus enter(ToolCallback caller, ToolCallback delegate) {
+        final var result = new ToolCallStatus(CURRENT.get(),
+                requireNonNull(caller, "caller cannot be null"),
+                requireNonNull(delegate, "delegate cannot be null"));
+        CURRENT.set(result);
+        return result;
+    }
+
+    /**
+     * Closes this frame
+     *
+     * @return true if the call has been marked as failed
+     */
+    boolean exit() {
+        if (parent != null) {
+            CURRENT.set(parent);
+            // the parent frame is the one of an outer decorator of the same call
+            if (parent.delegate == caller) {
+                parent.error |= error;
+            }
+        } else {
+            CURRENT.remove();
+        }
+        return error;
+    }
+}
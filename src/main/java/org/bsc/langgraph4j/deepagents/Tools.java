@@ -1,5 +1,6 @@
 package org.bsc.langgraph4j.deepagents;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -11,28 +12,119 @@ import org.springframework.ai.tool.function.FunctionToolCallback;
 import org.springframework.ai.util.json.schema.JsonSchemaGenerator;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 import static java.lang.String.format;
 import static org.bsc.langgraph4j.deepagents.Prompts.EDIT_DESCRIPTION;
+import static org.bsc.langgraph4j.deepagents.Prompts.GLOB_DESCRIPTION;
+import static org.bsc.langgraph4j.deepagents.Prompts.GREP_DESCRIPTION;
+import static org.bsc.langgraph4j.deepagents.Prompts.MULTI_EDIT_DESCRIPTION;
 
 interface Tools {
 
-    static ToolCallback ls() {
-        return  FunctionToolCallback.<Void, Collection<String>>builder( "ls", ( noArgs, context ) -> {
-            var state = new DeepAgent.State(context.getContext());
-
-            var result = state.files().keySet();
+    /**
+     * Max number of paths or lines returned by the {@code glob} and {@code grep} tools
+     */
+    int MAX_SEARCH_RESULTS = 500;
+
+    /**
+     * Default max number of files returned by the {@code ls} tool
+     */
+    int LS_DEFAULT_LIMIT = 200;
+
+    /**
+     * Default and max length of a chunk returned by the {@code read_file_chunk} tool
+     */
+    int READ_CHUNK_DEFAULT_LENGTH = 32_768;
+    int READ_CHUNK_MAX_LENGTH = 262_144;
+
+    record LsArgs(
+            @JsonPropertyDescription("directory to list, all the files by default")
+            String path,
+            @JsonPropertyDescription("glob pattern of the files to list, e.g. '*.md'")
+            String glob,
+            @JsonProperty(defaultValue="path")
+            @JsonPropertyDescription("sort key: 'path', 'size' or 'lines'")
+            String sortBy,
+            @JsonPropertyDescription("reverse the sort order")
+            boolean reverse,
+            @JsonProperty(defaultValue="0")
+            int offset,
+            @JsonProperty(defaultValue="200")
+            Integer limit,
+            @JsonPropertyDescription("include the size (bytes) and the line count of each file")
+            boolean details
+    ) {}
 
-            DeepAgent.log.debug( "tool: 'ls' call: {}", result );
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record LsEntry( String path, Long size, Integer lines ) {}
+
+    /**
+     * Page of the {@code ls} tool
+     *
+     * @param total  number of files matching the request
+     * @param offset offset of the first returned file
+     * @param files  the returned files
+     */
+    record LsResult( int total, int offset, List<LsEntry> files ) {}
+
+    static ToolCallback ls( FileIndex index ) {
+        final var typeRef = new TypeReference<LsArgs>() {};
+
+        return  FunctionToolCallback.<LsArgs, LsResult>builder( "ls", ( input, context ) -> {
+            final var state = new DeepAgent.State(context.getContext());
+
+            final var args = ( input != null ) ? input : new LsArgs( null, null, null, false, 0, null, false );
+
+            final var sortBy = Objects.requireNonNullElse( args.sortBy(), "path" );
+            final List<String> paths;
+            if( sortBy.equals( "size" ) || sortBy.equals( "lines" ) ) {
+                // the stats of all the listed files are needed to sort them
+                Comparator<FileIndex.FileInfo> comparator = sortBy.equals( "size" )
+                        ? Comparator.comparingLong( FileIndex.FileInfo::size )
+                        : Comparator.comparingInt( FileIndex.FileInfo::lines );
+                if( args.reverse() ) {
+                    comparator = comparator.reversed();
+                }
+                paths = index.list( state.files(), args.path(), args.glob() ).stream()
+                        .sorted( comparator.thenComparing( FileIndex.FileInfo::path ) )
+                        .map( FileIndex.FileInfo::path )
+                        .toList();
+            } else {
+                paths = new ArrayList<>( index.paths( state.files(), args.path(), args.glob() ) );
+                if( args.reverse() ) {
+                    Collections.reverse( paths );
+                }
+            }
 
-            return result;
+            final int offset = Math.max( 0, Math.min( args.offset(), paths.size() ) );
+            final int limit = ( args.limit() != null && args.limit() > 0 ) ? args.limit() : LS_DEFAULT_LIMIT;
+            final var pagePaths = paths.subList( offset, Math.min( paths.size(), offset + limit ) );
+            // the stats are read only for the returned page
+            final var page = args.details()
+                    ? index.stats( state.files(), pagePaths ).stream()
+                        .map( file -> new LsEntry( file.path(), file.size(), file.lines() ) )
+                        .toList()
+                    : pagePaths.stream()
+                        .map( path -> new LsEntry( path, null, null ) )
+                        .toList();
+
+            DeepAgent.log.debug( "tool: 'ls' call: {} -> {} of {} files", args, page.size(), paths.size() );
+
+            return new LsResult( paths.size(), offset, page );
         })
-        .description("List all files in the mock filesystem")
-        .inputType( Void.class )
+        .inputSchema( JsonSchemaGenerator.generateForType(typeRef.getType()) )
+        .description("""
+                List the files in the mock filesystem, sorted by path by default.
+                Results are paged: use offset and limit (default 200) to get the next pages, total is the number of matching files.
+                Filter them with a directory (path) and/or a glob pattern, set details to get the size and line count of each file.""")
+        .inputType( typeRef.getType() )
         .build();
     }
 
@@ -75,7 +167,7 @@ interface Tools {
             @JsonProperty(required=true, defaultValue="2000")
             int limit) {}
 
-    static ToolCallback  readFile() {
+    static ToolCallback  readFile( FileStore fileStore ) {
 
         final var typeRef = new TypeReference<ReadFileArgs>() {};
 
@@ -84,57 +176,175 @@ interface Tools {
 
                     final var state = new DeepAgent.State(context.getContext());
 
-                    final var mockFilesystem = state.files();
+                    final var result = read( fileStore, state.files(), input.filePath(), input.offset(), input.limit() );
+                    return result.error() ? ToolCallStatus.error( result.text() ) : result.text();
+                })
+                .inputSchema( JsonSchemaGenerator.generateForType(typeRef.getType()) )
+                .description(Prompts.TOOL_DESCRIPTION)
+                .inputType(typeRef.getType())
+                .build();
+    }
 
-                    if( !mockFilesystem.containsKey( input.filePath() ) ) {
-                        return format("Error: File '%s' not found", input.filePath());
-                    }
+    /**
+     * Result of {@link #read(FileStore, Map, String, int, int)}
+     *
+     * @param text  the formatted lines or the error message
+     * @param error true if text is an error message
+     */
+    record Read( String text, boolean error ) {
+        static Read error( String message ) {
+            return new Read( message, true );
+        }
+    }
 
-                    // Get file content
-                    final var content = mockFilesystem.get(input.filePath());
+    /**
+     * Reads the given range of lines of a file, in {@code cat -n} format
+     *
+     * @return the formatted lines or an error message
+     */
+    private static Read read( FileStore fileStore, Map<String,String> mockFilesystem, String filePath, int offset, int limit ) {
+        if( !mockFilesystem.containsKey( filePath ) ) {
+            return Read.error( format("Error: File '%s' not found", filePath) );
+        }
+
+        // Get file content
+        final var content = fileStore.read( filePath, mockFilesystem.get(filePath) ).orElse(null);
+
+        if( content == null ) {
+            return Read.error( format("Error: content of file '%s' is not available", filePath) );
+        }
+
+        // Handle empty file
+        if (content.isEmpty()) {
+            return new Read( "System reminder: File exists but has empty contents", false );
+        }
+
+        DeepAgent.log.debug( "tool: read {}\n{}", filePath, content);
+
+        // Line offsets are computed once per content (see LineIndex)
+        final var lines = LineIndex.of(content);
+
+        // Apply line offset and limit
+        final int startIdx = offset;
+        final int endIdx = Math.min( startIdx + limit, lines.lineCount());
+
+        // Handle empty file
+        if (startIdx >= endIdx) {
+            return Read.error( format("Error: illegal range error [%d,%d] reading file '%s'", startIdx, endIdx, filePath) );
+        }
+
+        // Handle case where offset is beyond file length
+        if (startIdx >= lines.lineCount()) {
+            return Read.error( format("Error: Line offset %d exceeds file length %d lines)",
+                    offset, lines.lineCount()) );
+        }
+
+        // Format output with line numbers (cat -n format), truncating lines longer than 2000 characters
+        return new Read( lines.format( startIdx, endIdx, 2000 ), false );
+    }
 
-                    // Handle empty file
-                    if (content.isEmpty()) {
-                        return "System reminder: File exists but has empty contents";
-                    }
+    record ReadFilesArgs(
+            @JsonProperty(required = true)
+            @JsonPropertyDescription("paths of the files to read")
+            List<String> filePaths,
+            @JsonProperty(defaultValue="0")
+            int offset,
+            @JsonProperty(required=true, defaultValue="2000")
+            int limit) {}
 
-                    DeepAgent.log.debug( "tool: 'read_file' {}\n{}", input.filePath(), content);
+    static ToolCallback  readFiles( FileStore fileStore ) {
 
-                    // Split content into lines
-                    final var lines = content.split("\n");
+        final var typeRef = new TypeReference<ReadFilesArgs>() {};
 
-                    // Apply line offset and limit
-                    final int startIdx = input.offset();
-                    final int endIdx = Math.min( startIdx + input.limit(), lines.length);
+        return FunctionToolCallback.<ReadFilesArgs, String>builder( "read_files", ( input, context ) -> {
+                    DeepAgent.log.debug( "tool: 'read_files' call: {}", input);
 
-                    // Handle empty file
-                    if (startIdx >= endIdx) {
-                        return format("Error: illegal range error [%d,%d] reading file '%s'", startIdx, endIdx, input.filePath());
+                    if( input.filePaths() == null || input.filePaths().isEmpty() ) {
+                        return ToolCallStatus.error( "Error: filePaths cannot be empty" );
                     }
 
-                    // Handle case where offset is beyond file length
-                    if (startIdx >= lines.length) {
-                        return format("Error: Line offset %d exceeds file length %d lines)",
-                                input.offset(), lines.length);
+                    final var state = new DeepAgent.State(context.getContext());
+                    final var mockFilesystem = state.files();
+
+                    // each file is preceded by a '==> path <==' header, like 'head' does for many files
+                    return input.filePaths().stream()
+                            .distinct()
+                            .map( filePath -> format( "==> %s <==\n%s", filePath,
+                                    read( fileStore, mockFilesystem, filePath, input.offset(), input.limit() ).text() ) )
+                            .collect( Collectors.joining("\n\n") );
+                })
+                .inputSchema( JsonSchemaGenerator.generateForType(typeRef.getType()) )
+                .description("""
+                        Reads many files of the mock filesystem at once, same usage of the read_file tool.
+                        Each file content is preceded by a '==> path <==' header, offset and limit apply to each file.
+                        Prefer it to many read_file calls.""")
+                .inputType(typeRef.getType())
+                .build();
+    }
+
+    record ReadFileChunkArgs(
+            @JsonProperty(required = true)
+            String filePath,
+            @JsonProperty(defaultValue="0")
+            @JsonPropertyDescription("offset of the chunk, in the given unit")
+            long offset,
+            @JsonPropertyDescription("length of the chunk, in the given unit (default 32768, max 262144)")
+            Integer length,
+            @JsonPropertyDescription("'chars' (default) or 'bytes' of the UTF-8 content")
+            String unit) {}
+
+    static ToolCallback  readFileChunk( FileStore fileStore ) {
+
+        final var typeRef = new TypeReference<ReadFileChunkArgs>() {};
+
+        return FunctionToolCallback.<ReadFileChunkArgs, String>builder( "read_file_chunk", ( input, context ) -> {
+                    DeepAgent.log.debug( "tool: 'read_file_chunk' call: {}", input);
+
+                    final var state = new DeepAgent.State(context.getContext());
+                    final var mockFilesystem = state.files();
+
+                    if( !mockFilesystem.containsKey( input.filePath() ) ) {
+                        return ToolCallStatus.error( format("Error: File '%s' not found", input.filePath()) );
                     }
+                    if( input.offset() < 0 ) {
+                        return ToolCallStatus.error( "Error: offset cannot be negative" );
+                    }
+                    final var unit = ( input.unit() == null || input.unit().isBlank() ) ? "chars" : input.unit().toLowerCase();
+                    final var rangeUnit = switch( unit ) {
+                        case "chars" -> FileStore.RangeUnit.CHARS;
+                        case "bytes" -> FileStore.RangeUnit.BYTES;
+                        default -> null;
+                    };
+                    if( rangeUnit == null ) {
+                        return ToolCallStatus.error( format("Error: unit must be 'chars' or 'bytes', not '%s'", input.unit()) );
+                    }
+                    // at least 4 units, so that a byte range always contains a whole UTF-8 character
+                    final int length = Math.min( Math.max( input.length() == null ? READ_CHUNK_DEFAULT_LENGTH : input.length(), 4 ),
+                                                READ_CHUNK_MAX_LENGTH );
 
-                    // Format output with line numbers (cat -n format)
-                    final var resultLines = new ArrayList<String>();
+                    // only the requested range is loaded by the directory and mapped stores
+                    final var chunk = fileStore.readRange( input.filePath(), mockFilesystem.get(input.filePath()),
+                                                            rangeUnit, input.offset(), length ).orElse(null);
 
-                    for (int i = startIdx; i < endIdx; i++) {
-                        var lineContent = lines[i];
-                        // Truncate lines longer than 2000 characters
-                        if (lineContent.length() > 2000) {
-                            lineContent = lineContent.substring(0, 2000);
-                        }
-                        // Line numbers start at 1, so add 1 to the index
-                        resultLines.add( format("%6d\t%s", i + 1, lineContent));
+                    if( chunk == null ) {
+                        return ToolCallStatus.error( format("Error: content of file '%s' is not available", input.filePath()) );
+                    }
+                    if( chunk.offset() >= chunk.total() && chunk.total() > 0 ) {
+                        return ToolCallStatus.error( format("Error: offset %d exceeds file length %d %s", input.offset(), chunk.total(), unit) );
                     }
 
-                    return String.join("\n", resultLines);
+                    final var header = format( "[%s %d-%d of %d]", unit, chunk.offset(), chunk.end(), chunk.total() );
+                    final var footer = chunk.hasMore()
+                            ? format( "\n[more content: next offset %d]", chunk.end() )
+                            : "\n[end of file]";
+                    return header + "\n" + chunk.text() + footer;
                 })
                 .inputSchema( JsonSchemaGenerator.generateForType(typeRef.getType()) )
-                .description(Prompts.TOOL_DESCRIPTION)
+                .description("""
+                        Reads a raw chunk of a file of the mock filesystem, by chars or UTF-8 bytes offset.
+                        Use it for very large files or files with very long lines, where the line based read_file is not practical.
+                        The chunk is preceded by a '[unit start-end of total]' header and followed by the next offset to read, if any.
+                        Byte ranges are aligned to the character boundaries, so a chunk can be slightly shorter than requested.""")
                 .inputType(typeRef.getType())
                 .build();
     }
@@ -145,14 +355,14 @@ interface Tools {
             @JsonProperty(required = true)
             String  content) {}
 
-    static ToolCallback  writeFile() {
+    static ToolCallback  writeFile( FileStore fileStore ) {
         final var typeRef = new TypeReference<WriteFileArgs>() {};
 
         return FunctionToolCallback.<WriteFileArgs, String>builder( "write_file", ( input, context ) -> {
                 DeepAgent.log.debug( "tool: 'write_file' call: {}", input);
 
                 return SpringAIToolResponseBuilder.of( context )
-                            .update( Map.of( "files", Map.of( input.filePath(), input.content() )))
+                            .update( Map.of( "files", Map.of( input.filePath(), fileStore.write( input.filePath(), input.content() ) )))
                             .buildAndReturn( format("Updated file %s", input.filePath()) );
         })
         .inputSchema( JsonSchemaGenerator.generateForType(typeRef.getType()) )
@@ -162,6 +372,43 @@ interface Tools {
 
     }
 
+    record WriteFilesArgs(
+            @JsonProperty(required = true)
+            @JsonPropertyDescription("files to write")
+            List<WriteFileArgs> files) {}
+
+    static ToolCallback  writeFiles( FileStore fileStore ) {
+        final var typeRef = new TypeReference<WriteFilesArgs>() {};
+
+        return FunctionToolCallback.<WriteFilesArgs, String>builder( "write_files", ( input, context ) -> {
+                DeepAgent.log.debug( "tool: 'write_files' call: {}", input);
+
+                if( input.files() == null || input.files().isEmpty() ) {
+                    return ToolCallStatus.error( "Error: files cannot be empty" );
+                }
+                for( var file : input.files() ) {
+                    if( file.filePath() == null || file.content() == null ) {
+                        return ToolCallStatus.error( "Error: each file requires filePath and content" );
+                    }
+                }
+
+                // all the files in a single update of the 'files' channel, the last entry of a path wins
+                final var files = new LinkedHashMap<String,String>();
+                for( var file : input.files() ) {
+                    files.put( file.filePath(), fileStore.write( file.filePath(), file.content() ) );
+                }
+
+                return SpringAIToolResponseBuilder.of( context )
+                            .update( Map.of( "files", files ))
+                            .buildAndReturn( format("Updated files %s", String.join(", ", files.keySet())) );
+        })
+        .inputSchema( JsonSchemaGenerator.generateForType(typeRef.getType()) )
+        .description("Write the content of many files in the mock filesystem at once. Prefer it to many write_file calls")
+        .inputType(typeRef.getType())
+        .build();
+
+    }
+
     record EditFileArgs(
             @JsonProperty(required = true)
             String filePath,
@@ -172,7 +419,7 @@ interface Tools {
             boolean replaceAll
     ) {}
 
-    static ToolCallback  editFile() {
+    static ToolCallback  editFile( FileStore fileStore ) {
         final var typeRef = new TypeReference<EditFileArgs>() {};
 
         return FunctionToolCallback.<EditFileArgs, String>builder( "edit_file", ( input, context ) -> {
@@ -183,63 +430,220 @@ interface Tools {
                     final var mockFilesystem = state.files();
 
                     if( !mockFilesystem.containsKey( input.filePath() ) ) {
-                        return format("Error: File '%s' not found", input.filePath());
+                        return ToolCallStatus.error( format("Error: File '%s' not found", input.filePath()) );
                     }
 
                     // Get file content
-                    final var content = mockFilesystem.get(input.filePath());
+                    final var content = fileStore.read( input.filePath(), mockFilesystem.get(input.filePath()) ).orElse(null);
 
-                    // Check if old_string exists in the file
-                    if (!content.contains( input.oldString())) {
-                        return format("Error: String not found in file: '%s'", input.oldString());
+                    if( content == null ) {
+                        return ToolCallStatus.error( format("Error: content of file '%s' is not available", input.filePath()) );
                     }
 
-                    final var escapedOldString = Pattern.quote(input.oldString());
-
-                    if (!input.replaceAll()) {
-                        // Escape regex special characters
-
-                        // Count occurrences
-                        var pattern = Pattern.compile(escapedOldString);
-                        var matcher = pattern.matcher(content);
+                    if (input.oldString().isEmpty()) {
+                        return ToolCallStatus.error( "Error: oldString cannot be empty" );
+                    }
 
-                        int occurrences = 0;
-                        while (matcher.find()) {
-                            occurrences++;
-                        }
+                    // Count occurrences and replace (literally) in a single pass
+                    final var edit = TextEdit.replace( content, input.oldString(), input.newString(), input.replaceAll() );
 
+                    if( !edit.applied() ) {
                         // Construct message based on occurrences
-                        if (occurrences > 1) {
-                            return String.format(
+                        if (edit.occurrences() > 1) {
+                            return ToolCallStatus.error( format(
                                     "Error: String '%s' appears %d times in file. Use replace_all=True to replace all instances, or provide a more specific string with surrounding context.",
-                                    input.oldString(), occurrences
-                            );
-                        } else if (occurrences == 0) {
-                            return String.format("Error: String not found in file: '%s'", input.oldString());
+                                    input.oldString(), edit.occurrences()
+                            ) );
+                        }
+                        return ToolCallStatus.error( format("Error: String not found in file: '%s'", input.oldString()) );
+                    }
+
+                    return SpringAIToolResponseBuilder.of(context)
+                            .update(Map.of("files", Map.of(input.filePath(), fileStore.write(input.filePath(), edit.content()))))
+                            .buildAndReturn( format("Updated file %s (%d occurrence(s) replaced, lines %d-%d)",
+                                    input.filePath(), edit.occurrences(), edit.firstLine(), edit.lastLine()) );
+                })
+                .inputSchema( JsonSchemaGenerator.generateForType(typeRef.getType()) )
+                .inputType(typeRef.getType())
+                .description(EDIT_DESCRIPTION)
+                .build();
+    }
+
+    record EditArgs(
+            @JsonProperty(required = true)
+            String  oldString,
+            @JsonProperty(required = true)
+            String  newString,
+            boolean replaceAll
+    ) {}
+
+    record MultiEditArgs(
+            @JsonProperty(required = true)
+            String filePath,
+            @JsonProperty(required = true)
+            @JsonPropertyDescription("edits to apply, all of them or none")
+            List<EditArgs> edits
+    ) {}
+
+    static ToolCallback  multiEdit( FileStore fileStore ) {
+        final var typeRef = new TypeReference<MultiEditArgs>() {};
+
+        return FunctionToolCallback.<MultiEditArgs, String>builder( "multi_edit", ( input, context ) -> {
+                    DeepAgent.log.debug( "tool: 'multi_edit' call: {}", input);
+
+                    final var state = new DeepAgent.State(context.getContext());
+
+                    final var mockFilesystem = state.files();
+
+                    if( !mockFilesystem.containsKey( input.filePath() ) ) {
+                        return ToolCallStatus.error( format("Error: File '%s' not found", input.filePath()) );
+                    }
+
+                    // Get file content
+                    final var content = fileStore.read( input.filePath(), mockFilesystem.get(input.filePath()) ).orElse(null);
+
+                    if( content == null ) {
+                        return ToolCallStatus.error( format("Error: content of file '%s' is not available", input.filePath()) );
+                    }
+
+                    if( input.edits() == null || input.edits().isEmpty() ) {
+                        return ToolCallStatus.error( "Error: edits cannot be empty" );
+                    }
+                    for( var edit : input.edits() ) {
+                        if( edit.oldString() == null || edit.newString() == null ) {
+                            return ToolCallStatus.error( "Error: each edit requires oldString and newString" );
                         }
                     }
 
-                    var newContent = (input.replaceAll() ) ?
-                        content.replaceAll( escapedOldString, input.newString()) :
-                        content.replaceFirst( escapedOldString, input.newString());
+                    // All the edits are matched on the current content and applied in a single pass
+                    final var edit = TextEdit.replace( content, input.edits().stream()
+                            .map( e -> new TextEdit.Edit( e.oldString(), e.newString(), e.replaceAll() ) )
+                            .toList() );
 
+                    if( !edit.applied() ) {
+                        return ToolCallStatus.error( format("Error: no edit applied, %s", edit.error()) );
+                    }
 
                     return SpringAIToolResponseBuilder.of(context)
-                            .update(Map.of("files", Map.of(input.filePath(), newContent)))
-                            .buildAndReturn( format("`Updated file %s", input.filePath()) );
+                            .update(Map.of("files", Map.of(input.filePath(), fileStore.write(input.filePath(), edit.content()))))
+                            .buildAndReturn( format("Updated file %s (%d edit(s), %d occurrence(s) replaced, lines %d-%d)",
+                                    input.filePath(), input.edits().size(), edit.occurrences(), edit.firstLine(), edit.lastLine()) );
                 })
                 .inputSchema( JsonSchemaGenerator.generateForType(typeRef.getType()) )
                 .inputType(typeRef.getType())
-                .description(EDIT_DESCRIPTION)
+                .description(MULTI_EDIT_DESCRIPTION)
+                .build();
+    }
+
+    record GlobArgs(
+            @JsonProperty(required = true)
+            @JsonPropertyDescription("glob pattern, e.g. '**/*.md' or 'notes/*.{md,txt}'")
+            String pattern
+    ) {}
+
+    static ToolCallback  glob( FileIndex index ) {
+        final var typeRef = new TypeReference<GlobArgs>() {};
+
+        return FunctionToolCallback.<GlobArgs, String>builder( "glob", ( input, context ) -> {
+                    DeepAgent.log.debug( "tool: 'glob' call: {}", input);
+
+                    final var state = new DeepAgent.State(context.getContext());
+
+                    final List<String> paths;
+                    try {
+                        paths = index.glob( state.files(), input.pattern() );
+                    } catch (IllegalArgumentException e) {
+                        return ToolCallStatus.error( format("Error: %s", e.getMessage()) );
+                    }
+                    if( paths.isEmpty() ) {
+                        return format("No files found matching '%s'", input.pattern());
+                    }
+                    if( paths.size() > MAX_SEARCH_RESULTS ) {
+                        return String.join("\n", paths.subList(0, MAX_SEARCH_RESULTS)) +
+                                format("\n(results truncated: %d of %d files, use a more specific pattern)", MAX_SEARCH_RESULTS, paths.size());
+                    }
+                    return String.join("\n", paths);
+                })
+                .inputSchema( JsonSchemaGenerator.generateForType(typeRef.getType()) )
+                .inputType(typeRef.getType())
+                .description(GLOB_DESCRIPTION)
                 .build();
     }
 
-    List<ToolCallback> BUILTIN =  List.of(
-            Tools.ls(),
-            Tools.readFile(),
-            Tools.writeFile(),
-            Tools.editFile(),
-            Tools.writeTodos()
-    );
+    record GrepArgs(
+            @JsonProperty(required = true)
+            @JsonPropertyDescription("regular expression to search in the file contents")
+            String pattern,
+            @JsonPropertyDescription("glob pattern of the files to search, all the files by default")
+            String glob,
+            @JsonPropertyDescription("case insensitive search")
+            boolean ignoreCase,
+            @JsonProperty(defaultValue="files_with_matches")
+            @JsonPropertyDescription("'files_with_matches' returns the matching file paths, 'content' returns the matching lines")
+            String outputMode
+    ) {}
+
+    static ToolCallback  grep( FileIndex index ) {
+        final var typeRef = new TypeReference<GrepArgs>() {};
+
+        return FunctionToolCallback.<GrepArgs, String>builder( "grep", ( input, context ) -> {
+                    DeepAgent.log.debug( "tool: 'grep' call: {}", input);
+
+                    final var state = new DeepAgent.State(context.getContext());
+
+                    final var filesOnly = !"content".equals( input.outputMode() );
+                    final List<FileIndex.Match> matches;
+                    try {
+                        matches = index.grep( state.files(), input.pattern(), input.ignoreCase(), input.glob(),
+                                filesOnly ? 1 : Integer.MAX_VALUE, MAX_SEARCH_RESULTS + 1 );
+                    } catch (IllegalArgumentException e) {
+                        return ToolCallStatus.error( format("Error: %s", e.getMessage()) );
+                    }
+                    if( matches.isEmpty() ) {
+                        return format("No matches found for '%s'", input.pattern());
+                    }
+                    final var result = matches.stream()
+                            .limit( MAX_SEARCH_RESULTS )
+                            .map( match -> filesOnly
+                                    ? match.path()
+                                    : format("%s:%d:%s", match.path(), match.line(),
+                                        match.text().length() > 2000 ? match.text().substring(0, 2000) : match.text()) )
+                            .collect( Collectors.joining("\n") );
+                    return ( matches.size() > MAX_SEARCH_RESULTS )
+                            ? result + format("\n(results truncated to %d, use a more specific pattern or glob)", MAX_SEARCH_RESULTS)
+                            : result;
+                })
+                .inputSchema( JsonSchemaGenerator.generateForType(typeRef.getType()) )
+                .inputType(typeRef.getType())
+                .description(GREP_DESCRIPTION)
+                .build();
+    }
+
+    /**
+     * Built-in tools whose files are stored through the given {@link FileStore}
+     */
+    static List<ToolCallback> builtin( FileStore fileStore ) {
+        final var index = new FileIndex( fileStore );
+        return List.of(
+                Tools.ls( index ),
+                Tools.readFile( fileStore ),
+                Tools.readFiles( fileStore ),
+                Tools.readFileChunk( fileStore ),
+                Tools.writeFile( fileStore ),
+                Tools.writeFiles( fileStore ),
+                Tools.editFile( fileStore ),
+                Tools.multiEdit( fileStore ),
+                Tools.glob( index ),
+                Tools.grep( index ),
+                Tools.writeTodos()
+        );
+    }
+
+    /**
+     * Built-in tools enabled when {@link GraphBuilder#builtinTools(List)} is not given. The other ones (bulk, range
+     * and search tools) are opt-in: every tool definition is sent with each model call of the main agent and of the
+     * sub-agents, so each enabled tool costs prompt tokens even when it is never called.
+     */
+    List<String> DEFAULT_BUILTIN_TOOLS = List.of( "ls", "read_file", "write_file", "edit_file", "write_todos" );
 
 }
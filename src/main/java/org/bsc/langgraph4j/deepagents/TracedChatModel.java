@@ -0,0 +1,93 @@
+package org.bsc.langgraph4j.deepagents;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link ChatModel} decorator that runs each model call inside a {@code chat} span, reporting the token usage
+ */
+class TracedChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final Tracer tracer;
+    private final String agent;
+
+    TracedChatModel(ChatModel delegate, Tracer tracer, String agent) {
+        this.delegate = requireNonNull(delegate, "delegate cannot be null");
+        this.tracer = requireNonNull(tracer, "tracer cannot be null");
+        this.agent = requireNonNull(agent, "agent cannot be null");
+    }
+
+    private Span startSpan() {
+        return tracer.spanBuilder("chat " + agent)
+                .setSpanKind(SpanKind.CLIENT)
+                .setAttribute("gen_ai.operation.name", "chat")
+                .setAttribute("gen_ai.agent.name", agent)
+                .startSpan();
+    }
+
+    private static void endSpan(Span span, ChatResponse response, Throwable error) {
+        if (error != null) {
+            span.recordException(error);
+            span.setStatus(StatusCode.ERROR);
+        }
+        if (response != null && response.getMetadata() != null) {
+            final var metadata = response.getMetadata();
+            if (metadata.getModel() != null) {
+                span.setAttribute("gen_ai.response.model", metadata.getModel());
+            }
+            final var usage = metadata.getUsage();
+            if (usage != null) {
+                if (usage.getPromptTokens() != null) {
+                    span.setAttribute("gen_ai.usage.input_tokens", usage.getPromptTokens().longValue());
+                }
+                if (usage.getCompletionTokens() != null) {
+                    span.setAttribute("gen_ai.usage.output_tokens", usage.getCompletionTokens().longValue());
+                }
+            }
+        }
+        span.end();
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        final var span = startSpan();
+        try (var ignored = span.makeCurrent()) {
+            final var response = delegate.call(prompt);
+            endSpan(span, response, null);
+            return response;
+        } catch (RuntimeException ex) {
+            endSpan(span, null, ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            final var span = startSpan();
+            final var last = new AtomicReference<ChatResponse>();
+            return delegate.stream(prompt)
+                    .doOnNext(last::set)
+                    .doOnError(ex -> endSpan(span, null, ex))
+                    .doOnComplete(() -> endSpan(span, last.get(), null))
+                    .doOnCancel(span::end);
+        });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+}
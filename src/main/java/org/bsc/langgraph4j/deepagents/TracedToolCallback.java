@@ -0,0 +1,75 @@
+package org.bsc.langgraph4j.deepagents;
+
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextKey;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link ToolCallback} decorator that runs each tool call inside an {@code execute_tool} span
+ */
+class TracedToolCallback implements ToolCallback {
+
+    /**
+     * Context in which the current {@code execute_tool} span has been started (i.e. the node span context)
+     */
+    static final ContextKey<Context> PARENT_CONTEXT = ContextKey.named("deepagents.tool.parent");
+
+    private final ToolCallback delegate;
+    private final Tracer tracer;
+    private final String agent;
+
+    TracedToolCallback(ToolCallback delegate, Tracer tracer, String agent) {
+        this.delegate = requireNonNull(delegate, "delegate cannot be null");
+        this.tracer = requireNonNull(tracer, "tracer cannot be null");
+        this.agent = requireNonNull(agent, "agent cannot be null");
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        final var name = delegate.getToolDefinition().name();
+        final var parent = Context.current();
+        final var span = tracer.spanBuilder("execute_tool " + name)
+                .setParent(parent)
+                .setAttribute("gen_ai.operation.name", "execute_tool")
+                .setAttribute("gen_ai.tool.name", name)
+                .setAttribute("gen_ai.agent.name", agent)
+                .startSpan();
+        final var status = ToolCallStatus.enter(this, delegate);
+        var error = true;
+        try (var ignored = parent.with(span).with(PARENT_CONTEXT, parent).makeCurrent()) {
+            final var result = (toolContext != null) ? delegate.call(toolInput, toolContext) : delegate.call(toolInput);
+            error = result == null;
+            return result;
+        } catch (RuntimeException ex) {
+            span.recordException(ex);
+            throw ex;
+        } finally {
+            if (status.exit() || error) {
+                span.setStatus(StatusCode.ERROR);
+            }
+            span.end();
+        }
+    }
+}
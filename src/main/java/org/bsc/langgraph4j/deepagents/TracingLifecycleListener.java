@@ -0,0 +1,98 @@
+package org.bsc.langgraph4j.deepagents;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import org.bsc.langgraph4j.GraphLifecycleListener;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.StateGraph;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Graph listener that runs each node inside a {@code node <node id>} span, made current for the node duration,
+ * so the tool and model calls performed by the node are its children.
+ * <p>
+ * The sub-agent graphs are traced automatically; to trace the nodes of the main agent register this listener
+ * in its compile config:
+ * <pre>{@code
+ * var agent = DeepAgent.builder()
+ *                  .openTelemetry( openTelemetry )
+ *                  ...
+ *                  .build()
+ *                  .compile( CompileConfig.builder()
+ *                          .withLifecycleListener( new TracingLifecycleListener( openTelemetry ) )
+ *                          .build() );
+ * }</pre>
+ */
+public class TracingLifecycleListener implements GraphLifecycleListener {
+
+    private record NodeSpan(String nodeId, Span span, Scope scope) {}
+
+    // nodes are executed on the caller thread; a nested (sequential) sub-agent run pushes its own nodes
+    private static final ThreadLocal<ArrayDeque<NodeSpan>> nodeSpans = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final Tracer tracer;
+    private final String agent;
+
+    /**
+     * Listener for the main agent graph
+     *
+     * @param openTelemetry the OpenTelemetry instance
+     */
+    public TracingLifecycleListener(OpenTelemetry openTelemetry) {
+        this(openTelemetry, AgentMetrics.MAIN_AGENT);
+    }
+
+    TracingLifecycleListener(OpenTelemetry openTelemetry, String agent) {
+        this.tracer = requireNonNull(openTelemetry, "openTelemetry cannot be null")
+                .getTracer(OpenTelemetryAgentTracing.INSTRUMENTATION_SCOPE);
+        this.agent = requireNonNull(agent, "agent cannot be null");
+    }
+
+    private static boolean isNode(String nodeId) {
+        return nodeId != null && !StateGraph.START.equals(nodeId) && !StateGraph.END.equals(nodeId);
+    }
+
+    @Override
+    public void before(String nodeId, Map<String, Object> state, RunnableConfig config, Long curTime) {
+        if (!isNode(nodeId)) {
+            return;
+        }
+        final var span = tracer.spanBuilder("node " + nodeId)
+                .setAttribute("gen_ai.agent.name", agent)
+                .setAttribute("langgraph4j.node", nodeId)
+                .startSpan();
+        nodeSpans.get().push(new NodeSpan(nodeId, span, span.makeCurrent()));
+    }
+
+    @Override
+    public void after(String nodeId, Map<String, Object> state, RunnableConfig config, Long curTime) {
+        end(nodeId, null);
+    }
+
+    @Override
+    public void onError(String nodeId, Map<String, Object> state, Throwable ex, RunnableConfig config) {
+        end(nodeId, ex);
+    }
+
+    private void end(String nodeId, Throwable error) {
+        final var spans = nodeSpans.get();
+        final var top = spans.peek();
+        if (top == null || !top.nodeId().equals(nodeId)) {
+            return;
+        }
+        spans.pop();
+        top.scope().close();
+        if (error != null) {
+            top.span().recordException(error);
+            top.span().setStatus(StatusCode.ERROR);
+        }
+        top.span().end();
+    }
+}
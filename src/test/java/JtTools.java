@@ -1,14 +1,15 @@
 import org.bsc.langgraph4j.deepagents.AiTools;
+import org.bsc.langgraph4j.deepagents.CachingTavilyApi;
 import org.bsc.langgraph4j.deepagents.TavilyApi;
 import org.bsc.langgraph4j.deepagents.TavilyApiHttpClient;
 
 public class JtTools implements AiTools {
 
-    private final TavilyApiHttpClient service;
+    private final TavilyApi service;
 
     public JtTools( String tavilyApiKey ) {
 
-        service = TavilyApiHttpClient.builder().tavilyApiKey(tavilyApiKey).build();
+        service = CachingTavilyApi.builder( TavilyApiHttpClient.builder().tavilyApiKey(tavilyApiKey).build() ).build();
 
     }
 
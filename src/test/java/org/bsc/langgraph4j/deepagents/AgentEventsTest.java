@@ -0,0 +1,71 @@
+package org.bsc.langgraph4j.deepagents;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.checkpoint.MemorySaver;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+
+import static org.bsc.langgraph4j.deepagents.ResearchFlow.researchAgent;
+import static org.bsc.langgraph4j.deepagents.ResearchFlow.researchScript;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AgentEventsTest {
+
+    @Test
+    public void testFlightRecorderEvents( @TempDir Path tempDir ) throws Exception {
+        final var agent = researchAgent( researchScript().build() )
+                .flightRecorderEvents( true )
+                .build()
+                .compile( OfflineRuns.compileConfig()
+                        .checkpointSaver( new MemorySaver() )
+                        .build() );
+
+        final var recordingFile = tempDir.resolve("agent.jfr");
+        try( var recording = new Recording() ) {
+            recording.enable( AgentEvents.ToolInvocation.class );
+            recording.enable( AgentEvents.SubAgentStart.class );
+            recording.enable( AgentEvents.SubAgentEnd.class );
+            recording.enable( AgentEvents.FilesReduce.class );
+            recording.enable( AgentEvents.StateSerialization.class );
+            recording.start();
+
+            OfflineRuns.invoke( agent, OfflineRuns.QUESTION, RunnableConfig.builder().threadId("jfr").build() );
+
+            recording.stop();
+            recording.dump( recordingFile );
+        }
+
+        final var events = RecordingFile.readAllEvents( recordingFile ).stream()
+                .collect( Collectors.groupingBy( event -> event.getEventType().getName() ) );
+
+        final var toolInvocations = events.get("org.bsc.langgraph4j.deepagents.ToolInvocation");
+        // main agent: write_todos, write_file, 2 x task, write_file; research agents: 1 x ls each
+        assertEquals( 7, toolInvocations.size() );
+        assertEquals( 2, toolInvocations.stream()
+                .filter( event -> event.getString("agent").equals("research-agent") )
+                .filter( event -> event.getString("tool").equals("ls") )
+                .count() );
+        assertTrue( toolInvocations.stream()
+                .filter( event -> event.getString("tool").equals("write_file") )
+                .allMatch( event -> event.getLong("argumentsBytes") > 0 ) );
+
+        assertEquals( 2, events.get("org.bsc.langgraph4j.deepagents.SubAgentStart").size() );
+        assertEquals( 2, events.get("org.bsc.langgraph4j.deepagents.SubAgentEnd").size() );
+        assertTrue( events.get("org.bsc.langgraph4j.deepagents.SubAgentEnd").stream()
+                .noneMatch( event -> event.getBoolean("error") ) );
+
+        assertTrue( events.get("org.bsc.langgraph4j.deepagents.FilesReduce").stream()
+                .mapToInt( event -> event.getInt("entries") )
+                .anyMatch( entries -> entries == 2 ) );
+
+        // checkpoints clone the state through the serializer
+        assertFalse( events.get("org.bsc.langgraph4j.deepagents.StateSerialization").isEmpty() );
+        assertTrue( events.get("org.bsc.langgraph4j.deepagents.StateSerialization").stream()
+                .allMatch( event -> event.getLong("bytes") > 0 ) );
+    }
+}
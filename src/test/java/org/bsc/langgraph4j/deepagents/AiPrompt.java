@@ -90,6 +90,10 @@ public enum AiPrompt {
     
     Use this to run an internet search for a given query. You can specify the number of results, the topic, and whether raw content should be included.
     
+    ## `internet_search_batch`
+    
+    Use this to run several internet searches at once, e.g. the different angles of a topic. The queries run in parallel and the results are de-duplicated by url: prefer it to consecutive `internet_search` calls.
+    
     """),
     CRITIQUE_AGENT("""
     You are a dedicated editor. You are being tasked to critique a report.
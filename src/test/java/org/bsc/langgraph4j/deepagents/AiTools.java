@@ -7,7 +7,11 @@ import org.springframework.ai.tool.ToolCallback;
 import org.springframework.ai.tool.function.FunctionToolCallback;
 import org.springframework.ai.util.json.schema.JsonSchemaGenerator;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 public interface AiTools {
@@ -53,4 +57,149 @@ public interface AiTools {
                 .build();
     }
 
+    record InternetSearchBatchArg(
+            @JsonPropertyDescription( "search queries, run in parallel" )
+            @JsonProperty( required = true )
+            List<String> queries,
+            @JsonPropertyDescription( "max results of each query" )
+            @JsonProperty( required = true, value="max_result", defaultValue = "5" )
+            int maxResult,
+            @JsonProperty( required = true, defaultValue = "general" )
+            @JsonPropertyDescription( "search topic it must be one of 'general', 'news' or 'finance'. Default is 'general'" )
+            String topic,
+            @JsonProperty( value="include_raw_content", defaultValue = "false" )
+            boolean includeRawContent
+    ){}
+
+    /**
+     * Results of a query of a batch search
+     *
+     * @param query   the query
+     * @param results the results not already returned for a previous query of the batch
+     * @param error   the error message if the search failed
+     */
+    record QueryResults( String query, List<TavilyApi.Response.Result> results, String error ) {}
+
+    /**
+     * Result of a batch search
+     *
+     * @param searches the results of each query
+     * @param omitted  number of results dropped to fit the token budget
+     */
+    record InternetSearchBatchResult( List<QueryResults> searches, int omitted ) {}
+
+    /**
+     * Max (estimated) tokens of the {@code internet_search_batch} result
+     */
+    default int internetSearchBatchMaxTokens() {
+        return 8_000;
+    }
+
+    /**
+     * Batch variant of {@link #internetSearch()}: runs the given queries in parallel, drops the results already
+     * returned for a previous query (same url) and fits the results in {@link #internetSearchBatchMaxTokens()}
+     * taking them round-robin by rank, so each query keeps its best results.
+     */
+    default ToolCallback internetSearchBatch() {
+        final var typeRef = new TypeReference<InternetSearchBatchArg>() {};
+
+        // the result is an InternetSearchBatchResult or, on invalid arguments, the error message
+        return FunctionToolCallback.<InternetSearchBatchArg, Object>builder( "internet_search_batch", (input, context ) -> {
+
+                    final var queries = ( input.queries() == null ) ? List.<String>of() : input.queries().stream()
+                            .filter( query -> query != null && !query.isBlank() )
+                            .distinct()
+                            .toList();
+                    if( queries.isEmpty() ) {
+                        return ToolCallStatus.error( "Error: queries cannot be empty" );
+                    }
+
+                    final var futures = queries.stream()
+                            .map( query -> {
+                                try {
+                                    return tavilyApiClient().searchAsync(TavilyApi.Request.builder()
+                                            .query( query )
+                                            .topic( input.topic() )
+                                            .includeImages(false)
+                                            .maxResults( input.maxResult() )
+                                            .includeRawContent( input.includeRawContent() )
+                                            .includeAnswer(false)
+                                            .build());
+                                } catch (RuntimeException e) {
+                                    return CompletableFuture.<TavilyApi.Response>failedFuture(e);
+                                }
+                            })
+                            .toList();
+
+                    final var responses = new ArrayList<List<TavilyApi.Response.Result>>(queries.size());
+                    final var errors = new ArrayList<String>(queries.size());
+                    for( var future : futures ) {
+                        try {
+                            final var results = future.join().results();
+                            responses.add( results != null ? results : List.of() );
+                            errors.add( null );
+                        } catch (CompletionException e) {
+                            final var cause = ( e.getCause() != null ) ? e.getCause() : e;
+                            responses.add( List.of() );
+                            errors.add( cause.getMessage() );
+                        }
+                    }
+
+                    // round-robin by rank, skipping the urls already taken and the results over budget
+                    final var selected = new ArrayList<List<TavilyApi.Response.Result>>(queries.size());
+                    queries.forEach( query -> selected.add( new ArrayList<>() ) );
+                    final var urls = new HashSet<String>();
+                    final var maxRank = responses.stream().mapToInt(List::size).max().orElse(0);
+                    var budget = internetSearchBatchMaxTokens();
+                    var omitted = 0;
+                    for( int rank = 0 ; rank < maxRank ; ++rank ) {
+                        for( int i = 0 ; i < responses.size() ; ++i ) {
+                            final var results = responses.get(i);
+                            if( rank >= results.size() ) {
+                                continue;
+                            }
+                            final var result = results.get(rank);
+                            if( result.url() != null && !urls.add( result.url() ) ) {
+                                continue;
+                            }
+                            final var tokens = estimateTokens( result );
+                            if( tokens > budget ) {
+                                ++omitted;
+                                continue;
+                            }
+                            budget -= tokens;
+                            selected.get(i).add( result );
+                        }
+                    }
+
+                    final var searches = new ArrayList<QueryResults>(queries.size());
+                    for( int i = 0 ; i < queries.size() ; ++i ) {
+                        searches.add( new QueryResults( queries.get(i), List.copyOf( selected.get(i) ), errors.get(i) ) );
+                    }
+
+                    DeepAgent.log.info( "tool: internet_search_batch\n{}", searches.stream()
+                            .map( search -> "%s: %d results".formatted( search.query(), search.results().size() ) )
+                            .collect(Collectors.joining(" ,")) );
+
+                    return new InternetSearchBatchResult( List.copyOf(searches), omitted );
+                })
+                .inputSchema(JsonSchemaGenerator.generateForType(typeRef.getType()))
+                .description("Run many web searches in parallel, results are de-duplicated by url")
+                .inputType(typeRef.getType())
+                .build();
+    }
+
+    /**
+     * Rough token estimation (4 chars per token) of a search result
+     */
+    private static int estimateTokens( TavilyApi.Response.Result result ) {
+        final var chars = length( result.title() ) + length( result.url() ) + length( result.content() ) +
+                length( result.rawContent() ) + length( result.publishedDate() ) + 64; // json overhead
+        return ( chars + 3 ) / 4;
+    }
+
+    private static int length( String value ) {
+        return ( value == null ) ? 0 : value.length();
+    }
+
 }
@@ -0,0 +1,110 @@
+package org.bsc.langgraph4j.deepagents;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AiToolsTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testInternetSearchBatch() throws Exception {
+        try( var server = new TavilyMockServer( 200 ) ) {
+
+            final AiTools tools = () -> TavilyApiHttpClient.builder()
+                    .tavilyApiKey( "test" )
+                    .baseUrl( server.baseUrl() )
+                    .build();
+
+            final var start = System.nanoTime();
+            final var result = mapper.readTree( tools.internetSearchBatch().call( """
+                    {
+                        "queries": [ "langgraph4j", "spring ai", "langgraph4j", "" ],
+                        "max_result": 3,
+                        "topic": "general"
+                    }
+                    """ ) );
+            final var elapsedMillis = ( System.nanoTime() - start ) / 1_000_000;
+
+            // distinct queries run in parallel
+            assertEquals( 2, server.requests() );
+            assertEquals( 2, server.maxConcurrentRequests() );
+            assertTrue( elapsedMillis < 400, "elapsed " + elapsedMillis + "ms" );
+
+            final var searches = result.path("searches");
+            assertEquals( 2, searches.size() );
+            assertEquals( "langgraph4j", searches.get(0).path("query").asText() );
+            assertEquals( 3, searches.get(0).path("results").size() );
+            assertEquals( "https://example.com/langgraph4j/1", searches.get(0).path("results").get(0).path("url").asText() );
+            assertEquals( "spring ai", searches.get(1).path("query").asText() );
+            assertEquals( 3, searches.get(1).path("results").size() );
+            assertEquals( 0, result.path("omitted").asInt() );
+        }
+    }
+
+    @Test
+    public void testInternetSearchBatchDedupAndBudget() throws Exception {
+        final AiTools tools = new AiTools() {
+            @Override
+            public TavilyApi tavilyApiClient() {
+                return request -> {
+                    if( request.query().equals("failing") ) {
+                        throw new RuntimeException("API Error: 429");
+                    }
+                    // every query returns the same first result
+                    final var results = new java.util.ArrayList<TavilyApi.Response.Result>();
+                    results.add( new TavilyApi.Response.Result( "shared", "https://example.com/shared", "shared content", null, 1.0f, null ) );
+                    for( int i = 1 ; i < request.maxResults() ; ++i ) {
+                        results.add( new TavilyApi.Response.Result( request.query() + " " + i,
+                                "https://example.com/%s/%d".formatted( request.query(), i ),
+                                "x".repeat( 200 ), null, 1.0f / i, null ) );
+                    }
+                    return new TavilyApi.Response( request.query(), null, null, null, results, 0.1f );
+                };
+            }
+
+            @Override
+            public int internetSearchBatchMaxTokens() {
+                return 200;
+            }
+        };
+
+        final var result = mapper.readTree( tools.internetSearchBatch().call( """
+                {
+                    "queries": [ "a", "b", "failing" ],
+                    "max_result": 4,
+                    "topic": "general"
+                }
+                """ ) );
+
+        final var searches = result.path("searches");
+        assertEquals( 3, searches.size() );
+
+        // the shared result is returned only for the first query, the best ranked results fit the budget first
+        assertEquals( "https://example.com/shared", searches.get(0).path("results").get(0).path("url").asText() );
+        assertEquals( 2, searches.get(0).path("results").size() );
+        assertEquals( "https://example.com/b/1", searches.get(1).path("results").get(0).path("url").asText() );
+        assertEquals( 1, searches.get(1).path("results").size() );
+        assertEquals( 4, result.path("omitted").asInt() );
+
+        assertEquals( 0, searches.get(2).path("results").size() );
+        assertEquals( "API Error: 429", searches.get(2).path("error").asText() );
+    }
+
+    @Test
+    public void testInternetSearchBatchWithoutQueries() throws Exception {
+        final AiTools tools = () -> request -> {
+            throw new IllegalStateException( "no search expected" );
+        };
+
+        for( var args : List.of( "{ \"max_result\": 4, \"topic\": \"general\" }",
+                                  "{ \"queries\": [ \" \" ], \"max_result\": 4, \"topic\": \"general\" }" ) ) {
+            assertEquals( "Error: queries cannot be empty",
+                    mapper.readTree( tools.internetSearchBatch().call( args ) ).asText() );
+        }
+    }
+}
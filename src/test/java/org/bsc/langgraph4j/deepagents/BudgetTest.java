@@ -0,0 +1,110 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.bsc.langgraph4j.RunnableConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.bsc.langgraph4j.deepagents.ResearchFlow.MAIN_PROMPT;
+import static org.bsc.langgraph4j.deepagents.ResearchFlow.researchAgent;
+import static org.bsc.langgraph4j.deepagents.ResearchFlow.researchScript;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BudgetTest {
+
+    @Test
+    public void testBudget() throws Exception {
+        final var chatModel = researchScript().recordPrompts(10).build();
+        final var budget = Budget.builder()
+                .maxModelCalls(4)
+                .build();
+
+        final var output = OfflineRuns.run( researchAgent( chatModel ).budget( budget ) );
+
+        // main: write_todos, write_file, task x 2 - first research agent: ls (budget exhausted), forced final answer
+        // second research agent: forced final answer - main: synthetic answer (no final-answer turn left)
+        assertEquals( 6, chatModel.calls() );
+        assertEquals( 6, budget.modelCalls() );
+        assertTrue( budget.tokens() > 0 );
+        assertEquals( String.format( Prompts.BUDGET_EXHAUSTED_ANSWER, "max model calls 4" ),
+                output.lastMessage().map( m -> m.getText() ).orElseThrow() );
+        assertEquals( Map.of( "question.txt", "What is langgraph4j?" ), output.files() );
+
+        final var finalAnswerPrompt = chatModel.prompts().get( chatModel.prompts().size() - 1 );
+        final var instructions = finalAnswerPrompt.getInstructions();
+        assertTrue( instructions.get( instructions.size() - 1 ).getText().contains("You cannot call any tool anymore") );
+        if( finalAnswerPrompt.getOptions() instanceof ToolCallingChatOptions options ) {
+            assertTrue( options.getToolCallbacks().isEmpty() );
+        }
+    }
+
+    @Test
+    public void testBudgetPerRun() throws Exception {
+        final var chatModel = researchScript().build();
+        final var budgets = new CopyOnWriteArrayList<Budget>();
+
+        final var agent = OfflineRuns.compile( researchAgent( chatModel )
+                .parallelTasks( true )
+                .budget( () -> {
+                    final var budget = Budget.builder().maxModelCalls(4).build();
+                    budgets.add( budget );
+                    return budget;
+                }) );
+
+        for( var threadId : List.of( "run-1", "run-2" ) ) {
+            final var output = OfflineRuns.invoke( agent, OfflineRuns.QUESTION,
+                    RunnableConfig.builder().threadId( threadId ).build() );
+            assertEquals( String.format( Prompts.BUDGET_EXHAUSTED_ANSWER, "max model calls 4" ),
+                    output.lastMessage().map( m -> m.getText() ).orElseThrow() );
+        }
+
+        // a budget per run, the parallel research agents draw from the budget of their run
+        assertEquals( 2, budgets.size() );
+        for( var budget : budgets ) {
+            assertEquals( 6, budget.modelCalls() );
+        }
+        assertEquals( 12, chatModel.calls() );
+    }
+
+    @Test
+    public void testBudgetUnboundAtRunEnd() throws Exception {
+        final var budgets = new CopyOnWriteArrayList<Budget>();
+        final var scope = new BudgetScope( () -> {
+            final var budget = Budget.builder().maxModelCalls(4).build();
+            budgets.add( budget );
+            return budget;
+        });
+        final var chatModel = BudgetChatModel.of( ScriptedChatModel.builder()
+                .scriptForSystem( MAIN_PROMPT,
+                        ScriptedChatModel.Turn.toolCalls( "ls", "{}" ),
+                        ScriptedChatModel.Turn.text( "done" ) )
+                .build(), scope, true );
+        final var system = new SystemMessage( MAIN_PROMPT );
+
+        // a response with tool calls keeps the budget of the run bound
+        chatModel.call( new Prompt( List.of( system, new UserMessage( OfflineRuns.QUESTION ) ) ) );
+        assertEquals( 1, budgets.size() );
+        assertSame( budgets.get(0), scope.current() );
+
+        // the final answer ends the run: the budget is released
+        chatModel.call( new Prompt( List.of( system, new UserMessage( OfflineRuns.QUESTION ), new AssistantMessage( "listing" ) ) ) );
+        assertEquals( 2, budgets.get(0).modelCalls() );
+        assertNotSame( budgets.get(0), scope.current() );
+        assertEquals( 2, budgets.size() );
+
+        // released from another thread, e.g. at the end of a streamed response
+        final var unbind = scope.unbind();
+        final var thread = new Thread( unbind );
+        thread.start();
+        thread.join();
+        assertNotSame( budgets.get(1), scope.current() );
+        assertEquals( 3, budgets.size() );
+    }
+}
@@ -0,0 +1,282 @@
+package org.bsc.langgraph4j.deepagents;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link TavilyApi} decorator that caches the responses and coalesces the identical in-flight requests.
+ * <p>
+ * Requests are keyed by their normalized form (query case and whitespaces, defaults, domains order, no api key):
+ * <ul>
+ *     <li>a cached response (LRU with TTL) is returned without calling the delegate</li>
+ *     <li>a request identical to one in flight waits for its response (single-flight) instead of issuing another call</li>
+ * </ul>
+ * The same applies to {@link #searchAsync(Request)}, which relies on the asynchronous search of the delegate.
+ * Failed calls are not cached. Hits, misses and coalesced requests are counted, see {@link #stats()}, and
+ * published as the {@code tavily.search.requests} counter (tag {@code result}) when a meter registry is given.
+ */
+public class CachingTavilyApi implements TavilyApi {
+
+    /**
+     * Normalized request
+     */
+    record Key(String query,
+               String searchDepth,
+               String topic,
+               Integer days,
+               String timeRange,
+               int maxResults,
+               boolean includeImages,
+               boolean includeImageDescriptions,
+               boolean includeAnswer,
+               boolean includeRawContent,
+               List<String> includeDomains,
+               List<String> excludeDomains) {
+
+        static Key of(Request request) {
+            return new Key(
+                    request.query().strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT),
+                    Objects.requireNonNullElse(request.searchDepth(), "basic"),
+                    Objects.requireNonNullElse(request.topic(), "general"),
+                    request.days(),
+                    request.timeRange(),
+                    request.maxResults() != 0 ? request.maxResults() : 10,
+                    request.includeImages(),
+                    request.includeImageDescriptions(),
+                    request.includeAnswer(),
+                    request.includeRawContent(),
+                    sorted(request.includeDomains()),
+                    sorted(request.excludeDomains()));
+        }
+
+        private static List<String> sorted(List<String> domains) {
+            return (domains == null) ? List.of() : domains.stream().sorted().distinct().toList();
+        }
+    }
+
+    public record Stats(long hits, long misses, long coalesced) {
+
+        public double hitRatio() {
+            final var total = hits + misses + coalesced;
+            return (total == 0) ? 0.0 : (double) (hits + coalesced) / total;
+        }
+    }
+
+    public static class Builder {
+        private final TavilyApi delegate;
+        private int maxEntries = 256;
+        private Duration ttl = Duration.ofMinutes(30);
+        private MeterRegistry meterRegistry;
+        private LongSupplier currentMillis = System::currentTimeMillis;
+
+        private Builder(TavilyApi delegate) {
+            this.delegate = requireNonNull(delegate, "delegate cannot be null");
+        }
+
+        public Builder maxEntries(int maxEntries) {
+            if (maxEntries <= 0) {
+                throw new IllegalArgumentException("maxEntries must be positive");
+            }
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        public Builder ttl(Duration ttl) {
+            this.ttl = requireNonNull(ttl, "ttl cannot be null");
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = requireNonNull(meterRegistry, "meterRegistry cannot be null");
+            return this;
+        }
+
+        Builder currentMillis(LongSupplier currentMillis) {
+            this.currentMillis = requireNonNull(currentMillis, "currentMillis cannot be null");
+            return this;
+        }
+
+        public CachingTavilyApi build() {
+            return new CachingTavilyApi(this);
+        }
+    }
+
+    public static Builder builder(TavilyApi delegate) {
+        return new Builder(delegate);
+    }
+
+    private record Timed(Response response, long expiresAt) {}
+
+    private final TavilyApi delegate;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LongSupplier currentMillis;
+    private final LinkedHashMap<Key, Timed> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentHashMap<Key, CompletableFuture<Response>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter coalescedCounter;
+
+    private CachingTavilyApi(Builder builder) {
+        this.delegate = builder.delegate;
+        this.maxEntries = builder.maxEntries;
+        this.ttlMillis = builder.ttl.toMillis();
+        this.currentMillis = builder.currentMillis;
+        this.hitCounter = counter(builder.meterRegistry, "hit");
+        this.missCounter = counter(builder.meterRegistry, "miss");
+        this.coalescedCounter = counter(builder.meterRegistry, "coalesced");
+    }
+
+    private static Counter counter(MeterRegistry registry, String result) {
+        if (registry == null) {
+            return null;
+        }
+        return Counter.builder("tavily.search.requests")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static void count(AtomicLong value, Counter counter) {
+        value.incrementAndGet();
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(hits.get(), misses.get(), coalesced.get());
+    }
+
+    private synchronized Response cached(Key key) {
+        final var timed = cache.get(key);
+        if (timed == null) {
+            return null;
+        }
+        if (timed.expiresAt() <= currentMillis.getAsLong()) {
+            cache.remove(key);
+            return null;
+        }
+        return timed.response();
+    }
+
+    private synchronized void cache(Key key, Response response) {
+        cache.put(key, new Timed(response, currentMillis.getAsLong() + ttlMillis));
+        final var eldest = cache.entrySet().iterator();
+        while (cache.size() > maxEntries) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    @Override
+    public Response search(Request request) {
+        if (request.query() == null || request.query().isEmpty()) {
+            throw new IllegalArgumentException("Query parameter is required.");
+        }
+        final var key = Key.of(request);
+
+        var response = cached(key);
+        if (response != null) {
+            count(hits, hitCounter);
+            return response;
+        }
+
+        final var future = new CompletableFuture<Response>();
+        final var running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            count(coalesced, coalescedCounter);
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw (e.getCause() instanceof RuntimeException ex) ? ex : e;
+            }
+        }
+
+        try {
+            // a call may have completed between the cache lookup and the in-flight registration
+            response = cached(key);
+            if (response != null) {
+                count(hits, hitCounter);
+            } else {
+                count(misses, missCounter);
+                response = delegate.search(request);
+                cache(key, response);
+            }
+            future.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Response> searchAsync(Request request) {
+        if (request.query() == null || request.query().isEmpty()) {
+            throw new IllegalArgumentException("Query parameter is required.");
+        }
+        final var key = Key.of(request);
+
+        var response = cached(key);
+        if (response != null) {
+            count(hits, hitCounter);
+            return CompletableFuture.completedFuture(response);
+        }
+
+        final var future = new CompletableFuture<Response>();
+        final var running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            count(coalesced, coalescedCounter);
+            return running.copy();
+        }
+
+        // a call may have completed between the cache lookup and the in-flight registration
+        response = cached(key);
+        if (response != null) {
+            count(hits, hitCounter);
+            inFlight.remove(key, future);
+            future.complete(response);
+            return CompletableFuture.completedFuture(response);
+        }
+
+        count(misses, missCounter);
+        final CompletableFuture<Response> call;
+        try {
+            call = delegate.searchAsync(request);
+        } catch (RuntimeException e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+        call.whenComplete((value, error) -> {
+            if (error == null) {
+                cache(key, value);
+            }
+            inFlight.remove(key, future);
+            if (error == null) {
+                future.complete(value);
+            } else {
+                future.completeExceptionally((error instanceof CompletionException) ? error.getCause() : error);
+            }
+        });
+        return future.copy();
+    }
+}
@@ -0,0 +1,96 @@
+package org.bsc.langgraph4j.deepagents;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingTavilyApiTest {
+
+    private static TavilyApi.Request request( String query ) {
+        return TavilyApi.Request.builder()
+                .query( query )
+                .topic( "general" )
+                .maxResults( 3 )
+                .build();
+    }
+
+    @Test
+    public void testCacheAndSingleFlight() throws Exception {
+        final var clock = new AtomicLong( 1_000 );
+        final var registry = new SimpleMeterRegistry();
+
+        final var executor = Executors.newFixedThreadPool( 8 );
+        try( var server = new TavilyMockServer( 300 ) ) {
+
+            final var tavily = CachingTavilyApi.builder( TavilyApiHttpClient.builder()
+                                .tavilyApiKey( "test" )
+                                .baseUrl( server.baseUrl() )
+                                .build() )
+                    .ttl( Duration.ofMinutes(10) )
+                    .meterRegistry( registry )
+                    .currentMillis( clock::get )
+                    .build();
+
+            // identical (once normalized) requests issued at the same moment
+            final var queries = List.of( "LangGraph4j", "langgraph4j", " langgraph4j ", "LANGGRAPH4J" );
+            final var futures = IntStream.range( 0, 8 )
+                    .mapToObj( i -> CompletableFuture.supplyAsync(
+                            () -> tavily.search( request( queries.get( i % queries.size() ) ) ), executor ) )
+                    .toList();
+            final var responses = futures.stream().map( CompletableFuture::join ).toList();
+
+            assertEquals( 1, server.requests() );
+            assertEquals( 3, responses.get(0).results().size() );
+            assertTrue( responses.stream().allMatch( response -> response == responses.get(0) ) );
+
+            // cached
+            assertSame( responses.get(0), tavily.search( request("langgraph4j") ) );
+            assertEquals( 1, server.requests() );
+
+            // different request
+            tavily.search( request("spring ai") );
+            assertEquals( 2, server.requests() );
+
+            // expired
+            clock.addAndGet( Duration.ofMinutes(10).toMillis() );
+            tavily.search( request("langgraph4j") );
+            assertEquals( 3, server.requests() );
+
+            final var stats = tavily.stats();
+            assertEquals( 3, stats.misses() );
+            assertEquals( 8 + 1 + 1 + 1, stats.hits() + stats.misses() + stats.coalesced() );
+            assertTrue( stats.hitRatio() > 0.5 );
+            assertEquals( stats.misses(), registry.get("tavily.search.requests").tag("result", "miss").counter().count() );
+            assertEquals( stats.hits(), registry.get("tavily.search.requests").tag("result", "hit").counter().count() );
+            assertEquals( stats.coalesced(), registry.get("tavily.search.requests").tag("result", "coalesced").counter().count() );
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailuresAreNotCached() {
+        final var calls = new AtomicLong();
+        final var tavily = CachingTavilyApi.builder( request -> {
+                    if( calls.incrementAndGet() == 1 ) {
+                        throw new RuntimeException("API Error: 429");
+                    }
+                    return new TavilyApi.Response( request.query(), List.of(), null, List.of(), List.of(), 0.1f );
+                })
+                .build();
+
+        assertThrows( RuntimeException.class, () -> tavily.search( request("langgraph4j") ) );
+        assertNotNull( tavily.search( request("langgraph4j") ) );
+        assertNotNull( tavily.search( request("langgraph4j") ) );
+        assertEquals( 2, calls.get() );
+    }
+}
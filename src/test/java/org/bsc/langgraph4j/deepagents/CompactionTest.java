@@ -0,0 +1,73 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+
+import static org.bsc.langgraph4j.deepagents.ResearchFlow.MAIN_PROMPT;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactionTest {
+
+    @Test
+    public void testCompaction() throws Exception {
+        final var readBigFile = ScriptedChatModel.Turn.toolCalls( "read_file", "{ \"filePath\": \"big.txt\" }" );
+        final var chatModel = ScriptedChatModel.builder()
+                .scriptForSystem( MAIN_PROMPT,
+                        ScriptedChatModel.Turn.toolCalls( "write_todos", """
+                                { "toDos": [ { "content": "read the file", "status": "IN_PROGRESS" } ] }
+                                """ ),
+                        ScriptedChatModel.Turn.toolCalls( "write_file",
+                                String.format( "{ \"filePath\": \"big.txt\", \"content\": \"%s\" }", "line\\n".repeat(400) ) ),
+                        readBigFile,
+                        readBigFile,
+                        readBigFile,
+                        ScriptedChatModel.Turn.text( "done" ))
+                .recordPrompts(10)
+                .build();
+
+        final var output = OfflineRuns.run( DeepAgent.builder()
+                .instructions( MAIN_PROMPT )
+                .chatModel( chatModel )
+                .compaction( Compaction.builder()
+                        .tokenThreshold(500)
+                        .keepLastTurns(2)
+                        .maxArgumentLength(256)
+                        .build() ), "Read big.txt" );
+
+        assertEquals( "done", output.lastMessage().map( m -> m.getText() ).orElseThrow() );
+        assertEquals( 6, chatModel.calls() );
+        // the state is not compacted
+        assertEquals( "line\n".repeat(400), output.files().get("big.txt") );
+
+        final var lastPrompt = chatModel.prompts().get( chatModel.prompts().size() - 1 ).getInstructions();
+        assertInstanceOf( SystemMessage.class, lastPrompt.get(0) );
+        assertTrue( lastPrompt.get(0).getText().startsWith( MAIN_PROMPT ) );
+
+        final var toolCalls = lastPrompt.stream()
+                .filter( AssistantMessage.class::isInstance )
+                .flatMap( m -> ((AssistantMessage)m).getToolCalls().stream() )
+                .toList();
+        final var toolResponses = lastPrompt.stream()
+                .filter( ToolResponseMessage.class::isInstance )
+                .flatMap( m -> ((ToolResponseMessage)m).getResponses().stream() )
+                .toList();
+        assertEquals( 5, toolCalls.size() );
+        assertEquals( 5, toolResponses.size() );
+
+        // todo list kept
+        assertTrue( toolCalls.get(0).arguments().contains("read the file") );
+        assertTrue( toolResponses.get(0).responseData().contains("Updated todo list") );
+        // large write_file content replaced
+        assertTrue( toolCalls.get(1).arguments().contains("[compacted: 2000 chars]") );
+        assertTrue( toolCalls.get(1).arguments().contains("big.txt") );
+        // oldest read_file output replaced by a stub pointing to the file
+        assertTrue( toolResponses.get(2).responseData().startsWith("[compacted: output of 'read_file'") );
+        assertTrue( toolResponses.get(2).responseData().contains("big.txt") );
+        // latest 2 turns kept as they are
+        assertTrue( toolResponses.get(3).responseData().contains("line") );
+        assertTrue( toolResponses.get(4).responseData().contains("line") );
+        assertEquals( toolResponses.get(3).responseData(), toolResponses.get(4).responseData() );
+    }
+}
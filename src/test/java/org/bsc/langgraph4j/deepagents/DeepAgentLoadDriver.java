@@ -0,0 +1,148 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.bsc.langgraph4j.CompileConfig;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+
+/**
+ * Offline load-test driver ({@code main}): runs N concurrent DeepAgent sessions of the {@link ResearchFlow}
+ * against the {@link ScriptedChatModel} and reports step latency percentiles, throughput and allocation rate.
+ * <p>
+ * The allocation is measured across all the threads, the sub-agents running in parallel included.
+ * <p>
+ * System properties:
+ * <ul>
+ *     <li>{@code sessions} total number of sessions (default 200)</li>
+ *     <li>{@code concurrency} number of concurrent sessions (default 16)</li>
+ *     <li>{@code latency.median} median model latency in ms, log-normal distributed (default 20)</li>
+ *     <li>{@code parallelTasks} run sub-agents in parallel (default true)</li>
+ * </ul>
+ */
+public class DeepAgentLoadDriver {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(DeepAgentLoadDriver.class);
+
+    private static final MethodHandle TOTAL_ALLOCATED_BYTES = totalAllocatedBytesHandle();
+
+    private static MethodHandle totalAllocatedBytesHandle() {
+        try {
+            return MethodHandles.publicLookup().findVirtual( com.sun.management.ThreadMXBean.class,
+                    "getTotalThreadAllocatedBytes",
+                    MethodType.methodType( long.class ) );
+        } catch( Throwable ex ) {
+            log.debug( "total thread allocated bytes not available, fallback to the live threads" );
+            return null;
+        }
+    }
+
+    /**
+     * Bytes allocated so far by all the threads. On Java 21+ the terminated and the virtual threads are included,
+     * otherwise only the live platform threads are counted.
+     */
+    private static long totalAllocatedBytes() {
+        if( !( ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean ) ) {
+            return 0L;
+        }
+        if( TOTAL_ALLOCATED_BYTES != null ) {
+            try {
+                return (long) TOTAL_ALLOCATED_BYTES.invoke( bean );
+            } catch( Throwable ex ) {
+                log.debug( "cannot read the total thread allocated bytes", ex );
+            }
+        }
+        return Arrays.stream( bean.getThreadAllocatedBytes( bean.getAllThreadIds() ) )
+                .filter( bytes -> bytes > 0 )
+                .sum();
+    }
+
+    private static long percentile( long[] sorted, double p ) {
+        if( sorted.length == 0 ) return 0;
+        final var index = (int)Math.ceil( p / 100.0 * sorted.length ) - 1;
+        return sorted[ Math.max( 0, Math.min( index, sorted.length - 1 ) ) ];
+    }
+
+    public static void main( String[] args ) throws Exception {
+        final var sessions = Integer.getInteger( "sessions", 200 );
+        final var concurrency = Integer.getInteger( "concurrency", 16 );
+        final var medianLatency = Long.getLong( "latency.median", 20L );
+        final var parallelTasks = Boolean.parseBoolean( System.getProperty( "parallelTasks", "true" ) );
+
+        final var chatModel = ResearchFlow.researchScript()
+                .latency( ScriptedChatModel.Latency.logNormal( medianLatency, 0.5 ) )
+                .build();
+
+        final var agent = ResearchFlow.researchAgent( chatModel )
+                .parallelTasks( parallelTasks )
+                .build()
+                .compile( CompileConfig.builder().recursionLimit(50).build() );
+
+        final var errors = new AtomicLong();
+        final var executor = Executors.newFixedThreadPool( concurrency );
+        final var futures = new ArrayList<Future<long[]>>( sessions );
+
+        final var allocatedBefore = totalAllocatedBytes();
+        final var start = System.nanoTime();
+
+        for( int i = 0 ; i < sessions ; ++i ) {
+            final var sessionId = i;
+            futures.add( executor.submit( () -> {
+                final var steps = new ArrayList<Long>();
+                final var config = RunnableConfig.builder().threadId( "session-" + sessionId ).build();
+                try {
+                    final var last = new long[] { System.nanoTime() };
+                    agent.stream( Map.of( "messages", new UserMessage("What is langgraph4j?") ), config )
+                            .stream()
+                            .forEach( output -> {
+                                final var now = System.nanoTime();
+                                steps.add( now - last[0] );
+                                last[0] = now;
+                            });
+                } catch( Exception ex ) {
+                    errors.incrementAndGet();
+                }
+                return steps.stream().mapToLong(Long::longValue).toArray();
+            }));
+        }
+
+        final List<long[]> results = new ArrayList<>( sessions );
+        for( var future : futures ) {
+            results.add( future.get() );
+        }
+        final var elapsedNanos = System.nanoTime() - start;
+        final var allocatedBytes = totalAllocatedBytes() - allocatedBefore;
+        executor.shutdown();
+
+        final var stepNanos = results.stream()
+                .flatMapToLong( Arrays::stream )
+                .sorted()
+                .toArray();
+        final var elapsedSeconds = elapsedNanos / 1e9;
+
+        System.out.println( format( """
+                sessions: %d (concurrency %d, parallel tasks %s, median model latency %dms), errors: %d
+                model calls: %d
+                step latency (ms): p50=%.2f p95=%.2f p99=%.2f max=%.2f
+                throughput: %.1f sessions/s, %.1f steps/s
+                allocation (all threads): %.1f MB/s, %.1f KB/session
+                """,
+                sessions, concurrency, parallelTasks, medianLatency, errors.get(),
+                chatModel.calls(),
+                percentile( stepNanos, 50 ) / 1e6, percentile( stepNanos, 95 ) / 1e6,
+                percentile( stepNanos, 99 ) / 1e6, percentile( stepNanos, 100 ) / 1e6,
+                sessions / elapsedSeconds, stepNanos.length / elapsedSeconds,
+                allocatedBytes / elapsedSeconds / (1024 * 1024), allocatedBytes / 1024.0 / sessions ) );
+    }
+}
@@ -0,0 +1,31 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.bsc.langgraph4j.deepagents.ResearchFlow.researchAgent;
+import static org.bsc.langgraph4j.deepagents.ResearchFlow.researchScript;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs a whole deep research flow (planning, sub-agents fan-out, files) against the {@link ScriptedChatModel}
+ */
+public class DeepAgentOfflineTest {
+
+    @Test
+    public void testResearchFlow() throws Exception {
+        final var chatModel = researchScript().build();
+
+        final var output = OfflineRuns.run( researchAgent( chatModel ).parallelTasks( true ) );
+
+        assertEquals( "final answer", output.lastMessage().map( m -> m.getText() ).orElseThrow() );
+        assertEquals( List.of( new DeepAgent.ToDo( "research", DeepAgent.ToDo.Status.IN_PROGRESS ) ), output.todos() );
+        assertEquals( Map.of( "question.txt", "What is langgraph4j?",
+                        "final_report.md", "# LangGraph4j\nreport" ),
+                output.files() );
+        // main agent: 5 turns, research agents: 2 turns each
+        assertEquals( 5 + 2 * 2, chatModel.calls() );
+    }
+}
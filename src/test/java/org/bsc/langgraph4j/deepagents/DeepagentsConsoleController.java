@@ -59,7 +59,7 @@ public class DeepagentsConsoleController implements CommandLineRunner {
                 Instead, you should break down a large topic into the necessary components, and then call multiple research agents in parallel, one for each sub question.
                 """)
             .prompt(AiPrompt.RESEARCH_AGENT.value())
-            .tools( List.of( "internet_search" ))
+            .tools( List.of( "internet_search", "internet_search_batch" ))
             .build();
 
         var critiqueSubAgent =  DeepAgent.SubAgent.builder()
@@ -72,7 +72,7 @@ public class DeepagentsConsoleController implements CommandLineRunner {
                 .instructions(AiPrompt.MAIN_AGENT.value())
                 .subAgents( List.of( researchSubagent, critiqueSubAgent ))
                 .chatModel(chatModel)
-                .tools( List.of( tools.internetSearch()) )
+                .tools( List.of( tools.internetSearch(), tools.internetSearchBatch()) )
                 .build()
                 .compile( CompileConfig.builder()
                         .recursionLimit(100)
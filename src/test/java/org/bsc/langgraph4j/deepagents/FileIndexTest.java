@@ -0,0 +1,340 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileIndexTest {
+
+    /**
+     * Inline store counting the reads
+     */
+    static class CountingFileStore implements FileStore {
+        final AtomicInteger reads = new AtomicInteger();
+
+        @Override
+        public String write(String path, String content) {
+            return content;
+        }
+
+        @Override
+        public Optional<String> read(String path, String ref) {
+            reads.incrementAndGet();
+            return Optional.ofNullable(ref);
+        }
+    }
+
+    static PersistentMap<String,String> files() {
+        return PersistentMap.<String,String>empty()
+                .plus( "question.txt", "What is langgraph4j?" )
+                .plus( "final_report.md", "# LangGraph4j\nA library to build stateful agents\n" )
+                .plus( "notes/history.md", "LangGraph4j started in 2024\nport of LangGraph" )
+                .plus( "notes/features.txt", "checkpoints\nparallel branches\nstreaming" )
+                .plus( "notes/deep/todo.md", "TODO: compare with langchain4j" );
+    }
+
+    @Test
+    public void testGlob() {
+        final var index = new FileIndex( FileStore.inline() );
+        final var files = files();
+
+        assertEquals( List.of( "final_report.md", "notes/deep/todo.md", "notes/history.md" ), index.glob( files, "*.md" ) );
+        assertEquals( List.of( "final_report.md" ), index.glob( files, "/*.md" ) );
+        assertEquals( List.of( "notes/features.txt", "notes/history.md" ), index.glob( files, "notes/*" ) );
+        assertEquals( List.of( "notes/deep/todo.md", "notes/features.txt", "notes/history.md" ), index.glob( files, "notes/**" ) );
+        assertEquals( List.of( "notes/deep/todo.md", "notes/history.md" ), index.glob( files, "notes/**/*.md" ) );
+        assertEquals( List.of( "notes/features.txt", "notes/history.md" ), index.glob( files, "notes/*.{md,txt}" ) );
+        assertEquals( List.of( "notes/features.txt" ), index.glob( files, "**/[f]eature?.txt" ) );
+        assertEquals( List.of( "question.txt" ), index.glob( files, "question.txt" ) );
+        assertEquals( List.of(), index.glob( files, "missing/*.md" ) );
+        assertThrows( IllegalArgumentException.class, () -> index.glob( files, "notes/{md" ) );
+    }
+
+    @Test
+    public void testGrep() {
+        final var index = new FileIndex( FileStore.inline() );
+        final var files = files();
+
+        assertEquals( List.of(
+                        new FileIndex.Match( "final_report.md", 1, "# LangGraph4j" ),
+                        new FileIndex.Match( "notes/history.md", 1, "LangGraph4j started in 2024" ) ),
+                index.grep( files, "LangGraph4j", false, null, Integer.MAX_VALUE, 100 ) );
+
+        assertEquals( 3, index.grep( files, "langgraph4j", true, null, Integer.MAX_VALUE, 100 ).size() );
+        assertEquals( List.of( "notes/history.md" ),
+                index.grep( files, "langgraph", true, "notes/**", 1, 100 ).stream().map( FileIndex.Match::path ).toList() );
+        assertEquals( List.of( new FileIndex.Match( "notes/history.md", 1, "LangGraph4j started in 2024" ) ),
+                index.grep( files, "started in \\d+", false, null, Integer.MAX_VALUE, 100 ) );
+        assertEquals( 3, index.grep( files, "langgraph", true, null, 1, 100 ).stream().map( FileIndex.Match::path ).distinct().count() );
+        assertEquals( 1, index.grep( files, "langgraph", true, null, 1, 1 ).size() );
+        assertEquals( List.of(), index.grep( files, "kotlin", false, null, Integer.MAX_VALUE, 100 ) );
+        assertThrows( PatternSyntaxException.class, () -> index.grep( files, "(unclosed", false, null, 1, 100 ) );
+    }
+
+    @Test
+    public void testList() {
+        final var index = new FileIndex( FileStore.inline() );
+        final var files = files().plus( "notes/empty.md", "" ).plus( "notes/utf8.md", "✓ done\n\n" );
+
+        assertEquals( List.of( "final_report.md", "notes/deep/todo.md", "notes/empty.md", "notes/features.txt",
+                        "notes/history.md", "notes/utf8.md", "question.txt" ),
+                index.list( files, null, null ).stream().map( FileIndex.FileInfo::path ).toList() );
+        assertEquals( List.of( "notes/empty.md", "notes/history.md", "notes/utf8.md" ),
+                index.paths( files, "notes", "notes/*.md" ) );
+        assertEquals( List.of( "notes/deep/todo.md" ),
+                index.list( files, "/notes/deep/", null ).stream().map( FileIndex.FileInfo::path ).toList() );
+        assertEquals( List.of( "notes/empty.md", "notes/history.md", "notes/utf8.md" ),
+                index.list( files, "notes", "notes/*.md" ).stream().map( FileIndex.FileInfo::path ).toList() );
+        assertEquals( List.of(), index.list( files, "missing", null ) );
+
+        final var infos = index.list( files, "notes", null ).stream()
+                .collect( java.util.stream.Collectors.toMap( FileIndex.FileInfo::path, info -> info ) );
+        assertEquals( new FileIndex.FileInfo( "notes/features.txt", 39, 3 ), infos.get( "notes/features.txt" ) );
+        assertEquals( new FileIndex.FileInfo( "notes/empty.md", 0, 0 ), infos.get( "notes/empty.md" ) );
+        assertEquals( new FileIndex.FileInfo( "notes/utf8.md", 10, 1 ), infos.get( "notes/utf8.md" ) );
+
+        assertEquals( List.of( new FileIndex.FileInfo( "question.txt", 20, 1 ), new FileIndex.FileInfo( "notes/empty.md", 0, 0 ) ),
+                index.stats( files, List.of( "question.txt", "missing.md", "notes/empty.md" ) ) );
+    }
+
+    @Test
+    public void testRequiredLiterals() {
+        assertEquals( List.of( "langgraph4j" ), FileIndex.requiredLiterals( "langgraph4j" ) );
+        assertEquals( List.of( "started in " ), FileIndex.requiredLiterals( "started in \\d+" ) );
+        assertEquals( List.of( "log", "Error" ), FileIndex.requiredLiterals( "log.*Error" ) );
+        assertEquals( List.of( "file.md" ), FileIndex.requiredLiterals( "file\\.md" ) );
+        assertEquals( List.of( "abc" ), FileIndex.requiredLiterals( "abcd?" ) );
+        assertEquals( List.of( "abc" ), FileIndex.requiredLiterals( "[xy]abc(de)?" ) );
+        assertEquals( List.of(), FileIndex.requiredLiterals( "foo|bar" ) );
+        assertEquals( List.of(), FileIndex.requiredLiterals( "(?i)foo" ) );
+
+        // quantifier arguments, escapes and classes are not literals
+        assertEquals( List.of(), FileIndex.requiredLiterals( "\\d{1,3}\\.\\d{1,3}" ) );
+        assertEquals( List.of(), FileIndex.requiredLiterals( "ab{10,20}" ) );
+        assertEquals( List.of(), FileIndex.requiredLiterals( "\\p{Alpha}+" ) );
+        assertEquals( List.of( "bcd" ), FileIndex.requiredLiterals( "\\x41bcd" ) );
+        assertEquals( List.of( "bcd" ), FileIndex.requiredLiterals( "\\u0041bcd" ) );
+        assertEquals( List.of( "abc" ), FileIndex.requiredLiterals( "[\\]xyz]abc" ) );
+        assertEquals( List.of( "abc" ), FileIndex.requiredLiterals( "[]xyz]abc" ) );
+        assertEquals( List.of( "xabc" ), FileIndex.requiredLiterals( "[a[bc]]xabc" ) );
+        assertEquals( List.of( "abc", "def" ), FileIndex.requiredLiterals( "abc+def" ) );
+        assertEquals( List.of(), FileIndex.requiredLiterals( "\\y123" ) );
+
+        // the literals of a valid expression are contained in every match
+        final var index = new FileIndex( FileStore.inline() );
+        final var files = PersistentMap.<String,String>empty()
+                .plus( "ip.txt", "host 10.0.0.1" )
+                .plus( "bees.txt", "abbbbbbbbbbbb" )
+                .plus( "words.txt", "Alpha" );
+        assertEquals( List.of( "ip.txt" ),
+                index.grep( files, "\\d{1,3}\\.\\d{1,3}", false, null, 1, 100 ).stream().map( FileIndex.Match::path ).toList() );
+        assertEquals( List.of( "bees.txt" ),
+                index.grep( files, "ab{10,20}", false, null, 1, 100 ).stream().map( FileIndex.Match::path ).toList() );
+        assertEquals( List.of( "words.txt" ),
+                index.grep( files, "\\x41lph", false, null, 1, 100 ).stream().map( FileIndex.Match::path ).toList() );
+    }
+
+    @Test
+    public void testIncrementalSync() {
+        final var store = new CountingFileStore();
+        final var index = new FileIndex( store );
+
+        var files = PersistentMap.<String,String>empty();
+        for( int i = 0 ; i < 10_000 ; ++i ) {
+            files = files.plus( "docs/file" + i + ".md", "document number " + i );
+        }
+        // listing and globbing don't read the contents
+        assertEquals( 10_000, index.paths( files, null, null ).size() );
+        assertEquals( 10_000, index.glob( files, "docs/*.md" ).size() );
+        assertEquals( 0, store.reads.get() );
+
+        // the stats are read once
+        assertEquals( List.of( new FileIndex.FileInfo( "docs/file1.md", 17, 1 ) ), index.list( files, "docs", "docs/file1.md" ) );
+        assertEquals( List.of( new FileIndex.FileInfo( "docs/file1.md", 17, 1 ) ), index.stats( files, List.of( "docs/file1.md" ) ) );
+        assertEquals( 1, store.reads.get() );
+
+        // the first search indexes all the files
+        store.reads.set(0);
+        assertEquals( List.of(), index.grep( files, "needle", false, null, 1, 100 ) );
+        assertEquals( 10_000, store.reads.get() );
+
+        // only the updated files are read, by the next search
+        store.reads.set(0);
+        files = files.plusAll( Map.of( "docs/file42.md", "updated needle", "docs/new.md", "another needle" ) );
+        assertEquals( 10_001, index.paths( files, null, null ).size() );
+        assertEquals( 0, store.reads.get() );
+        assertEquals( 1, index.idleSnapshots() );
+
+        // the search reads the updated files, then only the candidate files
+        assertEquals( List.of( "docs/file42.md", "docs/new.md" ),
+                index.grep( files, "needle", false, null, 1, 100 ).stream().map( FileIndex.Match::path ).toList() );
+        assertEquals( 2 + 2, store.reads.get() );
+        assertEquals( List.of(), index.grep( files, "document number 42$", false, null, 1, 100 ) );
+
+        // removed files
+        final var copy = new HashMap<>( files );
+        copy.remove( "docs/new.md" );
+        assertEquals( List.of(), index.glob( copy, "docs/new.md" ) );
+        assertEquals( List.of( "docs/file42.md" ),
+                index.grep( copy, "needle", false, null, 1, 100 ).stream().map( FileIndex.Match::path ).toList() );
+    }
+
+    @Test
+    public void testDirectoryStoreScan( @TempDir Path tempDir ) {
+        // the stores reading by range
+        assertRangeScan( FileStore.directory( tempDir.resolve("directory") ) );
+        assertRangeScan( FileStore.mapped( tempDir.resolve("mapped") ) );
+        assertRangeScan( FileStore.contentAddressed( tempDir.resolve("blobs") ) );
+    }
+
+    private void assertRangeScan( FileStore store ) {
+        final var index = new FileIndex( store );
+
+        // larger than a scan chunk (ASCII, the chars are the bytes), a needle across each chunk boundary
+        final var content = new StringBuilder();
+        while( content.length() < 200_000 ) {
+            content.append( "line " ).append( content.length() ).append( '\n' );
+        }
+        content.insert( 64 * 1024 - 3, "NEEDLE" ).insert( 128 * 1024 - 2, "NEEDLE" ).append( "\n\n" );
+        final var big = content.toString();
+        final var files = PersistentMap.<String,String>empty()
+                .plus( "big.txt", store.write( "big.txt", big ) )
+                .plus( "small.txt", store.write( "small.txt", "no match" ) );
+
+        final var info = index.list( files, null, "big.txt" ).get(0);
+        assertEquals( big.getBytes( java.nio.charset.StandardCharsets.UTF_8 ).length, info.size() );
+        assertEquals( (int) big.chars().filter( c -> c == '\n' ).count() - 2, info.lines() );
+
+        assertEquals( List.of( "big.txt" ),
+                index.grep( files, "needle", true, null, 1, 100 ).stream().map( FileIndex.Match::path ).toList() );
+        assertEquals( 2, index.grep( files, "NEEDLE", false, null, 100, 100 ).size() );
+    }
+
+    @Test
+    public void testInterleavedSessions() throws Exception {
+        final var store = new CountingFileStore();
+        final var index = new FileIndex( store );
+
+        var first = PersistentMap.<String,String>empty();
+        var second = PersistentMap.<String,String>empty();
+        for( int i = 0 ; i < 100 ; ++i ) {
+            first = first.plus( "first/file" + i + ".md", "first session " + i );
+            second = second.plus( "second/file" + i + ".md", "second session " + i );
+        }
+
+        // each session keeps its own snapshot, the other session's files are never seen
+        for( int round = 0 ; round < 3 ; ++round ) {
+            assertEquals( List.of( "first/file7.md" ), index.glob( first, "**/file7.md" ) );
+            assertEquals( List.of( "second/file7.md" ), index.glob( second, "**/file7.md" ) );
+            assertEquals( List.of(), index.grep( first, "second session", false, null, 1, 100 ) );
+            assertEquals( 100, index.grep( second, "second session", false, null, 1, 100 ).size() );
+        }
+        assertEquals( 2, index.idleSnapshots() );
+        // indexed once per session, then only the matching files are read
+        assertEquals( 200 + 3 * 100, store.reads.get() );
+
+        // a new version of a session updates the closest snapshot
+        store.reads.set(0);
+        first = first.plus( "first/needle.md", "needle" );
+        assertEquals( List.of( "first/needle.md" ),
+                index.grep( first, "needle", false, null, 1, 100 ).stream().map( FileIndex.Match::path ).toList() );
+        assertEquals( 2, store.reads.get() );
+        assertEquals( 2, index.idleSnapshots() );
+
+        // concurrent queries of the two sessions
+        final var executor = java.util.concurrent.Executors.newFixedThreadPool( 4 );
+        try {
+            final var futures = new java.util.ArrayList<java.util.concurrent.Future<List<String>>>();
+            for( int i = 0 ; i < 40 ; ++i ) {
+                final var files = ( i % 2 == 0 ) ? first : second;
+                futures.add( executor.submit( () -> index.glob( files, "*.md" ) ) );
+            }
+            for( int i = 0 ; i < futures.size() ; ++i ) {
+                final var paths = futures.get(i).get();
+                final var prefix = ( i % 2 == 0 ) ? "first/" : "second/";
+                assertEquals( ( i % 2 == 0 ) ? 101 : 100, paths.size() );
+                assertTrue( paths.stream().allMatch( path -> path.startsWith( prefix ) ) );
+            }
+        } finally {
+            executor.shutdown();
+        }
+        // at most a snapshot per concurrent query of each session
+        assertTrue( index.idleSnapshots() <= 2 * 4 );
+        assertTrue( index.bytes() <= FileIndex.DEFAULT_MAX_BYTES );
+    }
+
+    @Test
+    public void testSharedContents() {
+        final var store = new CountingFileStore();
+        final var index = new FileIndex( store );
+
+        var common = PersistentMap.<String,String>empty();
+        for( int i = 0 ; i < 100 ; ++i ) {
+            common = common.plus( "common/file" + i + ".md", "common file " + i );
+        }
+        var first = common;
+        var second = common;
+        for( int i = 0 ; i < 100 ; ++i ) {
+            first = first.plus( "first/file" + i + ".md", "first session " + i );
+            second = second.plus( "second/file" + i + ".md", "second session " + i );
+        }
+
+        assertEquals( List.of(), index.grep( first, "needle", false, null, 1, 100 ) );
+        assertEquals( 200, store.reads.get() );
+
+        // a snapshot per session, the common files are scanned once
+        store.reads.set(0);
+        assertEquals( List.of(), index.grep( second, "needle", false, null, 1, 100 ) );
+        assertEquals( 100, store.reads.get() );
+        assertEquals( 2, index.idleSnapshots() );
+
+        assertEquals( 100, index.grep( second, "common file", false, null, 1, 1_000 ).size() );
+        assertEquals( 100, index.grep( first, "common file", false, null, 1, 1_000 ).size() );
+    }
+
+    @Test
+    public void testMemoryCap() {
+        final var store = new CountingFileStore();
+        final var files = new java.util.ArrayList<PersistentMap<String,String>>();
+        for( int session = 0 ; session < 3 ; ++session ) {
+            var version = PersistentMap.<String,String>empty();
+            for( int i = 0 ; i < 100 ; ++i ) {
+                version = version.plus( "session" + session + "/file" + i + ".md", "session " + session + " file " + i );
+            }
+            files.add( version );
+        }
+
+        // large enough for a session only: the least recently used snapshots are evicted
+        final var unbounded = new FileIndex( store );
+        unbounded.grep( files.get(0), "needle", false, null, 1, 100 );
+        final long sessionBytes = unbounded.bytes();
+        assertTrue( sessionBytes > 0 );
+
+        final var index = new FileIndex( store, sessionBytes + sessionBytes / 2 );
+        for( var version : files ) {
+            assertEquals( List.of(), index.grep( version, "needle", false, null, 1, 100 ) );
+            assertEquals( 1, index.idleSnapshots() );
+            assertTrue( index.bytes() <= sessionBytes + sessionBytes / 2 );
+        }
+
+        // the evicted snapshots released their contents: a session is indexed again
+        store.reads.set(0);
+        assertEquals( 100, index.grep( files.get(0), "session 0 file", false, null, 1, 1_000 ).size() );
+        assertEquals( 100 + 100, store.reads.get() );
+
+        // the most recent snapshot is always kept
+        final var tiny = new FileIndex( store, 1 );
+        tiny.grep( files.get(0), "needle", false, null, 1, 100 );
+        tiny.grep( files.get(1), "needle", false, null, 1, 100 );
+        assertEquals( 1, tiny.idleSnapshots() );
+    }
+}
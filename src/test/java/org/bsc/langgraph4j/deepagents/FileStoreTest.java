@@ -0,0 +1,207 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileStoreTest {
+
+    private void assertVersionedStore( FileStore store ) {
+        final var ref1 = store.write( "reports/final_report.md", "# Report\nversion 1 ✓" );
+        final var ref2 = store.write( "reports/final_report.md", "# Report\nversion 2" );
+        final var ref3 = store.write( "empty.txt", "" );
+
+        assertNotEquals( ref1, ref2 );
+        // the state only carries a reference, not the content
+        assertFalse( ref1.contains("version") );
+
+        assertEquals( Optional.of("# Report\nversion 1 ✓"), store.read( "reports/final_report.md", ref1 ) );
+        assertEquals( Optional.of("# Report\nversion 2"), store.read( "reports/final_report.md", ref2 ) );
+        assertEquals( Optional.of(""), store.read( "empty.txt", ref3 ) );
+        assertEquals( Optional.empty(), store.read( "missing.txt", null ) );
+
+        assertEquals( Map.of( "reports/final_report.md", "# Report\nversion 2", "empty.txt", "" ),
+                store.readAll( Map.of( "reports/final_report.md", ref2, "empty.txt", ref3 ) ) );
+    }
+
+    private void assertRangeReads( FileStore store ) {
+        // 5 chars, 7 UTF-8 bytes: '✓' takes bytes 2-4
+        final var ref = store.write( "notes/range.md", "ab✓cd" );
+
+        assertEquals( new FileStore.Chunk( "b✓", 1, 3, 5 ),
+                store.readRange( "notes/range.md", ref, FileStore.RangeUnit.CHARS, 1, 2 ).orElseThrow() );
+        assertEquals( new FileStore.Chunk( "", 5, 5, 5 ),
+                store.readRange( "notes/range.md", ref, FileStore.RangeUnit.CHARS, 100, 2 ).orElseThrow() );
+
+        // a byte range never splits a character
+        final var head = store.readRange( "notes/range.md", ref, FileStore.RangeUnit.BYTES, 0, 3 ).orElseThrow();
+        assertEquals( new FileStore.Chunk( "ab", 0, 2, 7 ), head );
+        assertTrue( head.hasMore() );
+        final var tail = store.readRange( "notes/range.md", ref, FileStore.RangeUnit.BYTES, 3, 100 ).orElseThrow();
+        assertEquals( new FileStore.Chunk( "cd", 5, 7, 7 ), tail );
+        assertFalse( tail.hasMore() );
+        assertEquals( new FileStore.Chunk( "✓c", 2, 6, 7 ),
+                store.readRange( "notes/range.md", ref, FileStore.RangeUnit.BYTES, 2, 4 ).orElseThrow() );
+        assertEquals( new FileStore.Chunk( "", 7, 7, 7 ),
+                store.readRange( "notes/range.md", ref, FileStore.RangeUnit.BYTES, 100, 4 ).orElseThrow() );
+
+        assertEquals( Optional.empty(), store.readRange( "missing.txt", null, FileStore.RangeUnit.CHARS, 0, 10 ) );
+        assertThrows( IllegalArgumentException.class,
+                () -> store.readRange( "notes/range.md", ref, FileStore.RangeUnit.CHARS, -1, 10 ) );
+        assertThrows( IllegalArgumentException.class,
+                () -> store.readRange( "notes/range.md", ref, FileStore.RangeUnit.BYTES, 0, 0 ) );
+    }
+
+    private void assertRetain( FileStore store ) {
+        final var ref1 = store.write( "notes/retain.md", "version 1" );
+        final var ref2 = store.write( "notes/retain.md", "version 2" );
+        final var ref3 = store.write( "notes/other.md", "other" );
+
+        assertEquals( 1, store.retain( List.of( ref2, ref3 ) ) );
+        assertEquals( Optional.empty(), store.read( "notes/retain.md", ref1 ) );
+        assertEquals( Optional.of("version 2"), store.read( "notes/retain.md", ref2 ) );
+        assertEquals( Optional.of("other"), store.read( "notes/other.md", ref3 ) );
+
+        assertEquals( 0, store.retain( List.of( ref2, ref3 ) ) );
+        assertEquals( 2, store.retain( List.of() ) );
+        assertEquals( Optional.empty(), store.read( "notes/other.md", ref3 ) );
+    }
+
+    @Test
+    public void testInlineStore() {
+        final var store = FileStore.inline();
+        assertEquals( "content", store.write( "file.txt", "content") );
+        assertEquals( Optional.of("content"), store.read( "file.txt", "content") );
+    }
+
+    @Test
+    public void testInMemoryStore() {
+        assertVersionedStore( FileStore.inMemory() );
+        assertRangeReads( FileStore.inMemory() );
+        assertRetain( FileStore.inMemory() );
+    }
+
+    @Test
+    public void testDirectoryStore( @TempDir Path root ) {
+        assertVersionedStore( FileStore.directory( root ) );
+
+        final var store = FileStore.directory( root );
+        for( var ref : List.of( "../outside.txt", "/../../etc/passwd" ) ) {
+            assertThrows( IllegalArgumentException.class, () -> store.read( "file.txt", ref ) );
+        }
+        assertEquals( Optional.empty(), store.read( "file.txt", "file.txt@unknown" ) );
+
+        assertRangeReads( store );
+        assertEquals( Optional.empty(),
+                store.readRange( "file.txt", "file.txt@unknown", FileStore.RangeUnit.BYTES, 0, 10 ) );
+    }
+
+    @Test
+    public void testDirectoryStoreRetain( @TempDir Path root ) {
+        assertRetain( FileStore.directory( root ) );
+    }
+
+    @Test
+    public void testDirectoryStoresSharingRoot( @TempDir Path root ) {
+        final var store1 = FileStore.directory( root );
+        final var store2 = FileStore.directory( root );
+
+        // same path written by both: distinct references, each readable by the other instance
+        final var ref1 = store1.write( "notes/shared.md", "from store 1" );
+        final var ref2 = store2.write( "notes/shared.md", "from store 2" );
+        assertNotEquals( ref1, ref2 );
+        assertEquals( Optional.of("from store 1"), store2.read( "notes/shared.md", ref1 ) );
+        assertEquals( Optional.of("from store 2"), store1.read( "notes/shared.md", ref2 ) );
+
+        // retain only removes the versions of its own instance
+        assertEquals( 1, store1.retain( List.of() ) );
+        assertEquals( Optional.empty(), store2.read( "notes/shared.md", ref1 ) );
+        assertEquals( Optional.of("from store 2"), store1.read( "notes/shared.md", ref2 ) );
+        assertEquals( 1, store2.retain( List.of() ) );
+    }
+
+    @Test
+    public void testMappedStore( @TempDir Path root ) {
+        assertVersionedStore( FileStore.mapped( root ) );
+        assertRangeReads( FileStore.mapped( root ) );
+    }
+
+    private void assertContentAddressedStore( FileStore store ) {
+        final var ref1 = store.write( "notes/agent1.md", "same findings" );
+        final var ref2 = store.write( "notes/agent2.md", "same findings" );
+        final var ref3 = store.write( "notes/agent1.md", "new findings" );
+
+        // identical contents share the same blob
+        assertEquals( ref1, ref2 );
+        assertNotEquals( ref1, ref3 );
+        assertTrue( ref1.startsWith("sha256:") );
+
+        assertEquals( Optional.of("same findings"), store.read( "notes/agent2.md", ref2 ) );
+        assertEquals( Optional.of("new findings"), store.read( "notes/agent1.md", ref3 ) );
+        assertEquals( Optional.empty(), store.read( "notes/agent1.md", "sha256:0123456789abcdef" ) );
+    }
+
+    @Test
+    public void testContentAddressedStore( @TempDir Path root ) throws Exception {
+        assertContentAddressedStore( FileStore.contentAddressed() );
+        assertContentAddressedStore( FileStore.contentAddressed( root ) );
+
+        try( var blobs = Files.walk( root ) ) {
+            assertEquals( 2, blobs.filter( Files::isRegularFile ).count() );
+        }
+    }
+
+    @Test
+    public void testByteRangesOfOnHeapContents() {
+        // same chunks as decoding a window of the encoded content
+        final var random = new Random( 42 );
+        final var alphabet = new String[] { "a", "\n", "é", "✓", "😀" };
+        for( int round = 0 ; round < 1_000 ; ++round ) {
+            final var content = new StringBuilder();
+            for( int i = random.nextInt( 20 ) ; i > 0 ; --i ) {
+                content.append( alphabet[ random.nextInt( alphabet.length ) ] );
+            }
+            final var bytes = content.toString().getBytes( StandardCharsets.UTF_8 );
+            final long offset = random.nextInt( bytes.length + 4 );
+            final int length = 1 + random.nextInt( 12 );
+
+            final int start = (int) Math.min( offset, bytes.length );
+            final int end = (int) Math.min( (long) start + length, bytes.length );
+            assertEquals( ContentRange.bytes( ByteBuffer.wrap( bytes, start, end - start ), start, bytes.length ),
+                    ContentRange.bytes( content.toString(), offset, length ) );
+        }
+    }
+
+    @Test
+    public void testRangeReadsSupport( @TempDir Path root ) {
+        assertFalse( FileStore.inline().supportsRangeReads() );
+        assertFalse( FileStore.inMemory().supportsRangeReads() );
+        assertFalse( FileStore.contentAddressed().supportsRangeReads() );
+
+        assertTrue( FileStore.directory( root.resolve("directory") ).supportsRangeReads() );
+        assertTrue( FileStore.mapped( root.resolve("mapped") ).supportsRangeReads() );
+        final var blobs = FileStore.contentAddressed( root.resolve("blobs") );
+        assertTrue( blobs.supportsRangeReads() );
+
+        assertRangeReads( FileStore.contentAddressed() );
+        assertRangeReads( blobs );
+        assertEquals( Optional.empty(),
+                blobs.readRange( "file.txt", "sha256:0123456789abcdef", FileStore.RangeUnit.BYTES, 0, 10 ) );
+    }
+
+    @Test
+    public void testContentAddressedStoreRetain( @TempDir Path root ) {
+        assertRetain( FileStore.contentAddressed() );
+        assertRetain( FileStore.contentAddressed( root ) );
+    }
+}
@@ -0,0 +1,73 @@
+package org.bsc.langgraph4j.deepagents;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.bsc.langgraph4j.deepagents.ResearchFlow.researchAgent;
+import static org.bsc.langgraph4j.deepagents.ResearchFlow.researchScript;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MicrometerAgentMetricsTest {
+
+    @Test
+    public void testMetrics() throws Exception {
+        final var registry = new SimpleMeterRegistry();
+
+        OfflineRuns.run( researchAgent( researchScript().build() ).meterRegistry( registry ) );
+
+        assertEquals( 2, registry.get("deepagents.task")
+                .tag("subagent", "research-agent")
+                .tag("outcome", "success")
+                .timer().count() );
+        assertEquals( 5, registry.get("deepagents.model.calls")
+                .tag("agent", AgentMetrics.MAIN_AGENT)
+                .timer().count() );
+        assertEquals( 4, registry.get("deepagents.model.calls")
+                .tag("agent", "research-agent")
+                .timer().count() );
+        assertEquals( 2, registry.get("deepagents.tool.calls")
+                .tag("agent", AgentMetrics.MAIN_AGENT)
+                .tag("tool", "task")
+                .timer().count() );
+        assertEquals( 2, registry.get("deepagents.tool.calls")
+                .tag("agent", "research-agent")
+                .tag("tool", "ls")
+                .timer().count() );
+        assertTrue( registry.get("deepagents.model.tokens")
+                .tag("agent", AgentMetrics.MAIN_AGENT)
+                .tag("type", "prompt")
+                .summary().totalAmount() > 0 );
+        assertEquals( 0.0, registry.find("deepagents.tool.errors").counters().stream()
+                .mapToDouble( counter -> counter.count() )
+                .sum() );
+    }
+
+    @Test
+    public void testPromptCacheMetrics() {
+        final var registry = new SimpleMeterRegistry();
+        final var metrics = new MicrometerAgentMetrics( registry );
+
+        final var usage = new DefaultUsage( 2000, 100, 2100,
+                Map.of( "prompt_tokens_details", Map.of( "cached_tokens", 1500 ) ) );
+        final var response = new ChatResponse( List.of( new Generation( new AssistantMessage("ok") ) ),
+                ChatResponseMetadata.builder().usage( usage ).build() );
+
+        metrics.recordModelCall( AgentMetrics.MAIN_AGENT, 1_000_000L, false, response );
+
+        assertEquals( 1500, registry.get("deepagents.model.tokens")
+                .tag("agent", AgentMetrics.MAIN_AGENT)
+                .tag("type", "cached")
+                .summary().totalAmount() );
+        assertEquals( 0.75, registry.get("deepagents.model.cache.hit.ratio")
+                .tag("agent", AgentMetrics.MAIN_AGENT)
+                .summary().mean(), 0.0001 );
+    }
+}
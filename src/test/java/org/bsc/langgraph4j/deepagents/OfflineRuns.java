@@ -0,0 +1,47 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.bsc.langgraph4j.CompileConfig;
+import org.bsc.langgraph4j.CompiledGraph;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.Map;
+
+/**
+ * Runs of a deep agent against the {@link ScriptedChatModel}, shared by the offline tests
+ */
+final class OfflineRuns {
+
+    static final String QUESTION = "What is langgraph4j?";
+
+    private OfflineRuns() {}
+
+    /**
+     * @return the compile configuration of the offline runs, to be completed by the tests needing more settings
+     */
+    static CompileConfig.Builder compileConfig() {
+        return CompileConfig.builder().recursionLimit(50);
+    }
+
+    static CompiledGraph<DeepAgent.State> compile( GraphBuilder agent ) throws Exception {
+        return agent.build().compile( compileConfig().build() );
+    }
+
+    static DeepAgent.State invoke( CompiledGraph<DeepAgent.State> agent, String question, RunnableConfig config ) throws Exception {
+        return agent.invoke( Map.of( "messages", new UserMessage( question ) ), config ).orElseThrow();
+    }
+
+    /**
+     * Compiles the agent and runs it on the given question
+     */
+    static DeepAgent.State run( GraphBuilder agent, String question ) throws Exception {
+        return invoke( compile( agent ), question, RunnableConfig.builder().build() );
+    }
+
+    /**
+     * Compiles the agent and runs it on {@link #QUESTION}
+     */
+    static DeepAgent.State run( GraphBuilder agent ) throws Exception {
+        return run( agent, QUESTION );
+    }
+}
@@ -0,0 +1,91 @@
+package org.bsc.langgraph4j.deepagents;
+
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.bsc.langgraph4j.deepagents.ResearchFlow.researchAgent;
+import static org.bsc.langgraph4j.deepagents.ResearchFlow.researchScript;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpenTelemetryAgentTracingTest {
+
+    private static List<String> ancestors( SpanData span, Map<String,SpanData> spansById ) {
+        final var result = new ArrayList<String>();
+        for( var parent = spansById.get( span.getParentSpanId() ); parent != null ; parent = spansById.get( parent.getParentSpanId() ) ) {
+            result.add( parent.getName() );
+        }
+        return result;
+    }
+
+    @Test
+    public void testTracing() throws Exception {
+        final var exporter = InMemorySpanExporter.create();
+        final var openTelemetry = OpenTelemetrySdk.builder()
+                .setTracerProvider( SdkTracerProvider.builder()
+                        .addSpanProcessor( SimpleSpanProcessor.create( exporter ) )
+                        .build() )
+                .build();
+
+        final var agent = researchAgent( researchScript().build() )
+                .openTelemetry( openTelemetry )
+                .parallelTasks( true )
+                .build()
+                .compile( OfflineRuns.compileConfig()
+                        .withLifecycleListener( new TracingLifecycleListener( openTelemetry ) )
+                        .build() );
+
+        final var root = openTelemetry.getTracer("test").spanBuilder("request").startSpan();
+        try( var ignored = root.makeCurrent() ) {
+            OfflineRuns.invoke( agent, OfflineRuns.QUESTION, RunnableConfig.builder().build() );
+        }
+        finally {
+            root.end();
+        }
+
+        final var spans = exporter.getFinishedSpanItems();
+        final var spansById = spans.stream()
+                .collect( Collectors.toMap( SpanData::getSpanId, Function.identity() ) );
+        final var spansByName = spans.stream()
+                .collect( Collectors.groupingBy( SpanData::getName ) );
+
+        // the whole run, parallel sub-agents included, is a single trace
+        assertTrue( spans.stream().allMatch( span -> span.getTraceId().equals( root.getSpanContext().getTraceId() ) ) );
+
+        assertEquals( 5, spansByName.get("chat main").size() );
+        spansByName.get("chat main").forEach( span ->
+                assertEquals( List.of( "node agent", "request" ), ancestors( span, spansById ) ) );
+
+        // the parallel sub-agents are launched together, so they are children of the node running the task calls
+        assertEquals( 2, spansByName.get("invoke_agent research-agent").size() );
+        spansByName.get("invoke_agent research-agent").forEach( span ->
+                assertEquals( List.of( "node action", "request" ), ancestors( span, spansById ) ) );
+        final var nodeAction = spansByName.get("invoke_agent research-agent").get(0).getParentSpanId();
+        assertTrue( spansByName.get("invoke_agent research-agent").stream()
+                .allMatch( span -> span.getParentSpanId().equals( nodeAction ) ) );
+
+        assertEquals( 4, spansByName.get("chat research-agent").size() );
+        spansByName.get("chat research-agent").forEach( span ->
+                assertEquals( List.of( "node agent", "invoke_agent research-agent" ),
+                        ancestors( span, spansById ).subList( 0, 2 ) ) );
+
+        assertEquals( 2, spansByName.get("execute_tool ls").size() );
+        spansByName.get("execute_tool ls").forEach( span ->
+                assertEquals( List.of( "node action", "invoke_agent research-agent" ),
+                        ancestors( span, spansById ).subList( 0, 2 ) ) );
+
+        assertTrue( spansByName.get("chat main").stream()
+                .allMatch( span -> span.getAttributes().asMap().keySet().stream()
+                        .anyMatch( key -> key.getKey().equals("gen_ai.usage.input_tokens") ) ) );
+    }
+}
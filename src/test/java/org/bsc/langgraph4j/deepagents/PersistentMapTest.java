@@ -0,0 +1,123 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentMapTest {
+
+    @Test
+    public void testPlusKeepsPreviousVersions() {
+
+        final var v0 = PersistentMap.<String,String>empty();
+        final var v1 = v0.plus( "a.txt", "A" );
+        final var v2 = v1.plus( "b.txt", "B" );
+        final var v3 = v2.plus( "a.txt", "A1" );
+
+        assertTrue( v0.isEmpty() );
+        assertEquals( Map.of( "a.txt", "A" ), v1 );
+        assertEquals( Map.of( "a.txt", "A", "b.txt", "B" ), v2 );
+        assertEquals( Map.of( "a.txt", "A1", "b.txt", "B" ), v3 );
+        assertSame( v3, v3.plus( "a.txt", v3.get("a.txt") ) );
+    }
+
+    @Test
+    public void testHashCollisions() {
+        // "Aa" and "BB" have the same hashCode
+        assertEquals( "Aa".hashCode(), "BB".hashCode() );
+
+        var map = PersistentMap.<String,String>empty()
+                .plus( "Aa", "1" )
+                .plus( "BB", "2" )
+                .plus( "AaAa", "3" )
+                .plus( "BBBB", "4" )
+                .plus( "AaBB", "5" );
+
+        assertEquals( 5, map.size() );
+        assertEquals( "2", map.get("BB") );
+        assertEquals( "5", map.get("AaBB") );
+
+        map = map.plus( "BB", "22" );
+        assertEquals( 5, map.size() );
+        assertEquals( "22", map.get("BB") );
+        assertEquals( "1", map.get("Aa") );
+        assertFalse( map.containsKey("CC") );
+    }
+
+    @Test
+    public void testAgainstHashMap() {
+        final var random = new Random(42);
+        final var expected = new HashMap<String,String>();
+        var actual = PersistentMap.<String,String>empty();
+
+        for( int i = 0 ; i < 20_000 ; ++i ) {
+            final var key = "file" + random.nextInt(5_000) + ".md";
+            final var value = "content" + i;
+            expected.put( key, value );
+            actual = actual.plus( key, value );
+        }
+
+        assertEquals( expected.size(), actual.size() );
+        assertEquals( expected, actual );
+        assertEquals( actual, expected );
+        assertEquals( expected.hashCode(), actual.hashCode() );
+
+        final var collected = new HashMap<String,String>();
+        actual.forEach( collected::put );
+        assertEquals( expected, collected );
+
+        assertSame( actual, PersistentMap.from( actual ) );
+        assertEquals( expected, PersistentMap.from( expected ) );
+    }
+
+    @Test
+    public void testDiff() {
+        final var random = new Random(42);
+        var map = PersistentMap.<String,String>empty();
+        for( int i = 0 ; i < 5_000 ; ++i ) {
+            map = map.plus( "file" + i + ".md", "content" + i );
+        }
+        // include hash collisions
+        final var v1 = map.plus( "Aa", "1" ).plus( "BB", "2" );
+
+        map = v1;
+        final var expected = new HashMap<String,String>();
+        for( int i = 0 ; i < 100 ; ++i ) {
+            final var key = "file" + random.nextInt(6_000) + ".md";
+            expected.put( key, "updated" + i );
+            map = map.plus( key, "updated" + i );
+        }
+        final var v2 = map.plus( "BB", "22" ).plus( "AaAa", "3" );
+        expected.put( "BB", "22" );
+        expected.put( "AaAa", "3" );
+
+        final var changes = new HashMap<String,String>();
+        v1.diff( v2, ( key, oldValue, newValue ) -> {
+            assertEquals( v1.get(key), oldValue );
+            assertNull( changes.put( key, newValue ) );
+        });
+        assertEquals( expected, changes );
+
+        // removed entries (the new version is built from scratch, no sharing)
+        final var removed = new HashMap<String,String>();
+        final var copy = new HashMap<>( v2 );
+        copy.remove( "file1.md" );
+        copy.remove( "Aa" );
+        v2.diff( PersistentMap.from( copy ), ( key, oldValue, newValue ) -> removed.put( key, oldValue ) );
+        assertEquals( Map.of( "file1.md", v2.get("file1.md"), "Aa", "1" ), removed );
+
+        v2.diff( v2, ( key, oldValue, newValue ) -> fail( "no differences expected" ) );
+    }
+
+    @Test
+    public void testImmutable() {
+        final var map = PersistentMap.<String,String>empty().plus( "a.txt", "A" );
+        assertThrows( UnsupportedOperationException.class, () -> map.put( "b.txt", "B") );
+        assertThrows( UnsupportedOperationException.class, () -> map.remove( "a.txt") );
+        assertThrows( UnsupportedOperationException.class, () -> map.entrySet().iterator().next().setValue("B") );
+    }
+}
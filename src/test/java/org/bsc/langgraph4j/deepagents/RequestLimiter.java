@@ -0,0 +1,113 @@
+package org.bsc.langgraph4j.deepagents;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking limiter of asynchronous requests: at most {@code maxConcurrent} requests in flight, started at
+ * most at {@code permitsPerSecond} (token bucket allowing bursts of {@code burst} requests).
+ * <p>
+ * Requests over the limits are queued, never rejected, and no thread is blocked while waiting.
+ */
+class RequestLimiter {
+
+    private record Pending<T>(Supplier<CompletableFuture<T>> call, CompletableFuture<T> result) {
+
+        void start(Runnable onComplete) {
+            final CompletableFuture<T> future;
+            try {
+                future = call.get();
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                onComplete.run();
+                return;
+            }
+            future.whenComplete((value, error) -> {
+                onComplete.run();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        }
+    }
+
+    private final Semaphore permits;
+    private final ConcurrentLinkedQueue<Pending<?>> queue = new ConcurrentLinkedQueue<>();
+    private final double permitsPerNano;
+    private final double burst;
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    /**
+     * @param maxConcurrent    max requests in flight
+     * @param permitsPerSecond max requests started per second
+     * @param burst            max requests started at once
+     */
+    RequestLimiter(int maxConcurrent, double permitsPerSecond, int burst) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("maxConcurrent must be positive");
+        }
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+        }
+        if (burst <= 0) {
+            throw new IllegalArgumentException("burst must be positive");
+        }
+        this.permits = new Semaphore(maxConcurrent);
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.tokens = burst;
+    }
+
+    /**
+     * Runs the call when the limits allow it
+     *
+     * @param call the asynchronous call
+     * @return the call result
+     */
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> call) {
+        final var result = new CompletableFuture<T>();
+        queue.add(new Pending<>(call, result));
+        drain();
+        return result;
+    }
+
+    /**
+     * Reserves a token
+     *
+     * @return the nanos to wait before using the token
+     */
+    private synchronized long reserve() {
+        final var now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+        tokens -= 1;
+        return (tokens >= 0) ? 0L : (long) Math.ceil(-tokens / permitsPerNano);
+    }
+
+    private void drain() {
+        while (!queue.isEmpty() && permits.tryAcquire()) {
+            final var pending = queue.poll();
+            if (pending == null) {
+                permits.release();
+                continue;
+            }
+            final Runnable onComplete = () -> {
+                permits.release();
+                drain();
+            };
+            final var delay = reserve();
+            if (delay == 0L) {
+                pending.start(onComplete);
+            } else {
+                CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS)
+                        .execute(() -> pending.start(onComplete));
+            }
+        }
+    }
+}
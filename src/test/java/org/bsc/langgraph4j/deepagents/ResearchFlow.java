@@ -0,0 +1,65 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.springframework.ai.chat.model.ChatModel;
+
+import java.util.List;
+
+/**
+ * Research flow run by the offline tests and the {@link DeepAgentLoadDriver} against the {@link ScriptedChatModel}
+ */
+final class ResearchFlow {
+
+    static final String MAIN_PROMPT = "You are an expert researcher.";
+    static final String RESEARCH_PROMPT = "You are a dedicated researcher.";
+
+    private ResearchFlow() {}
+
+    /**
+     * Research flow: the main agent plans, writes the question, runs two research sub-agents in the same turn and
+     * writes the final report. Each research sub-agent lists the files and answers.
+     */
+    static ScriptedChatModel.Builder researchScript() {
+        return researchScript( ScriptedChatModel.Turn.toolCalls( "ls", "{}" ),
+                        ScriptedChatModel.Turn.text( "research findings" ) );
+    }
+
+    /**
+     * Same as {@link #researchScript()} with the given turns for the research sub-agents
+     */
+    static ScriptedChatModel.Builder researchScript( ScriptedChatModel.Turn... researchAgentTurns ) {
+        return ScriptedChatModel.builder()
+                .scriptForSystem( RESEARCH_PROMPT, researchAgentTurns )
+                .scriptForSystem( MAIN_PROMPT,
+                        ScriptedChatModel.Turn.toolCalls( "write_todos", """
+                                { "toDos": [ { "content": "research", "status": "IN_PROGRESS" } ] }
+                                """ ),
+                        ScriptedChatModel.Turn.toolCalls( "write_file", """
+                                { "filePath": "question.txt", "content": "What is langgraph4j?" }
+                                """ ),
+                        ScriptedChatModel.Turn.toolCalls(
+                                "task", """
+                                { "description": "research langgraph4j history", "subAgentType": "research-agent" }
+                                """,
+                                "task", """
+                                { "description": "research langgraph4j features", "subAgentType": "research-agent" }
+                                """ ),
+                        ScriptedChatModel.Turn.toolCalls( "write_file", """
+                                { "filePath": "final_report.md", "content": "# LangGraph4j\\nreport" }
+                                """ ),
+                        ScriptedChatModel.Turn.text( "final answer" ));
+    }
+
+    /**
+     * Deep agent of the research flow, with a {@code research-agent} sub-agent
+     */
+    static GraphBuilder researchAgent( ChatModel chatModel ) {
+        return DeepAgent.builder()
+                .instructions( MAIN_PROMPT )
+                .chatModel( chatModel )
+                .subAgents( List.of( DeepAgent.SubAgent.builder()
+                        .name("research-agent")
+                        .description("Used to research more in depth questions")
+                        .prompt( RESEARCH_PROMPT )
+                        .build() ));
+    }
+}
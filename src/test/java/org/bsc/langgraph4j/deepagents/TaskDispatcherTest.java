@@ -0,0 +1,152 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.String.format;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskDispatcherTest {
+
+    private Map<String,Object> contextWithTaskCalls( String... descriptions ) {
+        var toolCalls = new ArrayList<AssistantMessage.ToolCall>();
+        for( int i = 0 ; i < descriptions.length ; ++i ) {
+            toolCalls.add( new AssistantMessage.ToolCall( "call_" + i, "function", "task",
+                    format("{ \"description\": \"%s\", \"subAgentType\": \"research-agent\" }", descriptions[i])));
+        }
+        return Map.of( "messages", List.of( new AssistantMessage( "", Map.of(), toolCalls ) ) );
+    }
+
+    @Test
+    public void testParallelFanOut() throws Exception {
+
+        final var subAgent = DeepAgent.SubAgent.builder()
+                .name("research-agent")
+                .description("research")
+                .build();
+
+        final var descriptions = new String[] { "topic1", "topic2", "topic3", "topic4", "topic5" };
+
+        // every task waits for all the others: it completes only if they all run at the same time
+        final var allRunning = new CountDownLatch( descriptions.length );
+
+        final var dispatcher = new TaskDispatcher( TaskDispatcher.defaultExecutor(), List.of(subAgent), ( args, toolCallId, context ) -> {
+            allRunning.countDown();
+            if( !allRunning.await( 10, TimeUnit.SECONDS ) ) {
+                throw new IllegalStateException( "tasks are not running in parallel" );
+            }
+            return new TaskToolBuilder.TaskResult( args.description(), Map.of( args.description(), "content" ) );
+        });
+
+        final var context = contextWithTaskCalls( descriptions );
+
+        for( var description : descriptions ) {
+            var result = dispatcher.dispatch( new TaskToolBuilder.TaskToolArgs( description, "research-agent"), context );
+            // results are returned in the tool calls order
+            assertEquals( description, result.text() );
+            assertEquals( Map.of( description, "content"), result.files() );
+        }
+        assertEquals( 0, dispatcher.pendingBatches() );
+    }
+
+    @Test
+    public void testPartiallyClaimedBatchesAreKept() throws Exception {
+
+        final var subAgent = DeepAgent.SubAgent.builder()
+                .name("research-agent")
+                .description("research")
+                .build();
+
+        final var runs = new AtomicInteger();
+        final var dispatcher = new TaskDispatcher( TaskDispatcher.defaultExecutor(), List.of(subAgent), ( args, toolCallId, context ) -> {
+            runs.incrementAndGet();
+            return new TaskToolBuilder.TaskResult( args.description(), Map.of() );
+        });
+
+        // many messages whose first task call has been executed, but not the second one
+        final int messages = 1_000;
+        final var contexts = new ArrayList<Map<String,Object>>( messages );
+        for( int i = 0 ; i < messages ; ++i ) {
+            final var context = contextWithTaskCalls( "first" + i, "second" + i );
+            dispatcher.dispatch( new TaskToolBuilder.TaskToolArgs( "first" + i, "research-agent"), context );
+            contexts.add( context );
+        }
+        assertEquals( messages, dispatcher.pendingBatches() );
+
+        for( int i = 0 ; i < messages ; ++i ) {
+            dispatcher.dispatch( new TaskToolBuilder.TaskToolArgs( "second" + i, "research-agent"), contexts.get(i) );
+        }
+        // no batch has been launched twice
+        assertEquals( messages * 2, runs.get() );
+        assertEquals( 0, dispatcher.pendingBatches() );
+    }
+
+    @Test
+    public void testUnclaimedBatchesAreEvicted() throws Exception {
+
+        final var subAgent = DeepAgent.SubAgent.builder()
+                .name("research-agent")
+                .description("research")
+                .build();
+
+        final var runs = new AtomicInteger();
+        final var dispatcher = new TaskDispatcher( TaskDispatcher.defaultExecutor(), List.of(subAgent), ( args, toolCallId, context ) -> {
+            runs.incrementAndGet();
+            return new TaskToolBuilder.TaskResult( args.description(), Map.of() );
+        }, Duration.ofMillis(100) );
+
+        // the node stops after the first call: the sibling call is never claimed
+        final var context = contextWithTaskCalls( "first", "second" );
+        dispatcher.dispatch( new TaskToolBuilder.TaskToolArgs( "first", "research-agent"), context );
+        assertEquals( 1, dispatcher.pendingBatches() );
+
+        // the node is retried: the stale batch is launched again instead of returning its results
+        dispatcher.dispatch( new TaskToolBuilder.TaskToolArgs( "first", "research-agent"), context );
+        assertEquals( 1, dispatcher.pendingBatches() );
+
+        // the completed batch is evicted after the retention time
+        final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while( dispatcher.pendingBatches() > 0 && System.nanoTime() < deadline ) {
+            Thread.sleep( 20 );
+        }
+        assertEquals( 0, dispatcher.pendingBatches() );
+        assertEquals( 4, runs.get() );
+    }
+
+    @Test
+    public void testConcurrencyCap() throws Exception {
+
+        final var subAgent = DeepAgent.SubAgent.builder()
+                .name("research-agent")
+                .description("research")
+                .maxConcurrency(2)
+                .build();
+
+        final var running = new AtomicInteger();
+        final var maxRunning = new AtomicInteger();
+
+        final var dispatcher = new TaskDispatcher( TaskDispatcher.defaultExecutor(), List.of(subAgent), ( args, toolCallId, context ) -> {
+            maxRunning.accumulateAndGet( running.incrementAndGet(), Math::max );
+            Thread.sleep( 100 );
+            running.decrementAndGet();
+            return new TaskToolBuilder.TaskResult( args.description(), Map.of() );
+        });
+
+        final var descriptions = new String[] { "topic1", "topic2", "topic3", "topic4", "topic5" };
+        final var context = contextWithTaskCalls( descriptions );
+
+        for( var description : descriptions ) {
+            dispatcher.dispatch( new TaskToolBuilder.TaskToolArgs( description, "research-agent"), context );
+        }
+
+        assertEquals( 2, maxRunning.get() );
+    }
+}
@@ -0,0 +1,211 @@
+package org.bsc.langgraph4j.deepagents;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.bsc.langgraph4j.deepagents.ResearchFlow.researchAgent;
+import static org.bsc.langgraph4j.deepagents.ResearchFlow.researchScript;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskResultCacheTest {
+
+    private static final String AGENT = TaskResultCache.Key.agentHash( "research prompt", List.of( "ls", "read_file" ), "model" );
+
+    private static final TaskResultCache.Entry ENTRY =
+            new TaskResultCache.Entry( "research findings", Map.of( "notes.md", "notes" ) );
+
+    @Test
+    public void testKey() {
+        final var files = Map.of( "question.txt", "What is langgraph4j?", "notes.md", "notes" );
+
+        final var key = TaskResultCache.Key.of( "research-agent", AGENT, "  research   langgraph4j\nhistory ", files, null );
+        assertEquals( "research langgraph4j history", key.description() );
+        assertEquals( key, TaskResultCache.Key.of( "research-agent", AGENT, "research langgraph4j history", new TreeMap<>( files ), null ) );
+        assertEquals( key.digest(), TaskResultCache.Key.of( "research-agent", AGENT, "research langgraph4j history", files, null ).digest() );
+
+        assertNotEquals( key, TaskResultCache.Key.of( "critique-agent", AGENT, "research langgraph4j history", files, null ) );
+        assertNotEquals( key, TaskResultCache.Key.of( "research-agent", AGENT, "research langgraph4j history",
+                Map.of( "question.txt", "What is langgraph4j?" ), null ) );
+        assertNotEquals( key, TaskResultCache.Key.of( "research-agent", AGENT, "research langgraph4j history", files,
+                List.of( new DeepAgent.ToDo( "research", DeepAgent.ToDo.Status.PENDING ) ) ) );
+
+        // the sub-agent definition: prompt, tools (in any order) and model
+        assertEquals( AGENT, TaskResultCache.Key.agentHash( "research prompt", List.of( "read_file", "ls" ), "model" ) );
+        for( var agentHash : List.of(
+                TaskResultCache.Key.agentHash( "other prompt", List.of( "ls", "read_file" ), "model" ),
+                TaskResultCache.Key.agentHash( "research prompt", List.of( "ls" ), "model" ),
+                TaskResultCache.Key.agentHash( "research prompt", List.of( "ls", "read_file" ), "other model" ) ) ) {
+            final var other = TaskResultCache.Key.of( "research-agent", agentHash, "research langgraph4j history", files, null );
+            assertNotEquals( key, other );
+            assertNotEquals( key.digest(), other.digest() );
+        }
+    }
+
+    private void assertCache( TaskResultCache cache, AtomicLong clock ) {
+        final var key1 = TaskResultCache.Key.of( "research-agent", AGENT, "task 1", Map.of(), null );
+        final var key2 = TaskResultCache.Key.of( "research-agent", AGENT, "task 2", Map.of(), null );
+        final var key3 = TaskResultCache.Key.of( "research-agent", AGENT, "task 3", Map.of(), null );
+
+        assertEquals( Optional.empty(), cache.get( key1 ) );
+
+        cache.put( key1, ENTRY );
+        assertEquals( Optional.of( ENTRY ), cache.get( key1 ) );
+
+        // size eviction (max 2 entries)
+        clock.addAndGet( 10 );
+        cache.put( key2, ENTRY );
+        clock.addAndGet( 10 );
+        cache.put( key3, ENTRY );
+        assertEquals( Optional.empty(), cache.get( key1 ) );
+        assertEquals( Optional.of( ENTRY ), cache.get( key2 ) );
+        assertEquals( Optional.of( ENTRY ), cache.get( key3 ) );
+
+        // ttl eviction (1 minute)
+        clock.addAndGet( Duration.ofMinutes(1).toMillis() - 5 );
+        assertEquals( Optional.empty(), cache.get( key2 ) );
+        assertEquals( Optional.of( ENTRY ), cache.get( key3 ) );
+    }
+
+    @Test
+    public void testInMemoryCache() {
+        final var clock = new AtomicLong( 1_000 );
+        assertCache( new InMemoryTaskResultCache( 2, Duration.ofMinutes(1), clock::get ), clock );
+    }
+
+    @Test
+    public void testDirectoryCache( @TempDir Path tempDir ) {
+        final var clock = new AtomicLong( 1_000 );
+        assertCache( new DirectoryTaskResultCache( tempDir, 2, Duration.ofMinutes(1), clock::get ), clock );
+
+        // shared across instances (e.g. sessions, restarts)
+        final var key = TaskResultCache.Key.of( "research-agent", AGENT, "task 4", Map.of(), null );
+        new DirectoryTaskResultCache( tempDir, 2, Duration.ofMinutes(1), clock::get ).put( key, ENTRY );
+        assertEquals( Optional.of( ENTRY ), new DirectoryTaskResultCache( tempDir, 2, Duration.ofMinutes(1), clock::get ).get( key ) );
+    }
+
+    /**
+     * Research flow whose research agents write a file
+     */
+    private static final Supplier<ScriptedChatModel> WRITING_RESEARCH = () -> researchScript(
+                    ScriptedChatModel.Turn.toolCalls( "write_file", """
+                            { "filePath": "notes.md", "content": "langgraph4j notes" }
+                            """ ),
+                    ScriptedChatModel.Turn.text( "research findings" ))
+            .build();
+
+    private static final Map<String,String> WRITING_RESEARCH_FILES = Map.of( "question.txt", "What is langgraph4j?",
+            "notes.md", "langgraph4j notes",
+            "final_report.md", "# LangGraph4j\nreport" );
+
+    @Test
+    public void testCachedTasks() throws Exception {
+        final var cache = TaskResultCache.inMemory( 16, Duration.ofHours(1) );
+
+        // first session: the sub-agents run
+        var chatModel = WRITING_RESEARCH.get();
+        var output = OfflineRuns.run( researchAgent( chatModel ).taskResultCache( cache ) );
+        assertEquals( WRITING_RESEARCH_FILES, output.files() );
+        assertEquals( 5 + 2 * 2, chatModel.calls() );
+
+        // second session: same tasks on the same files, the sub-agents are skipped but their files are applied
+        chatModel = WRITING_RESEARCH.get();
+        output = OfflineRuns.run( researchAgent( chatModel ).taskResultCache( cache ) );
+        assertEquals( WRITING_RESEARCH_FILES, output.files() );
+        assertEquals( 5, chatModel.calls() );
+        assertEquals( "final answer", output.lastMessage().map( m -> m.getText() ).orElseThrow() );
+    }
+
+    @Test
+    public void testCachedTasksAcrossStores( @TempDir Path tempDir ) throws Exception {
+        final var cache = TaskResultCache.directory( tempDir, 16, Duration.ofHours(1) );
+
+        // first process: the sub-agents run, their files are cached by content
+        var chatModel = WRITING_RESEARCH.get();
+        var fileStore = FileStore.inMemory();
+        var output = OfflineRuns.run( researchAgent( chatModel )
+                .fileStore( fileStore )
+                .taskResultCache( cache ) );
+        assertEquals( WRITING_RESEARCH_FILES, fileStore.readAll( output.files() ) );
+        assertEquals( 5 + 2 * 2, chatModel.calls() );
+
+        // second process: a new store, whose references restart, replays the cached files
+        chatModel = WRITING_RESEARCH.get();
+        fileStore = FileStore.inMemory();
+        final var registry = new SimpleMeterRegistry();
+        output = OfflineRuns.run( researchAgent( chatModel )
+                .fileStore( fileStore )
+                .taskResultCache( cache )
+                .meterRegistry( registry ) );
+        assertEquals( WRITING_RESEARCH_FILES, fileStore.readAll( output.files() ) );
+        assertEquals( 5, chatModel.calls() );
+
+        // the cache hits are recorded
+        assertEquals( 2, registry.get("deepagents.task")
+                .tag("subagent", "research-agent")
+                .tag("outcome", "cached")
+                .timer().count() );
+    }
+
+    @Test
+    public void testFailingCacheWrites() throws Exception {
+        final var cache = new TaskResultCache() {
+            @Override
+            public Optional<Entry> get( Key key ) {
+                return Optional.empty();
+            }
+
+            @Override
+            public void put( Key key, Entry entry ) {
+                throw new UncheckedIOException( new IOException( "disk full" ) );
+            }
+        };
+
+        // the results are returned as if not cached
+        final var chatModel = WRITING_RESEARCH.get();
+        final var output = OfflineRuns.run( researchAgent( chatModel ).taskResultCache( cache ) );
+        assertEquals( WRITING_RESEARCH_FILES, output.files() );
+        assertEquals( "final answer", output.lastMessage().map( m -> m.getText() ).orElseThrow() );
+    }
+
+    @Test
+    public void testDirectoryCacheWriteFailure( @TempDir Path tempDir ) throws Exception {
+        final var cache = new DirectoryTaskResultCache( tempDir, 2, Duration.ofMinutes(1), System::currentTimeMillis );
+        // the target path is a (non empty) directory: the move fails
+        final var key = TaskResultCache.Key.of( "research-agent", AGENT, "task", Map.of(), null );
+        final var target = Files.createDirectories( tempDir.resolve( key.digest() + ".json" ) );
+        Files.writeString( target.resolve( "file" ), "x" );
+
+        assertThrows( UncheckedIOException.class, () -> cache.put( key, ENTRY ) );
+        // no temp file left behind
+        try( var files = Files.list( tempDir ) ) {
+            assertEquals( List.of( target ), files.toList() );
+        }
+    }
+
+    @Test
+    public void testExhaustedBudgetNotCached() throws Exception {
+        final var cache = TaskResultCache.inMemory( 16, Duration.ofHours(1) );
+
+        // the research agents get a forced final answer: their results are not cached
+        OfflineRuns.run( researchAgent( researchScript().build() )
+                .budget( Budget.builder().maxModelCalls(4).build() )
+                .taskResultCache( cache ) );
+
+        final var chatModel = researchScript().build();
+        OfflineRuns.run( researchAgent( chatModel ).taskResultCache( cache ) );
+        assertEquals( 5 + 2 * 2, chatModel.calls() );
+    }
+}
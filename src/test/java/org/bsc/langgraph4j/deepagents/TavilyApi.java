@@ -10,6 +10,7 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface TavilyApi {
 
@@ -260,4 +261,11 @@ public interface TavilyApi {
     }
 
     Response search(Request request);
+
+    /**
+     * Asynchronous search. The default implementation runs {@link #search(Request)} in the common pool
+     */
+    default CompletableFuture<Response> searchAsync(Request request) {
+        return CompletableFuture.supplyAsync(() -> search(request));
+    }
 }
@@ -1,27 +1,94 @@
 package org.bsc.langgraph4j.deepagents;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static java.util.Objects.requireNonNull;
 
 /**
  * Client to interact with the Tavily API using Java's HttpClient.
+ * <p>
+ * All the instances share the same {@link HttpClient} (HTTP/2 with fallback to HTTP/1.1, pooled connections)
+ * and the same {@link ObjectMapper}. Each instance limits its requests in flight and its request rate; requests
+ * over the limits are queued without blocking any thread.
  */
 public class TavilyApiHttpClient implements TavilyApi {
 
+    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofSeconds(10))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
     public static class Builder {
         private String tavilyApiKey;
+        private String baseUrl = "https://api.tavily.com";
+        private Duration requestTimeout = Duration.ofSeconds(30);
+        private int maxConcurrentRequests = 4;
+        private double requestsPerSecond = 5;
+        private int burst = 5;
 
         public Builder tavilyApiKey(String tavilyApiKey) {
             this.tavilyApiKey = tavilyApiKey;
             return this;
         }
 
+        /**
+         * Base url of the Tavily API. Default is {@code https://api.tavily.com}
+         */
+        public Builder baseUrl(String baseUrl) {
+            this.baseUrl = requireNonNull(baseUrl, "baseUrl cannot be null");
+            return this;
+        }
+
+        /**
+         * Timeout of each request. Default is 30 seconds
+         */
+        public Builder requestTimeout(Duration requestTimeout) {
+            this.requestTimeout = requireNonNull(requestTimeout, "requestTimeout cannot be null");
+            return this;
+        }
+
+        /**
+         * Max number of requests in flight. Default is 4
+         */
+        public Builder maxConcurrentRequests(int maxConcurrentRequests) {
+            if (maxConcurrentRequests <= 0) {
+                throw new IllegalArgumentException("maxConcurrentRequests must be positive");
+            }
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
+        /**
+         * Max number of requests started per second, allowing bursts of {@code burst} requests.
+         * Default is 5 requests per second with bursts of 5
+         */
+        public Builder rateLimit(double requestsPerSecond, int burst) {
+            if (requestsPerSecond <= 0) {
+                throw new IllegalArgumentException("requestsPerSecond must be positive");
+            }
+            if (burst <= 0) {
+                throw new IllegalArgumentException("burst must be positive");
+            }
+            this.requestsPerSecond = requestsPerSecond;
+            this.burst = burst;
+            return this;
+        }
+
         public TavilyApiHttpClient build() {
             return new TavilyApiHttpClient(this);
         }
@@ -32,17 +99,28 @@ public class TavilyApiHttpClient implements TavilyApi {
     }
 
     private final String tavilyApiKey;
-    private final HttpClient httpClient;
-    private final ObjectMapper objectMapper;
+    private final URI searchUri;
+    private final Duration requestTimeout;
+    private final RequestLimiter limiter;
 
     private TavilyApiHttpClient(Builder builder ) {
-        this.httpClient = HttpClient.newHttpClient();
         this.tavilyApiKey = builder.tavilyApiKey;
-        this.objectMapper = new ObjectMapper();
+        this.searchUri = URI.create(builder.baseUrl.replaceAll("/+$", "") + "/search");
+        this.requestTimeout = builder.requestTimeout;
+        this.limiter = new RequestLimiter(builder.maxConcurrentRequests, builder.requestsPerSecond, builder.burst);
     }
 
     @Override
     public Response search(Request request) {
+        try {
+            return searchAsync(request).join();
+        } catch (CompletionException e) {
+            throw (e.getCause() instanceof RuntimeException ex) ? ex : e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Response> searchAsync(Request request) {
 
         if (request.query() == null || request.query().isEmpty()) {
             throw new IllegalArgumentException("Query parameter is required.");
@@ -72,31 +150,41 @@ public class TavilyApiHttpClient implements TavilyApi {
                 requestWithApiKey.days(),
                 requestWithApiKey.maxResults());
 
+        final String requestBody;
         try {
-            String requestBody = objectMapper.writeValueAsString(requestWithApiKey);
-
-            HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .uri(URI.create("https://api.tavily.com/search"))
-                    .header("Content-Type", "application/json")
-                    .header("Authorization", "Bearer %s".formatted(tavilyApiKey) )
-                    .POST( HttpRequest.BodyPublishers.ofString(requestBody) )
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() >= 400) {
-                DeepAgent.log.error("API Error: Status Code {}, Response Body: {}", response.statusCode(), response.body());
-                throw new RuntimeException("API Error: " + response.body());
-            }
+            requestBody = OBJECT_MAPPER.writeValueAsString(requestWithApiKey);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
 
-            Response tavilyResponse = objectMapper.readValue(response.body(), Response.class);
+        HttpRequest httpRequest = HttpRequest.newBuilder()
+                .uri(searchUri)
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer %s".formatted(tavilyApiKey) )
+                .POST( HttpRequest.BodyPublishers.ofString(requestBody) )
+                .build();
 
-            DeepAgent.log.info("Received response from Tavily API for query: {}", requestWithApiKey.query());
-            return tavilyResponse;
-        } catch (IOException | InterruptedException e) {
-            DeepAgent.log.error("HttpClient Error: {}", e.getMessage());
-            throw new RuntimeException("HttpClient Error: " + e.getMessage(), e);
-        }
+        return limiter.submit(() -> HTTP_CLIENT.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString()))
+                .handle((response, error) -> {
+                    if (error != null) {
+                        final var cause = (error instanceof CompletionException) ? error.getCause() : error;
+                        DeepAgent.log.error("HttpClient Error: {}", cause.getMessage());
+                        throw new RuntimeException("HttpClient Error: " + cause.getMessage(), cause);
+                    }
+                    if (response.statusCode() >= 400) {
+                        DeepAgent.log.error("API Error: Status Code {}, Response Body: {}", response.statusCode(), response.body());
+                        throw new RuntimeException("API Error: " + response.body());
+                    }
+                    try {
+                        Response tavilyResponse = OBJECT_MAPPER.readValue(response.body(), Response.class);
+                        DeepAgent.log.info("Received response from Tavily API for query: {}", requestWithApiKey.query());
+                        return tavilyResponse;
+                    } catch (IOException e) {
+                        DeepAgent.log.error("HttpClient Error: {}", e.getMessage());
+                        throw new RuntimeException("HttpClient Error: " + e.getMessage(), e);
+                    }
+                });
     }
 
 }
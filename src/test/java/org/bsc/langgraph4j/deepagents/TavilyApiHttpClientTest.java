@@ -0,0 +1,83 @@
+package org.bsc.langgraph4j.deepagents;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TavilyApiHttpClientTest {
+
+    private static TavilyApi.Request request( String query ) {
+        return TavilyApi.Request.builder()
+                .query( query )
+                .maxResults( 3 )
+                .build();
+    }
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        try( var server = new TavilyMockServer( 200 ) ) {
+
+            final var tavily = TavilyApiHttpClient.builder()
+                    .tavilyApiKey( "test" )
+                    .baseUrl( server.baseUrl() )
+                    .maxConcurrentRequests( 2 )
+                    .rateLimit( 1000, 1000 )
+                    .build();
+
+            final var futures = IntStream.range( 0, 8 )
+                    .mapToObj( i -> tavily.searchAsync( request( "query " + i ) ) )
+                    .toList();
+            CompletableFuture.allOf( futures.toArray( CompletableFuture[]::new ) ).join();
+
+            assertEquals( 8, server.requests() );
+            assertEquals( 2, server.maxConcurrentRequests() );
+            for( int i = 0 ; i < futures.size() ; ++i ) {
+                final var response = futures.get(i).join();
+                assertEquals( "query " + i, response.query() );
+                assertEquals( 3, response.results().size() );
+            }
+        }
+    }
+
+    @Test
+    public void testRateLimit() throws Exception {
+        try( var server = new TavilyMockServer( 0 ) ) {
+
+            final var tavily = TavilyApiHttpClient.builder()
+                    .tavilyApiKey( "test" )
+                    .baseUrl( server.baseUrl() )
+                    .maxConcurrentRequests( 8 )
+                    .rateLimit( 10, 2 )
+                    .build();
+
+            final var start = System.nanoTime();
+            final var futures = IntStream.range( 0, 7 )
+                    .mapToObj( i -> tavily.searchAsync( request( "query " + i ) ) )
+                    .toList();
+            CompletableFuture.allOf( futures.toArray( CompletableFuture[]::new ) ).join();
+            final var elapsedMillis = ( System.nanoTime() - start ) / 1_000_000;
+
+            // 2 requests in burst, then one every 100ms
+            assertEquals( 7, server.requests() );
+            assertTrue( elapsedMillis >= 450, "elapsed " + elapsedMillis + "ms" );
+        }
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        try( var server = new TavilyMockServer( 0 ) ) {
+
+            final var tavily = TavilyApiHttpClient.builder()
+                    .tavilyApiKey( "test" )
+                    .baseUrl( server.baseUrl() + "/missing" )
+                    .build();
+
+            final var exception = assertThrows( RuntimeException.class, () -> tavily.search( request( "query" ) ) );
+            assertTrue( exception.getMessage().startsWith( "API Error" ) );
+            assertThrows( IllegalArgumentException.class, () -> tavily.searchAsync( request( "" ) ) );
+        }
+    }
+}
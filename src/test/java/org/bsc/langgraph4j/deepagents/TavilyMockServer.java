@@ -0,0 +1,107 @@
+package org.bsc.langgraph4j.deepagents;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Local stand-in of the Tavily search endpoint, answering each query with a few fake results.
+ * <p>
+ * The response delay simulates the network latency; the server keeps the number of received requests
+ * and the max number of requests served concurrently.
+ */
+public class TavilyMockServer implements AutoCloseable {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final long delayMillis;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    public TavilyMockServer( long delayMillis ) throws IOException {
+        this.delayMillis = delayMillis;
+        this.server = HttpServer.create( new InetSocketAddress( InetAddress.getLoopbackAddress(), 0 ), 0 );
+        this.server.createContext( "/search", this::search );
+        this.server.setExecutor( executor );
+        this.server.start();
+    }
+
+    public String baseUrl() {
+        return "http://%s:%d".formatted( server.getAddress().getHostString(), server.getAddress().getPort() );
+    }
+
+    /**
+     * @return the number of received search requests
+     */
+    public int requests() {
+        return requests.get();
+    }
+
+    /**
+     * @return the max number of search requests served concurrently
+     */
+    public int maxConcurrentRequests() {
+        return maxRunning.get();
+    }
+
+    /**
+     * Results returned for a query: the urls are {@code https://example.com/<query words joined by '-'>/<n>}
+     */
+    static List<Map<String,Object>> results( String query, int maxResults ) {
+        final var slug = query.strip().toLowerCase().replaceAll("\\s+", "-");
+        return IntStream.rangeClosed( 1, maxResults )
+                .mapToObj( i -> Map.<String,Object>of(
+                        "title", "%s %d".formatted( query, i ),
+                        "url", "https://example.com/%s/%d".formatted( slug, i ),
+                        "content", "content %d about %s".formatted( i, query ),
+                        "score", 1.0 / i ) )
+                .toList();
+    }
+
+    private void search( HttpExchange exchange ) throws IOException {
+        requests.incrementAndGet();
+        final var current = running.incrementAndGet();
+        maxRunning.accumulateAndGet( current, Math::max );
+        try( exchange ) {
+            final var request = mapper.readTree( exchange.getRequestBody() );
+            final var query = request.path("query").asText();
+            final var maxResults = request.path("max_results").asInt(5);
+
+            if( delayMillis > 0 ) {
+                Thread.sleep( delayMillis );
+            }
+
+            final var body = mapper.writeValueAsBytes( Map.of(
+                    "query", query,
+                    "results", results( query, maxResults ),
+                    "response_time", 0.1 ) );
+            exchange.getResponseHeaders().add( "Content-Type", "application/json" );
+            exchange.sendResponseHeaders( 200, body.length );
+            exchange.getResponseBody().write( body );
+        }
+        catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            running.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
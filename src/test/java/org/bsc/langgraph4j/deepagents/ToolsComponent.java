@@ -9,7 +9,7 @@ public class ToolsComponent implements AiTools {
     final TavilyApi tavilyApiClient;
 
     public ToolsComponent(TavilyApi tavilyApiClient) {
-        this.tavilyApiClient = tavilyApiClient;
+        this.tavilyApiClient = CachingTavilyApi.builder( tavilyApiClient ).build();
     }
 
     @Override
@@ -1,13 +1,24 @@
 package org.bsc.langgraph4j.deepagents;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.bsc.langgraph4j.utils.TypeRef;
 import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
 import org.springframework.ai.util.json.schema.JsonSchemaGenerator;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
+import static org.bsc.langgraph4j.deepagents.ResearchFlow.MAIN_PROMPT;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class ToolsTest {
@@ -52,4 +63,394 @@ public class ToolsTest {
         assertEquals(  Map.of( "key2", "value2", "key3", "value31", "key4", "value4"),
                 result );
     }
+
+    @Test
+    public void testLineIndex() {
+
+        final var contents = List.of(
+                "line1",
+                "line1\nline2\nline3",
+                "line1\n\nline3\n\n\n",
+                "\nline2\r\nline3",
+                "\n\n",
+                "x".repeat(2500) + "\nshort" );
+
+        for( var content : contents ) {
+            final var lines = content.split("\n");
+            final var index = LineIndex.of(content);
+
+            assertEquals( lines.length, index.lineCount(), content );
+
+            final var expected = new ArrayList<String>();
+            for( int i = 0 ; i < lines.length ; ++i ) {
+                var line = lines[i].length() > 2000 ? lines[i].substring(0, 2000) : lines[i];
+                expected.add( String.format("%6d\t%s", i + 1, line) );
+            }
+            assertEquals( String.join("\n", expected), index.format( 0, lines.length, 2000 ) );
+
+            assertSame( index, LineIndex.of(content) );
+        }
+
+        final var big = new StringBuilder();
+        for( int i = 0 ; i < 2_000_000 ; ++i ) {
+            big.append( "line " ).append(i).append('\n');
+        }
+        assertEquals( "1000000\tline 999999\n1000001\tline 1000000",
+                LineIndex.of( big.toString() ).format( 999_999, 1_000_001, 2000 ) );
+    }
+
+    @Test
+    public void testTextEdit() {
+
+        var result = TextEdit.replace( "a\nfoo\nb\nfoo", "foo", "bar", false );
+        assertFalse( result.applied() );
+        assertEquals( 2, result.occurrences() );
+
+        result = TextEdit.replace( "a\nfoo\nb", "baz", "bar", false );
+        assertFalse( result.applied() );
+        assertEquals( 0, result.occurrences() );
+
+        result = TextEdit.replace( "a\nfoo\nb", "foo", "bar\nbaz", false );
+        assertTrue( result.applied() );
+        assertEquals( "a\nbar\nbaz\nb", result.content() );
+        assertEquals( 2, result.firstLine() );
+        assertEquals( 3, result.lastLine() );
+
+        result = TextEdit.replace( "foo\nx\nfoo\ny\nfoo", "foo", "bar", true );
+        assertEquals( "bar\nx\nbar\ny\nbar", result.content() );
+        assertEquals( 3, result.occurrences() );
+        assertEquals( 1, result.firstLine() );
+        assertEquals( 5, result.lastLine() );
+
+        // replacement and target are literals ( no regex )
+        result = TextEdit.replace( "price: (a+b)", "(a+b)", "$1 \\ $0", true );
+        assertEquals( "price: $1 \\ $0", result.content() );
+
+        // non overlapping occurrences, like the previous regex based implementation
+        result = TextEdit.replace( "aaaa", "aa", "b", true );
+        assertEquals( "bb", result.content() );
+        assertEquals( 2, result.occurrences() );
+
+        assertThrows( IllegalArgumentException.class, () -> TextEdit.replace( "a", "", "b", true ) );
+    }
+
+    @Test
+    public void testMultiEdit() {
+
+        final var content = "title\nfoo\nbar\nfoo\nbaz";
+
+        var result = TextEdit.replace( content, List.of(
+                new TextEdit.Edit( "baz", "end", false ),
+                new TextEdit.Edit( "title", "# Title\n", false ),
+                new TextEdit.Edit( "foo", "FOO", true ) ) );
+        assertTrue( result.applied() );
+        assertEquals( "# Title\n\nFOO\nbar\nFOO\nend", result.content() );
+        assertEquals( 4, result.occurrences() );
+        assertEquals( 1, result.firstLine() );
+        assertEquals( 6, result.lastLine() );
+
+        // edits are matched against the original content
+        result = TextEdit.replace( content, List.of(
+                new TextEdit.Edit( "bar", "qux", false ),
+                new TextEdit.Edit( "qux", "quux", false ) ) );
+        assertFalse( result.applied() );
+        assertEquals( "edit 2: String not found in file: 'qux'", result.error() );
+
+        // all or nothing
+        result = TextEdit.replace( content, List.of(
+                new TextEdit.Edit( "bar", "qux", false ),
+                new TextEdit.Edit( "foo", "FOO", false ) ) );
+        assertFalse( result.applied() );
+        assertNull( result.content() );
+        assertTrue( result.error().startsWith( "edit 2: String 'foo' appears 2 times" ) );
+
+        // conflicts
+        result = TextEdit.replace( content, List.of(
+                new TextEdit.Edit( "foo\nbar", "x", false ),
+                new TextEdit.Edit( "bar\nfoo", "y", false ) ) );
+        assertFalse( result.applied() );
+        assertEquals( "edits 1 and 2 overlap at line 3", result.error() );
+
+        result = TextEdit.replace( content, List.of(
+                new TextEdit.Edit( "baz", "x", false ),
+                new TextEdit.Edit( "baz", "y", false ) ) );
+        assertEquals( "edits 1 and 2 overlap at line 5", result.error() );
+
+        // adjacent edits don't conflict
+        result = TextEdit.replace( "abc", List.of(
+                new TextEdit.Edit( "a", "1", false ),
+                new TextEdit.Edit( "b", "2", false ) ) );
+        assertEquals( "12c", result.content() );
+
+        assertEquals( "edit 1: oldString cannot be empty",
+                TextEdit.replace( content, List.of( new TextEdit.Edit( "", "x", false ) ) ).error() );
+        assertFalse( TextEdit.replace( content, List.of() ).applied() );
+    }
+
+    @Test
+    public void testLs() throws Exception {
+        var files = PersistentMap.<String,String>empty();
+        for( int i = 0 ; i < 1_000 ; ++i ) {
+            files = files.plus( "data/file%04d.csv".formatted(i), "row\n".repeat( i % 10 + 1 ) );
+        }
+        files = files.plus( "final_report.md", "# Report" );
+
+        final var ls = Tools.ls( new FileIndex( FileStore.inline() ) );
+        final var context = new ToolContext( Map.of( "files", files ) );
+        final var mapper = new ObjectMapper();
+
+        // default page
+        var result = mapper.readTree( ls.call( "{}", context ) );
+        assertEquals( 1_001, result.path("total").asInt() );
+        assertEquals( Tools.LS_DEFAULT_LIMIT, result.path("files").size() );
+        assertEquals( "data/file0000.csv", result.path("files").get(0).path("path").asText() );
+        assertTrue( result.path("files").get(0).path("size").isMissingNode() );
+
+        // directory, glob and paging
+        result = mapper.readTree( ls.call( """
+                { "path": "data", "glob": "data/file00*.csv", "offset": 90, "limit": 20 }
+                """, context ) );
+        assertEquals( 100, result.path("total").asInt() );
+        assertEquals( 90, result.path("offset").asInt() );
+        assertEquals( 10, result.path("files").size() );
+        assertEquals( "data/file0099.csv", result.path("files").get(9).path("path").asText() );
+
+        // sort by lines, with details
+        result = mapper.readTree( ls.call( """
+                { "sortBy": "lines", "reverse": true, "limit": 2, "details": true }
+                """, context ) );
+        assertEquals( "data/file0009.csv", result.path("files").get(0).path("path").asText() );
+        assertEquals( 10, result.path("files").get(0).path("lines").asInt() );
+        assertEquals( 40, result.path("files").get(0).path("size").asLong() );
+        assertEquals( "data/file0019.csv", result.path("files").get(1).path("path").asText() );
+    }
+
+    @Test
+    public void testReadFileChunk() {
+        // 104 chars, 106 UTF-8 bytes
+        final var files = Map.of( "large.log", "0123456789".repeat( 10 ) + "✓end" );
+
+        final var readFileChunk = Tools.readFileChunk( FileStore.inline() );
+        final var context = new ToolContext( Map.of( "files", files ) );
+
+        assertEquals( "[chars 0-10 of 104]\n0123456789\n[more content: next offset 10]",
+                readFileChunk.call( """
+                        { "filePath": "large.log", "length": 10 }
+                        """, context ) );
+        assertEquals( "[chars 98-104 of 104]\n89✓end\n[end of file]",
+                readFileChunk.call( """
+                        { "filePath": "large.log", "offset": 98 }
+                        """, context ) );
+
+        // the byte range starts after the character containing the requested offset
+        assertEquals( "[bytes 103-106 of 106]\nend\n[end of file]",
+                readFileChunk.call( """
+                        { "filePath": "large.log", "offset": 101, "unit": "bytes" }
+                        """, context ) );
+        assertEquals( "[bytes 96-100 of 106]\n6789\n[more content: next offset 100]",
+                readFileChunk.call( """
+                        { "filePath": "large.log", "offset": 96, "length": 6, "unit": "bytes" }
+                        """, context ) );
+
+        assertEquals( "Error: File 'missing.log' not found",
+                readFileChunk.call( """
+                        { "filePath": "missing.log" }
+                        """, context ) );
+        assertEquals( "Error: offset 200 exceeds file length 104 chars",
+                readFileChunk.call( """
+                        { "filePath": "large.log", "offset": 200 }
+                        """, context ) );
+        assertEquals( "Error: unit must be 'chars' or 'bytes', not 'lines'",
+                readFileChunk.call( """
+                        { "filePath": "large.log", "unit": "lines" }
+                        """, context ) );
+    }
+
+    @Test
+    public void testToolCallStatus() {
+        final var errors = new ArrayList<String>();
+        final AgentMetrics metrics = new AgentMetrics() {
+            @Override
+            public boolean enabled() {
+                return true;
+            }
+
+            @Override
+            public void recordToolCall( String agent, String tool, long nanos, boolean error, int inputSize, int outputSize ) {
+                errors.add( tool + ":" + error );
+            }
+        };
+        final var files = Map.of( "notes.md", "notes" );
+        final var context = new ToolContext( Map.of( "files", files ) );
+
+        final var tools = InstrumentedToolCallback.of(
+                RecordedToolCallback.of( List.of( Tools.readFile( FileStore.inline() ), Tools.readFiles( FileStore.inline() ) ), true, "main" ),
+                metrics, "main" );
+        final var readFile = tools.get(0);
+        final var readFiles = tools.get(1);
+
+        readFile.call( "{ \"filePath\": \"missing.md\", \"limit\": 10 }", context );
+        readFile.call( "{ \"filePath\": \"notes.md\", \"limit\": 10 }", context );
+        // a partial result is not an error
+        readFiles.call( "{ \"filePaths\": [ \"notes.md\", \"missing.md\" ], \"limit\": 10 }", context );
+        assertEquals( List.of( "read_file:true", "read_file:false", "read_files:false" ), errors );
+
+        // the error of a nested call is not propagated to the enclosing call
+        errors.clear();
+        final ToolCallback outer = new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return ToolDefinition.builder().name("outer").description("outer").inputSchema("{}").build();
+            }
+
+            @Override
+            public String call( String toolInput ) {
+                readFile.call( "{ \"filePath\": \"missing.md\", \"limit\": 10 }", context );
+                return "Error: the text of a successful result";
+            }
+        };
+        InstrumentedToolCallback.of( List.of( outer ), metrics, "main" ).get(0).call( "{}" );
+        assertEquals( List.of( "read_file:true", "outer:false" ), errors );
+    }
+
+    @Test
+    public void testSubAgentInputPolicy() {
+
+        final Map<String,Object> parentContext = Map.of(
+                "messages", List.of( new UserMessage("question"), new AssistantMessage("long answer") ),
+                "files", Map.of( "question.txt", "question" ),
+                "todos", List.of( new DeepAgent.ToDo( "research", DeepAgent.ToDo.Status.PENDING ) ) );
+
+        final var task = new UserMessage("task description");
+
+        var input = TaskToolBuilder.inputState( DeepAgent.SubAgent.InputPolicy.FILES, parentContext, task );
+        assertEquals( Map.of( "messages", task, "files", Map.of( "question.txt", "question" ) ), input );
+
+        input = TaskToolBuilder.inputState( DeepAgent.SubAgent.InputPolicy.FILES_AND_TODOS, parentContext, task );
+        assertEquals( Map.of( "messages", task,
+                "files", parentContext.get("files"),
+                "todos", parentContext.get("todos") ), input );
+
+        input = TaskToolBuilder.inputState( DeepAgent.SubAgent.InputPolicy.FULL_CONTEXT, parentContext, task );
+        assertEquals( task, input.get("messages") );
+        assertEquals( parentContext.get("todos"), input.get("todos") );
+
+        final var subAgent = DeepAgent.SubAgent.builder().name("agent").description("agent").build();
+        assertEquals( DeepAgent.SubAgent.InputPolicy.FILES, subAgent.inputPolicy() );
+
+        // compatibility constructor
+        assertEquals( subAgent, new DeepAgent.SubAgent( "agent", "agent", null, null ) );
+    }
+
+    @Test
+    public void testTaskToolCanonicalOrdering() throws Exception {
+        final var research = DeepAgent.SubAgent.builder()
+                .name("research-agent")
+                .description("Used to research more in depth questions")
+                .prompt("You are a dedicated researcher.")
+                .build();
+        final var critique = DeepAgent.SubAgent.builder()
+                .name("critique-agent")
+                .description("Used to critique the final report")
+                .prompt("You are a dedicated editor.")
+                .build();
+        final var tools = Tools.builtin( FileStore.inline() ).stream()
+                .collect( Collectors.toMap( tool -> tool.getToolDefinition().name(), tool -> tool ) );
+
+        final var taskTool1 = new TaskToolBuilder()
+                .model( ScriptedChatModel.builder().build() )
+                .subAgents( List.of( research, critique ) )
+                .tools( tools )
+                .build();
+        final var taskTool2 = new TaskToolBuilder()
+                .model( ScriptedChatModel.builder().build() )
+                .subAgents( List.of( critique, research ) )
+                .tools( tools )
+                .build();
+
+        assertEquals( taskTool1.getToolDefinition().description(), taskTool2.getToolDefinition().description() );
+        assertEquals( taskTool1.getToolDefinition().inputSchema(), taskTool2.getToolDefinition().inputSchema() );
+        final var description = taskTool1.getToolDefinition().description();
+        assertTrue( description.indexOf("- critique-agent") < description.indexOf("- research-agent") );
+    }
+
+    @Test
+    public void testDefaultBuiltinTools() {
+        final var names = Tools.builtin( FileStore.inline() ).stream()
+                .map( tool -> tool.getToolDefinition().name() )
+                .collect( Collectors.toSet() );
+        assertTrue( names.containsAll( Tools.DEFAULT_BUILTIN_TOOLS ) );
+        // the bulk, range and search tools are opt-in
+        for( var name : List.of( "read_files", "read_file_chunk", "write_files", "multi_edit", "glob", "grep" ) ) {
+            assertTrue( names.contains( name ) );
+            assertFalse( Tools.DEFAULT_BUILTIN_TOOLS.contains( name ) );
+        }
+    }
+
+    public record NativeUsage( Integer promptTokens, PromptTokensDetails promptTokensDetails ) {}
+    public record PromptTokensDetails( Integer audioTokens, Integer cachedTokens ) {}
+
+    @Test
+    public void testPromptCacheUsage() {
+        final var openAiUsage = new DefaultUsage( 1200, 50, 1250,
+                Map.of( "prompt_tokens", 1200, "prompt_tokens_details", Map.of( "cached_tokens", 1024 ) ) );
+        assertEquals( 1024L, PromptCacheUsage.cachedTokens( openAiUsage ).orElseThrow() );
+
+        final var geminiUsage = new DefaultUsage( 1200, 50, 1250,
+                Map.of( "promptTokenCount", 1200, "cachedContentTokenCount", 600 ) );
+        assertEquals( 600L, PromptCacheUsage.cachedTokens( geminiUsage ).orElseThrow() );
+
+        // native usage object, read through its accessors
+        final var nativeUsage = new DefaultUsage( 1200, 50, 1250,
+                new NativeUsage( 1200, new PromptTokensDetails( 0, 512 ) ) );
+        assertEquals( 512L, PromptCacheUsage.cachedTokens( nativeUsage ).orElseThrow() );
+        assertTrue( PromptCacheUsage.cachedTokens( new DefaultUsage( 1200, 50, 1250,
+                new NativeUsage( 1200, null ) ) ).isEmpty() );
+
+        assertTrue( PromptCacheUsage.cachedTokens( new DefaultUsage( 10, 5 ) ).isEmpty() );
+        assertTrue( PromptCacheUsage.cachedTokens( null ).isEmpty() );
+    }
+
+    @Test
+    public void testBulkFileTools() throws Exception {
+        final var chatModel = ScriptedChatModel.builder()
+                .scriptForSystem( MAIN_PROMPT,
+                        ScriptedChatModel.Turn.toolCalls( "write_files", """
+                                { "files": [
+                                    { "filePath": "final_report.md", "content": "# Report" },
+                                    { "filePath": "notes/a.md", "content": "note a" },
+                                    { "filePath": "notes/b.md", "content": "note b\\nline 2" }
+                                ] }
+                                """ ),
+                        ScriptedChatModel.Turn.toolCalls( "read_files", """
+                                { "filePaths": [ "notes/a.md", "notes/b.md", "missing.md" ], "limit": 2000 }
+                                """ ),
+                        ScriptedChatModel.Turn.text( "done" ))
+                .recordPrompts(10)
+                .build();
+
+        final var output = OfflineRuns.run( DeepAgent.builder()
+                .instructions( MAIN_PROMPT )
+                .chatModel( chatModel )
+                .fileStore( FileStore.inMemory() )
+                .builtinTools( List.of( "read_files", "write_files" ) ), "Write the notes" );
+
+        assertEquals( "done", output.lastMessage().map( m -> m.getText() ).orElseThrow() );
+        // one turn per bulk operation
+        assertEquals( 3, chatModel.calls() );
+        assertEquals( 3, output.files().size() );
+
+        final var toolResponses = chatModel.prompts().get( chatModel.prompts().size() - 1 ).getInstructions().stream()
+                .filter( ToolResponseMessage.class::isInstance )
+                .flatMap( m -> ((ToolResponseMessage)m).getResponses().stream() )
+                .map( ToolResponseMessage.ToolResponse::responseData )
+                .toList();
+        assertEquals( 2, toolResponses.size() );
+        assertTrue( toolResponses.get(0).contains( "Updated files final_report.md, notes/a.md, notes/b.md" ) );
+        assertTrue( toolResponses.get(1).contains( "==> notes/a.md <==" ) );
+        assertTrue( toolResponses.get(1).contains( "note a" ) );
+        assertTrue( toolResponses.get(1).contains( "==> notes/b.md <==" ) );
+        assertTrue( toolResponses.get(1).contains( "line 2" ) );
+        assertTrue( toolResponses.get(1).contains( "Error: File 'missing.md' not found" ) );
+    }
 }